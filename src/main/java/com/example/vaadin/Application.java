@@ -1,15 +1,23 @@
 package com.example.vaadin;
 
+import com.example.vaadin.services.SubmissionProperties;
 import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.theme.Theme;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 /**
  * Vaadin 24 アプリケーションのエントリーポイント
+ *
+ * バックグラウンド処理の完了を画面へ反映できるよう Server Push を有効にしている。
+ * 申請サービスの設定（{@code app.submissions.*}）は {@link SubmissionProperties} に読み込む。
  */
 @SpringBootApplication
 @Theme("fixedlayout")
+@Push
+@EnableConfigurationProperties(SubmissionProperties.class)
 public class Application implements AppShellConfigurator {
 
     public static void main(String[] args) {
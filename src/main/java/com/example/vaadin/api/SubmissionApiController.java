@@ -0,0 +1,136 @@
+package com.example.vaadin.api;
+
+import com.example.vaadin.services.ApplicationRequestService;
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import com.example.vaadin.services.SubmissionQuery;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 申請履歴を外部システムから参照するための読み取り専用 API。
+ * <p>
+ * Vaadin の画面と同じアプリケーションで {@code /api/submissions} に公開する。
+ * ページ送りは受付番号をカーソルにした方式で、レスポンスの {@code nextCursor} を次の要求の {@code cursor} に渡すと続きを返す。
+ * 読み飛ばしを行わないため、深いページでも取得件数ぶんの処理で済む。
+ * <p>
+ * 応答の JSON はストリーミング API（{@link JsonGenerator}）で 1 件ずつ出力ストリームへ直接書き出し、
+ * 応答全体を表すオブジェクトや中間の文字列は作らない。
+ * <pre>
+ * GET /api/submissions?department=総務部&amp;limit=100&amp;cursor=12345
+ * {"items":[{"id":12344,"submittedAt":"2024-04-01T09:00:00",...}, ...],"nextCursor":12245}
+ * </pre>
+ */
+@RestController
+@RequestMapping("/api/submissions")
+public class SubmissionApiController {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final ApplicationRequestService requestService;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public SubmissionApiController(
+        ApplicationRequestService requestService,
+        @Value("${app.api.submissions.default-limit:100}") int defaultLimit,
+        @Value("${app.api.submissions.max-limit:1000}") int maxLimit) {
+        this.requestService = requestService;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * 条件に一致する申請を受付番号順に 1 ページ返す。
+     *
+     * @param cursor 前のページの {@code nextCursor}。省略した場合は先頭ページ
+     * @param limit  1 ページの件数（省略時は {@code app.api.submissions.default-limit}、上限は {@code max-limit}）
+     * @param order  {@code newest}（受付番号の大きい順、既定）または {@code oldest}
+     * @return {@code items} と、続きがある場合は {@code nextCursor}（無い場合は {@code null}）を持つ JSON
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> list(
+        @RequestParam(required = false) String applicantId,
+        @RequestParam(required = false) String requestType,
+        @RequestParam(required = false) String department,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desiredFrom,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desiredTo,
+        @RequestParam(required = false) Long cursor,
+        @RequestParam(required = false) Integer limit,
+        @RequestParam(defaultValue = "newest") String order) {
+        boolean newestFirst = switch (order) {
+            case "newest" -> true;
+            case "oldest" -> false;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "order must be newest or oldest");
+        };
+        int pageSize = limit == null ? defaultLimit : limit;
+        if (pageSize <= 0 || pageSize > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxLimit);
+        }
+        SubmissionQuery query = new SubmissionQuery(blankToNull(applicantId), blankToNull(requestType),
+            blankToNull(department), desiredFrom, desiredTo);
+        long afterId = cursor != null ? cursor : newestFirst ? Long.MAX_VALUE : 0;
+
+        // 1 件多く取得し、続きの有無を判定する
+        List<SubmissionLog> page = requestService.queryAfter(query, afterId, pageSize + 1, newestFirst);
+        boolean hasMore = page.size() > pageSize;
+        int count = hasMore ? pageSize : page.size();
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("items");
+                for (int i = 0; i < count; i++) {
+                    writeSubmission(json, page.get(i));
+                }
+                json.writeEndArray();
+                if (hasMore) {
+                    json.writeNumberField("nextCursor", page.get(count - 1).id());
+                } else {
+                    json.writeNullField("nextCursor");
+                }
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static void writeSubmission(JsonGenerator json, SubmissionLog submission) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", submission.id());
+        json.writeStringField("submittedAt", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(submission.submittedAt()));
+        json.writeStringField("applicantId", submission.applicantId());
+        json.writeStringField("applicantName", submission.applicantName());
+        json.writeStringField("contactEmail", submission.contactEmail());
+        json.writeStringField("department", submission.department());
+        json.writeStringField("requestType", submission.requestType());
+        LocalDate desiredDate = submission.desiredDate();
+        if (desiredDate == null) {
+            json.writeNullField("desiredDate");
+        } else {
+            json.writeStringField("desiredDate", DateTimeFormatter.ISO_LOCAL_DATE.format(desiredDate));
+        }
+        json.writeStringField("description", submission.description());
+        json.writeEndObject();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
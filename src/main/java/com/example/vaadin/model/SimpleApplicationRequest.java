@@ -11,7 +11,8 @@ import java.time.LocalDate;
 /**
  * シンプルな申請フォームで扱う入力値をまとめた DTO。
  * <p>
- * Vaadin Binder から Bean Validation を利用できるよう Jakarta Validation のアノテーションを付与している。
+ * 入力チェックのルールは Jakarta Validation のアノテーションで表し、画面の Binder と一括取り込みの双方が
+ * {@code CompiledBeanValidator} を通じて同じルール・同じメッセージで検査する。
  * 必須項目や最大文字数に関するビジネスルールが変わった場合はこのクラスを更新する。
  */
 public class SimpleApplicationRequest implements Serializable {
@@ -1,37 +1,399 @@
 package com.example.vaadin.services;
 
 import com.example.vaadin.model.SimpleApplicationRequest;
+import com.example.vaadin.services.SubmissionRejectedException.Reason;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * 申請データの保存・取得を担当するサービス。
  * <p>
  * 実運用ではデータベースや外部APIと連携させるが、このサンプルはメモリ上に履歴を残すのみとする。
+ * 履歴は固定長のリングバッファに保持し、保持件数は {@code app.submissions.retention-size} で変更できる。
+ * {@code app.submissions.sharding.enabled=true} の場合は履歴とバッチ処理ステージを申請者IDのハッシュで
+ * {@link SubmissionShards} に分割し、複数のコアから並行して書き込めるようにする。
+ * {@code app.submissions.off-heap-descriptions.enabled=true} の場合は、保持する履歴の申請内容詳細を
+ * {@link DescriptionArena} に UTF-8 でヒープ外格納し、画面表示や全文検索で必要になったときだけ復号する。
+ * {@link SubmissionJournal} が有効な場合は登録内容をディスクへ追記し、起動時にジャーナルから履歴を復元する。
+ * あわせて {@link SubmissionSnapshotStore} が定期的に履歴のスナップショットを保存し、取り込み済みのジャーナルを削除する。
+ * {@link JdbcSubmissionStore} が有効な場合は申請をデータベースにも保存し、履歴の検索・件数取得は保持件数に関わらず
+ * データベースの全件を対象に行う（最新の履歴・全文検索・エクスポートはメモリ上の履歴を使う）。
+ * {@link SubmissionColdStore} が有効な場合は、保持件数を超えて押し出された履歴を圧縮したブロックとしてディスクへ移し、
+ * 履歴の検索・件数取得はメモリ上の履歴（ホット層）とディスク上のブロック（コールド層）をまとめて対象にする。
+ * <p>
+ * 画面からは {@link #submitAsync(SimpleApplicationRequest)} を利用し、保存処理はバッチ処理ステージに任せる。
+ * 申請者ID・申請区分・所属部署・希望日による検索は {@link SubmissionIndex}、申請内容詳細の全文検索は
+ * {@link DescriptionSearchIndex} を利用し、履歴を全件走査しない。
+ * 保存した申請は {@link SubmissionChangeFeed} へ流し、集計（{@link SubmissionStatistics}）・接続中の画面への通知
+ * （{@link SubmissionBroadcaster}）・全文検索の索引付け・監査ログ（{@link SubmissionAuditLog}）への記録は、
+ * その後続処理として保存処理とは別のスレッドで行う。
+ * そのため全文検索は保存の直後にはまだ新しい申請を返さないことがある。
+ * そのほかの後続処理は {@link #changes()} を購読すれば、保存処理を待たせずに自分の速度で全申請を受け取れる。
+ * <p>
+ * 二重送信は冪等キーと申請内容のフィンガープリントで検出し、{@link DuplicateSubmissionException} で拒否する。
+ * 申請者ごとのレート制限とシステム全体の同時処理数の上限を超えた申請は {@link SubmissionRejectedException} で拒否する。
+ * 申請区分ごとに 1 日あたりの受付枠（{@code app.submissions.capacity.daily-limits}）がある場合は、登録時に
+ * {@link SubmissionCapacityEngine} で希望日の枠を確保し、満枠の申請も同じ例外で拒否する。
+ * その申請区分では、当日から {@code app.submissions.capacity.bookable-days} 日後までの希望日だけを受け付ける。
+ * <p>
+ * 旧システムからの移行データは {@link #importCsv(InputStream)} で一括取り込みできる。
  */
 @Service
 public class ApplicationRequestService {
 
     private static final Logger log = LoggerFactory.getLogger(ApplicationRequestService.class);
 
-    private final CopyOnWriteArrayList<SubmissionLog> submissionLogs = new CopyOnWriteArrayList<>();
+    private static final int DEFAULT_LATEST_LIMIT = 5;
+
+    /** データベースやコールド層から全件を読む場合に、受付番号をカーソルにして一度に読み出す件数。 */
+    private static final int CURSOR_PAGE_SIZE = 1024;
+
+    private final SubmissionShards shards;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /** 履歴が 1 件以上あるか。履歴は削除されないため、起動時に確認した後は保存のたびに立てるだけでよい。 */
+    private volatile boolean hasHistory;
+
+    private final SubmissionJournal journal;
+
+    private final JdbcSubmissionStore jdbcStore;
+
+    private final SubmissionColdStore coldStore;
+
+    private final SubmissionAuditLog auditLog;
+
+    /** シャードごとのバッチ処理ステージ。添字は {@link SubmissionShards#shardOf(String)} と対応する。 */
+    private final SubmissionBatcher[] batchers;
+
+    private final DuplicateSubmissionDetector duplicateDetector;
+
+    private final SubmissionRateLimiter rateLimiter;
+
+    private final SubmissionCapacityEngine capacity;
+
+    private final SubmissionImporter importer;
+
+    private final SubmissionChangeFeed changeFeed;
+
+    private final SubmissionReportEngine reportEngine;
+
+    /** 保存処理（読み取りロック）とスナップショット取得（書き込みロック）を排他する。 */
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    public ApplicationRequestService(
+        SubmissionProperties properties,
+        Optional<SubmissionJournal> journal,
+        Optional<SubmissionSnapshotStore> snapshotStore,
+        Optional<JdbcSubmissionStore> jdbcStore,
+        Optional<SubmissionColdStore> coldStore,
+        Optional<SubmissionAuditLog> auditLog,
+        SubmissionBroadcaster broadcaster,
+        SubmissionStatistics statistics) {
+        this.coldStore = coldStore.orElse(null);
+        this.auditLog = auditLog.orElse(null);
+        SubmissionProperties.Sharding sharding = properties.sharding();
+        SubmissionProperties.OffHeapDescriptions offHeap = properties.offHeapDescriptions();
+        this.shards = new SubmissionShards(
+            !sharding.enabled() ? 1
+                : sharding.shardCount() > 0 ? sharding.shardCount() : Runtime.getRuntime().availableProcessors(),
+            properties.retentionSize(),
+            offHeap.enabled() ? offHeap.chunkSizeBytes() : 0,
+            Math.max(DEFAULT_LATEST_LIMIT, properties.latest().windowSize()),
+            DEFAULT_LATEST_LIMIT,
+            this.coldStore == null ? null : this.coldStore::migrate);
+        SubmissionProperties.Dedupe dedupe = properties.dedupe();
+        this.duplicateDetector = new DuplicateSubmissionDetector(dedupe.windowSeconds(), dedupe.capacity());
+        SubmissionProperties.RateLimit rateLimit = properties.rateLimit();
+        this.rateLimiter = new SubmissionRateLimiter(rateLimit.perApplicantPerMinute(), rateLimit.burst(),
+            rateLimit.maxInFlight());
+        SubmissionProperties.Capacity limits = properties.capacity();
+        this.capacity = new SubmissionCapacityEngine(SubmissionCapacityEngine.parseLimits(limits.dailyLimits()),
+            limits.tableSize(), limits.bookableDays(), Clock.systemDefaultZone());
+        this.importer = new SubmissionImporter(properties.importing().batchSize());
+        this.changeFeed = new SubmissionChangeFeed(properties.feed().bufferSize());
+        this.reportEngine = new SubmissionReportEngine(properties.reports().chunkSize(),
+            properties.reports().parallelism());
+        this.changeFeed.consume("statistics", change -> {
+            if (change.origin() == SubmissionChangeFeed.Origin.IMPORTED) {
+                statistics.recordImported(change.submission());
+            } else {
+                statistics.record(change.submission());
+            }
+        });
+        this.changeFeed.consume("broadcaster", change -> broadcaster.publish(change.submission()));
+        this.changeFeed.consume("search-index", change -> shards.indexDescription(change.submission()));
+        if (this.auditLog != null) {
+            this.changeFeed.consume("audit-log", this::audit);
+        }
+        this.journal = journal.orElse(null);
+        this.jdbcStore = jdbcStore.orElse(null);
+        if (this.journal != null) {
+            restoreFromJournal(snapshotStore.orElse(null));
+        }
+        if (this.jdbcStore != null) {
+            restoreFromDatabase(properties.retentionSize());
+        }
+        if (this.coldStore != null) {
+            nextId.accumulateAndGet(this.coldStore.maxId() + 1, Math::max);
+            this.coldStore.restoreCompleted();
+        }
+        restoreCapacity();
+        this.hasHistory = count(SubmissionQuery.all()) > 0;
+        if (this.hasHistory) {
+            restoreStatistics(statistics);
+        }
+        this.batchers = new SubmissionBatcher[shards.shardCount()];
+        SubmissionProperties.Async async = properties.async();
+        int queueCapacityPerShard = Math.max(1, async.queueCapacity() / batchers.length);
+        for (int i = 0; i < batchers.length; i++) {
+            String name = batchers.length == 1 ? "submission-batcher" : "submission-batcher-" + i;
+            batchers[i] = new SubmissionBatcher(name, queueCapacityPerShard, async.batchSize(), this::store);
+        }
+        snapshotStore.ifPresent(store -> store.start(this::captureSnapshot));
+    }
 
     /**
      * 申請内容を登録し、簡易的な履歴として保持する。
      *
      * @param request 画面で入力された申請情報
+     * @return 登録された履歴
+     * @throws SubmissionRejectedException 重複やレート制限により受け付けなかった場合
+     */
+    public SubmissionLog submit(SimpleApplicationRequest request) {
+        return submit(request, null);
+    }
+
+    /**
+     * 冪等キーを指定して申請内容を登録する。
+     *
+     * @param request        画面で入力された申請情報
+     * @param idempotencyKey フォームごとに払い出した冪等キー。{@code null} の場合は内容のみで重複を判定する
+     * @return 登録された履歴
+     * @throws SubmissionRejectedException 重複やレート制限により受け付けなかった場合
+     */
+    public SubmissionLog submit(SimpleApplicationRequest request, String idempotencyKey) {
+        acquire(request, idempotencyKey);
+        SubmissionLog submission = newSubmission(request);
+        reportEngine.beginWrite(submission.submittedAtMillis());
+        try {
+            store(List.of(submission));
+        } catch (RuntimeException ex) {
+            duplicateDetector.release(idempotencyKey, request);
+            capacity.release(request.getRequestType(), request.getDesiredDate());
+            throw ex;
+        } finally {
+            reportEngine.endWrite(submission.submittedAtMillis());
+            rateLimiter.release();
+        }
+        return submission;
+    }
+
+    /**
+     * 申請内容を非同期で登録する。
+     *
+     * @see #submitAsync(SimpleApplicationRequest, String)
+     */
+    public CompletableFuture<SubmissionLog> submitAsync(SimpleApplicationRequest request) {
+        return submitAsync(request, null);
+    }
+
+    /**
+     * 冪等キーを指定して申請内容を非同期で登録する。
+     * <p>
+     * 受付日時は呼び出し時点で確定し、保存はバッチ処理ステージでまとめて行う。
+     * 返却される Future はバッチ処理用スレッドで完了するため、UI を更新する場合は
+     * {@code UI.access} を経由すること。
+     *
+     * @param request        画面で入力された申請情報
+     * @param idempotencyKey フォームごとに払い出した冪等キー。{@code null} の場合は内容のみで重複を判定する
+     * @return 保存完了時に登録された履歴で完了する Future。受け付けなかった場合は
+     *         {@link SubmissionRejectedException}、受付キューが満杯の場合は
+     *         {@link java.util.concurrent.RejectedExecutionException} で完了する
+     */
+    public CompletableFuture<SubmissionLog> submitAsync(SimpleApplicationRequest request, String idempotencyKey) {
+        try {
+            acquire(request, idempotencyKey);
+        } catch (SubmissionRejectedException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        SubmissionBatcher batcher = batchers[shards.shardOf(request.getApplicantId())];
+        SubmissionLog submission = newSubmission(request);
+        reportEngine.beginWrite(submission.submittedAtMillis());
+        CompletableFuture<SubmissionLog> future = batcher.enqueue(submission);
+        future.whenComplete((stored, error) -> {
+            reportEngine.endWrite(submission.submittedAtMillis());
+            rateLimiter.release();
+            if (error != null) {
+                duplicateDetector.release(idempotencyKey, request); // 保存できなかった申請は再送を許可する
+                capacity.release(request.getRequestType(), request.getDesiredDate());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * レート制限と同時処理枠の確保、重複判定、受付枠の確保を行う。成功した場合は同時処理枠と受付枠を確保した状態で戻る。
+     */
+    private void acquire(SimpleApplicationRequest request, String idempotencyKey) {
+        try {
+            rateLimiter.acquire(request.getApplicantId());
+        } catch (SubmissionRejectedException ex) {
+            log.debug("Submission rejected ({}). applicantId={}", ex.getReason(), request.getApplicantId());
+            auditRejected(request, ex.getReason());
+            throw ex;
+        }
+        if (!duplicateDetector.tryAcquire(idempotencyKey, request)) {
+            rateLimiter.release();
+            log.debug("Duplicate submission rejected. applicantId={}", request.getApplicantId());
+            auditRejected(request, Reason.DUPLICATE);
+            throw new DuplicateSubmissionException("Duplicate submission");
+        }
+        if (!capacity.isBookable(request.getRequestType(), request.getDesiredDate())) {
+            duplicateDetector.release(idempotencyKey, request);
+            rateLimiter.release();
+            log.debug("Submission rejected (outside booking period). requestType={}, desiredDate={}",
+                request.getRequestType(), request.getDesiredDate());
+            auditRejected(request, Reason.OUTSIDE_BOOKING_PERIOD);
+            throw new SubmissionRejectedException(Reason.OUTSIDE_BOOKING_PERIOD, null,
+                "Desired date is outside the booking period");
+        }
+        if (!capacity.tryReserve(request.getRequestType(), request.getDesiredDate())) {
+            duplicateDetector.release(idempotencyKey, request);
+            rateLimiter.release();
+            log.debug("Submission rejected (fully booked). requestType={}, desiredDate={}",
+                request.getRequestType(), request.getDesiredDate());
+            auditRejected(request, Reason.FULLY_BOOKED);
+            throw new SubmissionRejectedException(Reason.FULLY_BOOKED, null, "Desired date is fully booked");
+        }
+    }
+
+    private void auditRejected(SimpleApplicationRequest request, Reason reason) {
+        if (auditLog != null) {
+            auditLog.recordRejected(request, reason);
+        }
+    }
+
+    private SubmissionLog newSubmission(SimpleApplicationRequest request) {
+        return new SubmissionLog(nextId.getAndIncrement(), LocalDateTime.now(), request);
+    }
+
+    private void store(List<SubmissionLog> submissions) {
+        persist(submissions, SubmissionChangeFeed.Origin.SUBMITTED);
+        if (auditLog == null && log.isDebugEnabled()) {
+            for (SubmissionLog submission : submissions) {
+                log.debug("Simple application submitted. applicantId={}, requestType={}",
+                    submission.applicantId(), submission.requestType());
+            }
+        }
+    }
+
+    /**
+     * 保存した申請を監査ログへ記録する。変更フィードの後続処理として呼ばれる。
+     */
+    private void audit(SubmissionChangeFeed.Change change) {
+        auditLog.recordStored(change.origin() == SubmissionChangeFeed.Origin.IMPORTED
+            ? SubmissionAuditLog.EventType.IMPORTED
+            : SubmissionAuditLog.EventType.SUBMITTED, change.submission());
+    }
+
+    /**
+     * データベースとジャーナルへ保存してから履歴へ反映し、変更フィードへ流す。
+     * <p>
+     * データベースへの保存はトランザクションで全件か 0 件のどちらかになるため先に行い、ジャーナルへの追記は最後に行う。
+     * ジャーナルへの追記に失敗した場合はデータベースから同じ申請を削除して取り消し、どちらにも残らない状態で例外を投げる。
+     * 逆の順序では、データベースへの保存に失敗して呼び出し元が再送した申請が、ジャーナルの再生で重複して復元されてしまう。
+     * <p>
+     * 集計・画面への通知・全文検索の索引付け・監査ログへの記録は変更フィードの後続処理として別スレッドで行い、
+     * 保存処理では待たない。
+     * 変更フィードへの追加は保存が完了した後の処理のため、失敗しても記録するだけで呼び出し元へは投げない
+     * （保存済みの申請を失敗扱いにして重複判定や受付枠を解放しないようにする）。
      */
-    public void submit(SimpleApplicationRequest request) {
-        submissionLogs.add(new SubmissionLog(LocalDateTime.now(), request));
-        log.info("Simple application submitted. applicantId={}, requestType={}",
-            request.getApplicantId(), request.getRequestType());
+    private void persist(List<SubmissionLog> submissions, SubmissionChangeFeed.Origin origin) {
+        SubmissionLog[] stored = new SubmissionLog[submissions.size()];
+        snapshotLock.readLock().lock();
+        try {
+            if (jdbcStore != null) {
+                jdbcStore.appendAll(submissions);
+            }
+            if (journal != null) {
+                appendToJournal(submissions); // ディスクへの追記に失敗した申請は履歴にも残さない
+            }
+            for (int i = 0; i < submissions.size(); i++) {
+                stored[i] = shards.retain(submissions.get(i));
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+        if (!hasHistory && stored.length > 0) {
+            hasHistory = true;
+        }
+        for (SubmissionLog submission : stored) {
+            try {
+                changeFeed.publish(submission, origin);
+            } catch (RuntimeException ex) {
+                log.error("Failed to publish stored submission to the change feed. id={}", submission.id(), ex);
+            }
+        }
+    }
+
+    private void appendToJournal(List<SubmissionLog> submissions) {
+        try {
+            journal.appendAll(submissions);
+        } catch (RuntimeException ex) {
+            if (jdbcStore != null) {
+                try {
+                    jdbcStore.deleteAll(submissions);
+                } catch (RuntimeException rollbackFailure) {
+                    ex.addSuppressed(rollbackFailure);
+                    log.error("Failed to roll back {} submissions from the database after a journal failure; "
+                        + "they remain in the database only", submissions.size(), rollbackFailure);
+                }
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 保存した申請の変更フィードを返す。
+     * <p>
+     * 購読者ごとに上限 {@code app.submissions.feed.buffer-size} 件のバッファを持ち、
+     * {@link Flow.Subscription#request(long)} で要求した件数ずつ配信用スレッドから受け取る。
+     * 購読開始より前の申請と、起動時にジャーナルなどから復元した申請は配信しない（CSV 取り込みで保存した申請は配信する）。
+     * 処理が追いつかずバッファが満杯になった購読者には、その間の申請を配信しない（受付番号が飛ぶ）。
+     *
+     * @return 保存順に申請を配信する Publisher
+     */
+    public Flow.Publisher<SubmissionLog> changes() {
+        return changeFeed;
     }
 
     /**
@@ -40,19 +402,629 @@ public class ApplicationRequestService {
      * @return 登録順の新しい順で最大5件
      */
     public List<SubmissionLog> findLatest() {
-        int size = submissionLogs.size();
-        if (size == 0) {
-            return Collections.emptyList();
+        return findLatest(DEFAULT_LATEST_LIMIT);
+    }
+
+    /**
+     * 履歴の最新 {@code limit} 件を取得する。
+     * <p>
+     * {@code limit} が {@code app.submissions.latest.window-size} 以内であれば、書き込みのたびに公開している
+     * スナップショットをそのまま返すため、ロック・コピー・並べ替えを行わない。
+     *
+     * @param limit 取得件数の上限
+     * @return 登録順の新しい順で最大 {@code limit} 件（読み取り専用）
+     */
+    public List<SubmissionLog> findLatest(int limit) {
+        return shards.latest(limit);
+    }
+
+    /**
+     * 起動時に復元した履歴を履歴ストアとインデックス・全文検索の索引へ追加する。押し出された古い履歴はインデックスからも取り除く。
+     */
+    private void retain(SubmissionLog submission) {
+        shards.indexDescription(shards.retain(submission));
+    }
+
+    /**
+     * 条件に一致する履歴を新しい順にページ単位で取得する。
+     *
+     * @param query  検索条件
+     * @param offset 先頭から読み飛ばす件数
+     * @param limit  取得件数の上限
+     * @return 新しい順で最大 {@code limit} 件（読み取り専用）
+     */
+    public List<SubmissionLog> query(SubmissionQuery query, int offset, int limit) {
+        return query(query, offset, limit, true);
+    }
+
+    /**
+     * 条件に一致する履歴を指定した並び順でページ単位で取得する。
+     * <p>
+     * 画面の遅延読み込み用 DataProvider から、表示範囲・並び順・絞り込み条件をそのまま受け取る想定。
+     *
+     * @param query       検索条件
+     * @param offset      先頭から読み飛ばす件数
+     * @param limit       取得件数の上限
+     * @param newestFirst {@code true} の場合は受付番号の大きい順（新しく登録した順）、{@code false} の場合は小さい順。
+     *                    CSV で取り込んだ申請は受付日時が過去でも、取り込んだ時点の新しい受付番号の位置に並ぶ
+     * @return 最大 {@code limit} 件（読み取り専用）
+     */
+    public List<SubmissionLog> query(SubmissionQuery query, int offset, int limit, boolean newestFirst) {
+        if (jdbcStore != null) {
+            return jdbcStore.query(query, offset, limit, newestFirst);
+        }
+        if (coldStore == null) {
+            return queryHot(query, offset, limit, newestFirst);
+        }
+        // 両方の層から先頭の offset + limit 件ずつを取り出してマージする。ホット層だけで足りる場合、
+        // コールド層はそれより前に来得るブロックだけを読む
+        int window = SubmissionShards.window(offset, limit);
+        List<SubmissionLog> hot = queryHot(query, 0, window, newestFirst);
+        SubmissionLog bound = window > 0 && hot.size() >= window ? hot.get(window - 1) : null;
+        List<SubmissionLog> cold = coldStore.query(query, window, newestFirst, bound);
+        return SubmissionShards.merge(List.of(hot, cold), offset, limit, newestFirst);
+    }
+
+    /**
+     * 受付番号をカーソルにして、条件に一致する履歴を受付番号順に取得する。
+     * <p>
+     * 前のページの最後の受付番号を {@code afterId} に渡すと、その続きから返す。読み飛ばしを伴う
+     * {@link #query(SubmissionQuery, int, int, boolean)} と異なり、どれだけ深いページでも取得件数ぶんの処理で済む。
+     * ページの取得の合間に申請が追加されても、既に返した申請が次のページに重複して現れることはない。
+     *
+     * @param query       検索条件
+     * @param afterId     前のページの最後の受付番号。先頭ページは新しい順なら {@link Long#MAX_VALUE}、古い順なら 0
+     * @param limit       取得件数の上限
+     * @param newestFirst {@code true} の場合は受付番号の大きい順、{@code false} の場合は小さい順
+     * @return 最大 {@code limit} 件（読み取り専用）
+     */
+    public List<SubmissionLog> queryAfter(SubmissionQuery query, long afterId, int limit, boolean newestFirst) {
+        if (jdbcStore != null) {
+            return jdbcStore.queryAfter(query, afterId, limit, newestFirst);
+        }
+        List<SubmissionLog> hot = shards.queryAfter(query, afterId, limit, newestFirst);
+        if (coldStore == null) {
+            return hot;
+        }
+        List<SubmissionLog> cold = coldStore.queryAfter(query, afterId, limit, newestFirst);
+        return SubmissionShards.mergeById(List.of(hot, cold), limit, newestFirst);
+    }
+
+    private List<SubmissionLog> queryHot(SubmissionQuery query, int offset, int limit, boolean newestFirst) {
+        if (query.isUnfiltered()) {
+            return shards.page(offset, limit, newestFirst);
         }
-        int fromIndex = Math.max(0, size - 5);
-        List<SubmissionLog> copy = new ArrayList<>(submissionLogs.subList(fromIndex, size));
-        Collections.reverse(copy); // 新しいものを先頭に並べる
-        return copy;
+        return shards.query(query, offset, limit, newestFirst);
+    }
+
+    /**
+     * 履歴が 1 件以上あるかを返す。
+     * <p>
+     * 件数を数えずにサービスが保持するフラグを読むだけなので、画面の更新のたびに呼び出してよい。
+     */
+    public boolean hasHistory() {
+        return hasHistory;
+    }
+
+    /**
+     * 条件に一致する履歴の件数を返す。
+     */
+    public int count(SubmissionQuery query) {
+        if (jdbcStore != null) {
+            return jdbcStore.count(query);
+        }
+        if (coldStore != null) {
+            return (int) Math.min(Integer.MAX_VALUE, (long) shards.count(query) + coldStore.count(query));
+        }
+        return shards.count(query);
+    }
+
+    /**
+     * 申請区分の 1 日あたりの受付枠を返す。
+     *
+     * @return 受付枠。受付枠の無い申請区分の場合は空
+     */
+    public OptionalInt findDailyCapacity(String requestType) {
+        int limit = capacity.dailyLimit(requestType);
+        return limit < 0 ? OptionalInt.empty() : OptionalInt.of(limit);
+    }
+
+    /**
+     * 受付枠が埋まっている希望日の一覧を返す。
+     * <p>
+     * 画面のカレンダーで選択できない日を示すためのもので、日ごとに問い合わせずに一覧をまとめて取得する。
+     * 一覧は最大 1 秒ほど古い場合があるため、最終的な判定は登録時の受付枠の確保で行う。
+     *
+     * @param requestType 申請区分
+     * @return 満枠の希望日（読み取り専用）。受付枠の無い申請区分の場合は空
+     */
+    public Set<LocalDate> findFullyBookedDates(String requestType) {
+        return capacity.fullyBookedDates(requestType);
+    }
+
+    /**
+     * 申請内容詳細を全文検索し、関連度の高い順に返す。
+     * <p>
+     * 全角・半角や大文字・小文字の違い、空白は無視して比較する。検索語は 2 文字以上を指定すること。
+     * 検索の対象はメモリ上に保持している履歴だけで、コールド層やデータベースにだけ残る古い申請は含まない。
+     *
+     * @param text  検索語
+     * @param limit 取得件数の上限
+     * @return 関連度の高い順に最大 {@code limit} 件（読み取り専用）
+     */
+    public List<SubmissionSearchHit> searchDescriptions(String text, int limit) {
+        return shards.search(text, limit);
+    }
+
+    /**
+     * 受付月ごとの月次レポート（所属部署・申請区分ごとの件数とリードタイム）を返す。
+     * <p>
+     * メモリ上の履歴はシャードごと、コールド層はブロックごとに分けて並列に集計する。
+     * 締め済み（当月より前）の月は一度集計した結果を使い回すため、2 回目以降は履歴を走査しない。
+     * データベースだけに残っている（メモリ上の保持件数を超えた）申請は集計に含まない。
+     *
+     * @param month 集計対象の受付月
+     * @return 月次レポート
+     */
+    public SubmissionMonthlyReport monthlyReport(YearMonth month) {
+        return reportEngine.report(month, YearMonth.now(), () -> {
+            List<Supplier<List<SubmissionLog>>> sources = new ArrayList<>();
+            for (List<SubmissionLog> retained : shards.retainedByShard()) {
+                sources.add(() -> retained);
+            }
+            if (coldStore != null) {
+                sources.addAll(coldStore.submittedBetween(
+                    SubmissionReportEngine.startMillis(month), SubmissionReportEngine.startMillis(month.plusMonths(1))));
+            }
+            return sources;
+        });
+    }
+
+    /**
+     * 保持している履歴を古い順に指定した形式で出力ストリームへ書き出す。
+     * <p>
+     * 履歴を 1 件ずつ変換しながら書き出すため、出力件数に関わらず使用するメモリは一定である。
+     * データベースが有効な場合はデータベースの全件を、コールド層が有効な場合は両方の層を受付番号順にマージした結果を、
+     * 検索と同じ経路で受付番号をカーソルにして {@link #CURSOR_PAGE_SIZE} 件ずつ読み出す。
+     * この場合は出力中に追加された申請も、カーソルより後ろであれば含まれる。
+     * メモリ上の履歴だけの場合、出力中に追加された申請は含まない。出力ストリームは閉じないので、呼び出し側で管理すること。
+     *
+     * @param format 出力形式
+     * @param out    出力先
+     * @return 出力した件数
+     */
+    public long exportHistory(SubmissionExportFormat format, OutputStream out) throws IOException {
+        SubmissionExportWriter writer = new SubmissionExportWriter(out, format);
+        writer.writeHeader();
+        long exported = jdbcStore != null || coldStore != null ? exportByCursor(writer) : exportRetained(writer);
+        writer.flush();
+        return exported;
+    }
+
+    /**
+     * データベース、または両方の層を受付番号順にマージした検索結果を、受付番号をカーソルにして少しずつ書き出す。
+     * データベースでは主キーの範囲検索になるため、深い位置でも読み飛ばしは発生しない。
+     */
+    private long exportByCursor(SubmissionExportWriter writer) throws IOException {
+        long exported = 0;
+        long afterId = 0;
+        while (true) {
+            List<SubmissionLog> page = queryAfter(SubmissionQuery.all(), afterId, CURSOR_PAGE_SIZE, false);
+            for (SubmissionLog submission : page) {
+                writer.write(submission);
+            }
+            exported += page.size();
+            if (page.size() < CURSOR_PAGE_SIZE) {
+                return exported;
+            }
+            afterId = page.get(page.size() - 1).id();
+        }
+    }
+
+    /**
+     * メモリ上の履歴をシャードのリングバッファから直接書き出す。
+     */
+    private long exportRetained(SubmissionExportWriter writer) throws IOException {
+        long[] exported = new long[1];
+        try {
+            shards.forEachOldestFirst(submission -> {
+                try {
+                    writer.write(submission);
+                    exported[0]++;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause(); // ダウンロードの中断など。呼び出し側で扱えるよう元の例外に戻す
+        }
+        return exported[0];
+    }
+
+    /**
+     * UTF-8 の CSV から申請を一括で取り込む。
+     * <p>
+     * 入力チェックは画面からの申請と同じアノテーションで行い、エラーになった行は取り込まずに行番号とともに報告する。
+     * 移行データの取り込みを想定しているため、重複チェックとレート制限は適用しない。
+     * 入力ストリームは閉じないので、呼び出し側で管理すること。
+     *
+     * @param in CSV の入力（先頭行はヘッダ。列名はエクスポートと同じ）
+     * @return 取り込み結果
+     * @throws IOException 入力の読み込みに失敗した場合。それまでに取り込んだ申請はそのまま残る
+     */
+    public SubmissionImportResult importCsv(InputStream in) throws IOException {
+        long started = System.nanoTime();
+        SubmissionImportResult result = importer.importCsv(
+            new InputStreamReader(in, StandardCharsets.UTF_8), this::storeImported);
+        log.info("Imported {} submissions ({} rejected) in {} ms",
+            result.importedCount(), result.rejectedCount(), (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * UTF-8 の CSV ファイルから申請を非同期で一括取り込む。
+     * <p>
+     * 取り込みは取り込み専用の読み込みスレッドで投入順に実行する。ファイルは削除しないので、呼び出し側で管理すること。
+     * 返却される Future は読み込みスレッドで完了するため、UI を更新する場合は {@code UI.access} を経由すること。
+     *
+     * @param file CSV ファイル
+     * @return 取り込み結果で完了する Future。読み込みに失敗した場合は {@link UncheckedIOException} で完了する
+     * @see #importCsv(InputStream)
+     */
+    public CompletableFuture<SubmissionImportResult> importCsvAsync(Path file) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = Files.newInputStream(file)) {
+                return importCsv(in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, importer.reader());
+    }
+
+    private void storeImported(List<SubmissionImporter.ImportedRow> rows) {
+        LocalDateTime importedAt = LocalDateTime.now();
+        List<SubmissionLog> submissions = new ArrayList<>(rows.size());
+        for (SubmissionImporter.ImportedRow row : rows) {
+            LocalDateTime submittedAt = row.submittedAt() != null ? row.submittedAt() : importedAt;
+            submissions.add(new SubmissionLog(nextId.getAndIncrement(), submittedAt, row.request()));
+            // 移行データは受付枠を超えていても取り込み、件数にだけ反映する
+            capacity.record(row.request().getRequestType(), row.request().getDesiredDate());
+        }
+        // 保存が終わるまで取り込み先の月の集計をキャッシュさせず、終わったら締め済みの月も集計し直させる
+        for (SubmissionLog submission : submissions) {
+            reportEngine.beginWrite(submission.submittedAtMillis());
+        }
+        try {
+            persist(submissions, SubmissionChangeFeed.Origin.IMPORTED);
+        } finally {
+            for (SubmissionLog submission : submissions) {
+                reportEngine.endWrite(submission.submittedAtMillis());
+            }
+        }
+    }
+
+    private void restoreFromJournal(SubmissionSnapshotStore snapshotStore) {
+        long started = System.nanoTime();
+        try {
+            long fromSegment = 0;
+            int fromSnapshot = 0;
+            if (snapshotStore != null) {
+                Optional<SubmissionSnapshotStore.SnapshotState> snapshot = snapshotStore.loadLatest();
+                if (snapshot.isPresent()) {
+                    // インデックスはスナップショットに含めず、読み込んだ履歴から作り直す
+                    snapshot.get().submissions().forEach(this::retain);
+                    nextId.set(snapshot.get().nextId());
+                    fromSegment = snapshot.get().journalSegment();
+                    fromSnapshot = snapshot.get().submissions().size();
+                }
+            }
+            long replayed = journal.replay(fromSegment, submission -> {
+                if (submission.id() == SubmissionLogCodec.UNASSIGNED_ID) {
+                    // 受付番号を記録していない旧形式のレコード。旧形式は必ず新形式より前に並ぶため、
+                    // 読み込み順に採番すれば再起動のたびに同じ番号になる
+                    submission = submission.withId(nextId.getAndIncrement());
+                } else {
+                    nextId.accumulateAndGet(submission.id() + 1, Math::max);
+                }
+                retain(submission);
+            });
+            log.info("Restored {} submissions from snapshot and {} from journal in {} ms",
+                fromSnapshot, replayed, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to replay submission journal", ex);
+        }
+    }
+
+    /**
+     * データベースに保存済みの受付番号の続きから採番する。ジャーナルが無効な場合は、最新の履歴もデータベースから読み込む。
+     */
+    private void restoreFromDatabase(int retentionSize) {
+        nextId.accumulateAndGet(jdbcStore.maxId() + 1, Math::max);
+        if (journal != null) {
+            return;
+        }
+        long started = System.nanoTime();
+        List<SubmissionLog> latest = jdbcStore.query(SubmissionQuery.all(), 0, retentionSize, true);
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            retain(latest.get(i));
+        }
+        log.info("Restored {} submissions from database in {} ms",
+            latest.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * 受付枠のある申請区分について、本日以降を希望日とする登録済みの申請から件数を数え直す。
+     */
+    private void restoreCapacity() {
+        LocalDate today = LocalDate.now();
+        for (String requestType : capacity.limitedTypes()) {
+            SubmissionQuery upcoming = new SubmissionQuery(null, requestType, null, today, null);
+            for (SubmissionLog submission : query(upcoming, 0, Integer.MAX_VALUE, false)) {
+                capacity.record(submission.requestType(), submission.desiredDate());
+            }
+        }
+    }
+
+    /**
+     * 保存済みの履歴を集計に加え、再起動しても件数が 0 から数え直しにならないようにする。
+     * データベースやコールド層がある場合は、出力と同じく受付番号をカーソルにして全件を読む。
+     */
+    private void restoreStatistics(SubmissionStatistics statistics) {
+        long started = System.nanoTime();
+        if (jdbcStore == null && coldStore == null) {
+            shards.forEachOldestFirst(statistics::restore);
+        } else {
+            long afterId = 0;
+            while (true) {
+                List<SubmissionLog> page = queryAfter(SubmissionQuery.all(), afterId, CURSOR_PAGE_SIZE, false);
+                page.forEach(statistics::restore);
+                if (page.size() < CURSOR_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).id();
+            }
+        }
+        log.info("Restored submission statistics in {} ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * スナップショットに保存する状態を取り出す。
+     * <p>
+     * 取り出している間だけ保存処理を止め、ジャーナルのセグメントを切り替える。
+     * 切り替え前のセグメントの内容はすべて取り出した履歴に含まれるため、スナップショット保存後に削除できる。
+     * コールド層へ移したがまだブロックに書き出していない履歴も含め、再起動時にもう一度コールド層へ移す。
+     */
+    private SubmissionSnapshotStore.SnapshotState captureSnapshot() {
+        snapshotLock.writeLock().lock();
+        try {
+            long journalSegment = journal.rollSegment();
+            List<SubmissionLog> retained = shards.retained();
+            if (coldStore != null) {
+                List<SubmissionLog> unwritten = coldStore.unwritten();
+                if (!unwritten.isEmpty()) {
+                    List<SubmissionLog> combined = new ArrayList<>(unwritten.size() + retained.size());
+                    combined.addAll(unwritten);
+                    combined.addAll(retained);
+                    retained = Collections.unmodifiableList(combined);
+                }
+            }
+            return new SubmissionSnapshotStore.SnapshotState(journalSegment, nextId.get(), retained);
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (SubmissionBatcher batcher : batchers) {
+            batcher.close();
+        }
+        importer.close();
+        changeFeed.close();
+        reportEngine.close();
     }
 
     /**
      * 申請登録のメタデータ。
+     * <p>
+     * 履歴として大量に保持するため、コンパクトな形で格納する。受付日時はエポックミリ秒、希望日はエポック日の
+     * {@code int} で持ち、申請区分と所属部署は {@link StringDictionary} で同じ内容の文字列インスタンスを共有する。
+     * {@link SimpleApplicationRequest} は保持せず、{@link #request()} を呼び出したときに組み立てる。
+     * 検索や集計など件数の多い処理では、各項目のアクセサを使うこと。
+     * 履歴ストアに格納する際は、申請内容詳細を {@link DescriptionArena}（ヒープ外）へ移すことがある。
+     * その場合、{@link #description()} は呼び出されるたびに本文を復号する。
+     * <p>
+     * 受付日時はミリ秒未満を切り捨てて保持する（ジャーナル・データベースと同じ精度）。
      */
-    public record SubmissionLog(LocalDateTime submittedAt, SimpleApplicationRequest request) {
+    public static final class SubmissionLog {
+
+        /** 希望日が未設定であることを表すエポック日。 */
+        static final int NO_DESIRED_DATE = Integer.MIN_VALUE;
+
+        private static final StringDictionary REQUEST_TYPES = new StringDictionary(1024);
+        private static final StringDictionary DEPARTMENTS = new StringDictionary(1024);
+
+        private final long id;
+        private final long submittedAtMillis;
+        private final int desiredEpochDay;
+        private final String applicantId;
+        private final String applicantName;
+        private final String contactEmail;
+        private final String department;
+        private final String requestType;
+        /** 申請内容詳細。{@link String}、またはヒープ外に格納した場合は {@link DescriptionArena.Slice}。 */
+        private final Object description;
+
+        /**
+         * @param id          受付番号（起動をまたいで一意。ジャーナル無効時は起動ごとに 1 から採番）
+         * @param submittedAt 受付日時
+         * @param request     申請内容。値を取り出して保持し、インスタンス自体は保持しない
+         */
+        public SubmissionLog(long id, LocalDateTime submittedAt, SimpleApplicationRequest request) {
+            this(id, toEpochMillis(submittedAt), request.getApplicantId(), request.getApplicantName(),
+                request.getContactEmail(), request.getDepartment(), request.getRequestType(),
+                request.getDesiredDate() == null ? NO_DESIRED_DATE : (int) request.getDesiredDate().toEpochDay(),
+                request.getDescription());
+        }
+
+        /**
+         * 格納形式の値から直接作成する。ジャーナルの読み込みなど、申請内容の DTO を経由しない経路で使う。
+         */
+        SubmissionLog(long id, long submittedAtMillis, String applicantId, String applicantName, String contactEmail,
+                      String department, String requestType, int desiredEpochDay, String description) {
+            this.id = id;
+            this.submittedAtMillis = submittedAtMillis;
+            this.applicantId = applicantId;
+            this.applicantName = applicantName;
+            this.contactEmail = contactEmail;
+            this.department = DEPARTMENTS.canonical(department);
+            this.requestType = REQUEST_TYPES.canonical(requestType);
+            this.desiredEpochDay = desiredEpochDay;
+            this.description = description;
+        }
+
+        private SubmissionLog(SubmissionLog source, DescriptionArena.Slice description) {
+            this.id = source.id;
+            this.submittedAtMillis = source.submittedAtMillis;
+            this.applicantId = source.applicantId;
+            this.applicantName = source.applicantName;
+            this.contactEmail = source.contactEmail;
+            this.department = source.department;
+            this.requestType = source.requestType;
+            this.desiredEpochDay = source.desiredEpochDay;
+            this.description = description;
+        }
+
+        /**
+         * 受付番号だけを差し替えた履歴を返す。受付番号を持たない旧形式のジャーナルを読み込む際に使う。
+         */
+        SubmissionLog withId(long newId) {
+            return new SubmissionLog(newId, submittedAtMillis, applicantId, applicantName, contactEmail, department,
+                requestType, desiredEpochDay, description());
+        }
+
+        /**
+         * 申請内容詳細を {@code arena} へ移した履歴を返す。本文が短い場合や移動済みの場合はこのインスタンスを返す。
+         */
+        SubmissionLog withDescriptionIn(DescriptionArena arena) {
+            if (!(description instanceof String text) || text.length() < DescriptionArena.MIN_OFF_HEAP_LENGTH) {
+                return this;
+            }
+            return new SubmissionLog(this, arena.store(text));
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public LocalDateTime submittedAt() {
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(submittedAtMillis, 1000),
+                Math.floorMod(submittedAtMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+        }
+
+        /**
+         * 受付日時のエポックミリ秒（UTC とみなした値）。並べ替えなどでオブジェクトを作らずに比較するために使う。
+         */
+        long submittedAtMillis() {
+            return submittedAtMillis;
+        }
+
+        /**
+         * 申請内容を組み立てて返す。呼び出すたびに新しいインスタンスを作るため、変更しても履歴には影響しない。
+         */
+        public SimpleApplicationRequest request() {
+            SimpleApplicationRequest request = new SimpleApplicationRequest();
+            request.setApplicantId(applicantId);
+            request.setApplicantName(applicantName);
+            request.setContactEmail(contactEmail);
+            request.setDepartment(department);
+            request.setRequestType(requestType);
+            request.setDesiredDate(desiredDate());
+            request.setDescription(description());
+            return request;
+        }
+
+        public String applicantId() {
+            return applicantId;
+        }
+
+        public String applicantName() {
+            return applicantName;
+        }
+
+        public String contactEmail() {
+            return contactEmail;
+        }
+
+        public String department() {
+            return department;
+        }
+
+        public String requestType() {
+            return requestType;
+        }
+
+        public LocalDate desiredDate() {
+            return desiredEpochDay == NO_DESIRED_DATE ? null : LocalDate.ofEpochDay(desiredEpochDay);
+        }
+
+        /**
+         * 希望日のエポック日。未設定の場合は {@link #NO_DESIRED_DATE}。
+         */
+        int desiredEpochDay() {
+            return desiredEpochDay;
+        }
+
+        public String description() {
+            return description instanceof DescriptionArena.Slice slice ? slice.decode() : (String) description;
+        }
+
+        /**
+         * 申請内容詳細の UTF-8 バイト列。ヒープ外に格納している場合は文字列を経由せずにコピーする。
+         *
+         * @return 未設定の場合は {@code null}
+         */
+        byte[] descriptionUtf8() {
+            if (description instanceof DescriptionArena.Slice slice) {
+                return slice.utf8();
+            }
+            return description == null ? null : ((String) description).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof SubmissionLog that)) {
+                return false;
+            }
+            return id == that.id
+                && submittedAtMillis == that.submittedAtMillis
+                && desiredEpochDay == that.desiredEpochDay
+                && Objects.equals(applicantId, that.applicantId)
+                && Objects.equals(applicantName, that.applicantName)
+                && Objects.equals(contactEmail, that.contactEmail)
+                && Objects.equals(department, that.department)
+                && Objects.equals(requestType, that.requestType)
+                && Objects.equals(description(), that.description());
+        }
+
+        @Override
+        public int hashCode() {
+            // 申請内容詳細はヒープ外にある場合に復号が必要になるため含めない
+            return Objects.hash(id, submittedAtMillis, desiredEpochDay, applicantId, applicantName, contactEmail,
+                department, requestType);
+        }
+
+        @Override
+        public String toString() {
+            return "SubmissionLog[id=" + id + ", submittedAt=" + submittedAt() + ", applicantId=" + applicantId
+                + ", requestType=" + requestType + ", desiredDate=" + desiredDate() + "]";
+        }
+
+        private static long toEpochMillis(LocalDateTime dateTime) {
+            return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000 + dateTime.getNano() / 1_000_000;
+        }
     }
 }
@@ -0,0 +1,348 @@
+package com.example.vaadin.services;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.IDN;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+
+/**
+ * Jakarta Validation のアノテーションを起動時に一度だけ解釈し、検査処理へ変換したバリデータ。
+ * <p>
+ * Hibernate Validator は検証のたびにメタデータを辿り、違反ごとにメッセージを補間してオブジェクトを生成する。
+ * このクラスはクラスごとに 1 回だけアノテーションを読み、各フィールドの値を {@link MethodHandle} で直接読み出して
+ * 検査する。メッセージは構築時に補間済みのため、違反が無い場合は何も割り当てない。
+ * <p>
+ * 対応する制約は {@link NotNull}・{@link NotBlank}・{@link Size}・{@link Email} で、判定は Hibernate Validator と揃えている。
+ * メッセージはアノテーションに直接書いた文言のみ対応し（{@code {min}}・{@code {max}} は補間する）、
+ * リソースバンドルのキーやグループ指定、未対応の制約が付いている場合は構築時に {@link IllegalStateException} を投げる。
+ * 黙って検査を省くことはない。
+ *
+ * @param <T> 検証対象の型
+ */
+public final class CompiledBeanValidator<T> {
+
+    private static final ClassValue<CompiledBeanValidator<?>> CACHE = new ClassValue<>() {
+        @Override
+        protected CompiledBeanValidator<?> computeValue(Class<?> type) {
+            return new CompiledBeanValidator<>(type);
+        }
+    };
+
+    private final Class<T> type;
+    private final PropertyRules[] properties;
+    private final Map<String, PropertyRules> propertiesByName;
+
+    /**
+     * 指定した型のバリデータを返す。構築済みの場合は同じインスタンスを返す。
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompiledBeanValidator<T> of(Class<T> type) {
+        return (CompiledBeanValidator<T>) CACHE.get(type);
+    }
+
+    private CompiledBeanValidator(Class<T> type) {
+        this.type = type;
+        for (Annotation annotation : type.getAnnotations()) {
+            if (isConstraint(annotation)) {
+                throw unsupported("class-level constraint " + annotation.annotationType().getSimpleName());
+            }
+        }
+        List<PropertyRules> compiled = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                List<Rule> rules = compileRules(field);
+                if (!rules.isEmpty()) {
+                    compiled.add(new PropertyRules(field.getName(), getterOf(field), rules.toArray(new Rule[0])));
+                }
+            }
+        }
+        this.properties = compiled.toArray(new PropertyRules[0]);
+        Map<String, PropertyRules> byName = new HashMap<>();
+        for (PropertyRules property : properties) {
+            byName.put(property.name(), property);
+        }
+        this.propertiesByName = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * Bean 全体を検証する。
+     *
+     * @return 違反の一覧（フィールドの宣言順）。違反が無い場合は空のリスト
+     */
+    public List<Violation> validate(T bean) {
+        List<Violation> violations = null;
+        for (PropertyRules property : properties) {
+            Object value = property.read(bean);
+            for (Rule rule : property.rules()) {
+                if (!rule.check().test(value)) {
+                    if (violations == null) {
+                        violations = new ArrayList<>(2);
+                    }
+                    violations.add(new Violation(property.name(), rule.message()));
+                }
+            }
+        }
+        return violations == null ? List.of() : Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * プロパティに代入しようとしている値を検証し、最初の違反のメッセージを返す。
+     * <p>
+     * 入力欄ごとの検証（Binder）から呼び出す想定。制約の無いプロパティは常に妥当とみなす。
+     *
+     * @return 違反のメッセージ。違反が無い場合は {@code null}
+     */
+    public String firstViolation(String property, Object value) {
+        PropertyRules rules = propertiesByName.get(property);
+        if (rules == null) {
+            return null;
+        }
+        for (Rule rule : rules.rules()) {
+            if (!rule.check().test(value)) {
+                return rule.message();
+            }
+        }
+        return null;
+    }
+
+    private List<Rule> compileRules(Field field) {
+        List<Rule> rules = new ArrayList<>();
+        for (Annotation annotation : field.getAnnotations()) {
+            if (annotation instanceof NotNull notNull) {
+                requireDefaultGroup(field, notNull.groups());
+                rules.add(new Rule(value -> value != null, message(field, notNull.message(), Map.of())));
+            } else if (annotation instanceof NotBlank notBlank) {
+                requireDefaultGroup(field, notBlank.groups());
+                rules.add(new Rule(CompiledBeanValidator::isNotBlank, message(field, notBlank.message(), Map.of())));
+            } else if (annotation instanceof Size size) {
+                requireDefaultGroup(field, size.groups());
+                int min = size.min();
+                int max = size.max();
+                rules.add(new Rule(value -> {
+                    if (value == null) {
+                        return true;
+                    }
+                    int length = sizeOf(value);
+                    return length >= min && length <= max;
+                }, message(field, size.message(), Map.of("min", String.valueOf(min), "max", String.valueOf(max)))));
+            } else if (annotation instanceof Email email) {
+                requireDefaultGroup(field, email.groups());
+                rules.add(new Rule(emailCheck(email), message(field, email.message(), Map.of())));
+            } else if (isConstraint(annotation)) {
+                throw unsupported(annotation.annotationType().getSimpleName() + " on " + field.getName());
+            }
+        }
+        return rules;
+    }
+
+    private void requireDefaultGroup(Field field, Class<?>[] groups) {
+        if (groups.length > 0) {
+            throw unsupported("validation groups on " + field.getName());
+        }
+    }
+
+    private String message(Field field, String template, Map<String, String> parameters) {
+        StringBuilder message = new StringBuilder(template.length());
+        int position = 0;
+        while (position < template.length()) {
+            int open = template.indexOf('{', position);
+            if (open < 0) {
+                message.append(template, position, template.length());
+                break;
+            }
+            int close = template.indexOf('}', open);
+            String key = close < 0 ? null : template.substring(open + 1, close);
+            if (key == null || !parameters.containsKey(key)) {
+                throw unsupported("message template \"" + template + "\" on " + field.getName());
+            }
+            message.append(template, position, open).append(parameters.get(key));
+            position = close + 1;
+        }
+        return message.toString();
+    }
+
+    private IllegalStateException unsupported(String what) {
+        return new IllegalStateException("Unsupported " + what + " in " + type.getName());
+    }
+
+    private static boolean isConstraint(Annotation annotation) {
+        return annotation.annotationType().isAnnotationPresent(Constraint.class);
+    }
+
+    private static MethodHandle getterOf(Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalStateException("Cannot access field " + field, ex);
+        }
+    }
+
+    /**
+     * Hibernate Validator と同じく、{@link String#trim()} で取り除かれない文字が 1 つでもあれば空白ではないとみなす。
+     */
+    private static boolean isNotBlank(Object value) {
+        if (!(value instanceof CharSequence text)) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int sizeOf(Object value) {
+        if (value instanceof CharSequence text) {
+            return text.length();
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        throw new IllegalArgumentException("@Size is not applicable to " + value.getClass().getName());
+    }
+
+    private static Predicate<Object> emailCheck(Email email) {
+        java.util.regex.Pattern additional = null;
+        if (!".*".equals(email.regexp())) {
+            int flags = 0;
+            for (Pattern.Flag flag : email.flags()) {
+                flags |= flag.getValue();
+            }
+            additional = java.util.regex.Pattern.compile(email.regexp(), flags);
+        }
+        java.util.regex.Pattern additionalPattern = additional;
+        return value -> {
+            if (value == null) {
+                return true;
+            }
+            String text = value.toString();
+            if (!EmailSyntax.isValid(text)) {
+                return false;
+            }
+            return additionalPattern == null || text.isEmpty() || additionalPattern.matcher(text).matches();
+        };
+    }
+
+    /**
+     * 違反の内容。
+     *
+     * @param property 違反したプロパティ名
+     * @param message  メッセージ（補間済み）
+     */
+    public record Violation(String property, String message) {
+    }
+
+    private record Rule(Predicate<Object> check, String message) {
+    }
+
+    private record PropertyRules(String name, MethodHandle getter, Rule[] rules) {
+
+        Object read(Object bean) {
+            try {
+                return (Object) getter.invokeExact(bean);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Failed to read property " + name, ex);
+            }
+        }
+    }
+
+    /**
+     * {@link Email} の既定の判定。Hibernate Validator（AbstractEmailValidator / DomainNameUtil）と同じ規則で、
+     * 空文字は妥当とみなす。
+     */
+    private static final class EmailSyntax {
+
+        private static final int MAX_LOCAL_PART_LENGTH = 64;
+        private static final int MAX_DOMAIN_PART_LENGTH = 255;
+
+        private static final String LOCAL_PART_ATOM = "[a-z0-9!#$%&'*+/=?^_`{|}~\u0080-\uFFFF-]";
+        private static final String LOCAL_PART_INSIDE_QUOTES_ATOM =
+            "(?:[a-z0-9!#$%&'*.(),<>\\[\\]:;  @+/=?^_`{|}~\u0080-\uFFFF-]|\\\\\\\\|\\\\\")";
+        private static final java.util.regex.Pattern LOCAL_PART_PATTERN = java.util.regex.Pattern.compile(
+            "(?:" + LOCAL_PART_ATOM + "+|\"" + LOCAL_PART_INSIDE_QUOTES_ATOM + "+\")"
+                + "(?:\\.(?:" + LOCAL_PART_ATOM + "+|\"" + LOCAL_PART_INSIDE_QUOTES_ATOM + "+\"))*",
+            java.util.regex.Pattern.CASE_INSENSITIVE);
+
+        private static final String DOMAIN_CHARS_WITHOUT_DASH = "[a-z\u0080-\uFFFF0-9!#$%&'*+/=?^_`{|}~]";
+        private static final String DOMAIN_LABEL = "(?:" + DOMAIN_CHARS_WITHOUT_DASH + "-*)*" + DOMAIN_CHARS_WITHOUT_DASH + "+";
+        private static final String DOMAIN = DOMAIN_LABEL + "+(?:\\." + DOMAIN_LABEL + "+)*";
+        private static final String IP_DOMAIN = "[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}\\.[0-9]{1,3}";
+        private static final String IP_V6_DOMAIN = "(?:(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,7}:"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,6}:[0-9a-fA-F]{1,4}"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,5}(?::[0-9a-fA-F]{1,4}){1,2}"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,4}(?::[0-9a-fA-F]{1,4}){1,3}"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,3}(?::[0-9a-fA-F]{1,4}){1,4}"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,2}(?::[0-9a-fA-F]{1,4}){1,5}"
+            + "|[0-9a-fA-F]{1,4}:(?:(?::[0-9a-fA-F]{1,4}){1,6})"
+            + "|:(?:(?::[0-9a-fA-F]{1,4}){1,7}|:)"
+            + "|fe80:(?::[0-9a-fA-F]{0,4}){0,4}%[0-9a-zA-Z]{1,}"
+            + "|::(?:ffff(?::0{1,4}){0,1}:){0,1}(?:(?:25[0-5]|(?:2[0-4]|1{0,1}[0-9]){0,1}[0-9])\\.){3}"
+            + "(?:25[0-5]|(?:2[0-4]|1{0,1}[0-9]){0,1}[0-9])"
+            + "|(?:[0-9a-fA-F]{1,4}:){1,4}:(?:(?:25[0-5]|(?:2[0-4]|1{0,1}[0-9]){0,1}[0-9])\\.){3}"
+            + "(?:25[0-5]|(?:2[0-4]|1{0,1}[0-9]){0,1}[0-9]))";
+        private static final java.util.regex.Pattern DOMAIN_PATTERN = java.util.regex.Pattern.compile(
+            DOMAIN + "|\\[" + IP_DOMAIN + "\\]|\\[IPv6:" + IP_V6_DOMAIN + "\\]",
+            java.util.regex.Pattern.CASE_INSENSITIVE);
+
+        static boolean isValid(String value) {
+            if (value.isEmpty()) {
+                return true;
+            }
+            int split = value.lastIndexOf('@');
+            if (split < 0) {
+                return false;
+            }
+            String localPart = value.substring(0, split);
+            String domainPart = value.substring(split + 1);
+            if (localPart.length() > MAX_LOCAL_PART_LENGTH || !LOCAL_PART_PATTERN.matcher(localPart).matches()) {
+                return false;
+            }
+            if (domainPart.endsWith(".")) {
+                return false;
+            }
+            Matcher matcher = DOMAIN_PATTERN.matcher(domainPart);
+            if (!matcher.matches()) {
+                return false;
+            }
+            try {
+                return IDN.toASCII(domainPart, IDN.ALLOW_UNASSIGNED).length() <= MAX_DOMAIN_PART_LENGTH;
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.vaadin.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 申請内容詳細の本文をヒープ外（ダイレクト {@link ByteBuffer}）に UTF-8 で格納する領域。
+ * <p>
+ * 本文は固定長のチャンクへ先頭から詰めて追記し、履歴側は {@link Slice}（チャンクへの参照・位置・長さ）だけを持つ。
+ * 本文は GC の走査対象にならないため、保持件数が多くてもヒープ使用量と GC の停止時間が本文の量に比例しない。
+ * <p>
+ * 領域の明示的な解放は行わない。チャンクは {@link Slice} から参照されている間だけ生存し、押し出しで
+ * そのチャンクを指す履歴がすべて到達不能になると、GC によってダイレクトバッファごと解放される。
+ * 履歴は古い順に押し出されるため、チャンクもおおむね古い順に解放される。
+ * <p>
+ * 追記は同じ領域に対して排他的に行う。読み出しは絶対位置指定のみを使い、バッファの位置を変更しないため、
+ * 履歴の公開（リングバッファへの書き込み）以降は任意のスレッドからロックなしで読める。
+ */
+final class DescriptionArena {
+
+    /** これより短い本文は {@link Slice} の方が大きくなるため、ヒープに残す（文字数）。 */
+    static final int MIN_OFF_HEAP_LENGTH = 16;
+
+    private final int chunkSize;
+
+    /** 追記ロック保護: 追記中のチャンク。 */
+    private ByteBuffer current;
+    private long allocatedBytes;
+
+    /**
+     * @param chunkSize 1 つのチャンクのバイト数。これより長い本文は専用のバッファに格納する
+     */
+    DescriptionArena(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 本文を追記し、参照を返す。
+     */
+    Slice store(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer chunk = current;
+            if (chunk == null || chunk.remaining() < utf8.length) {
+                chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, utf8.length));
+                allocatedBytes += chunk.capacity();
+                if (utf8.length <= chunkSize) {
+                    current = chunk;
+                }
+            }
+            int offset = chunk.position();
+            chunk.put(utf8);
+            return new Slice(chunk, offset, utf8.length);
+        }
+    }
+
+    /**
+     * これまでに確保したダイレクトバッファの延べバイト数（解放済みのチャンクを含む）。
+     */
+    synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * ヒープ外に格納した本文への参照。
+     */
+    static final class Slice {
+        private final ByteBuffer chunk;
+        private final int offset;
+        private final int length;
+
+        private Slice(ByteBuffer chunk, int offset, int length) {
+            this.chunk = chunk;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * 本文の UTF-8 バイト列をコピーして返す。
+         */
+        byte[] utf8() {
+            byte[] bytes = new byte[length];
+            chunk.get(offset, bytes);
+            return bytes;
+        }
+
+        /**
+         * 本文を復号して返す。呼び出すたびに新しい文字列を作る。
+         */
+        String decode() {
+            return new String(utf8(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 申請内容詳細（description）を対象にした文字 bi-gram の転置インデックス。
+ * <p>
+ * 日本語は単語の区切りが無いため、NFKC 正規化・小文字化・空白除去を行った文字列を
+ * 2 文字ずつずらして切り出した bi-gram を索引語とする。各索引語のポスティングリストは
+ * 受付番号の昇順に並べ、差分と出現回数を可変長整数で詰めたブロックの列として持つ。
+ * <p>
+ * 検索時は出現文書数の最も少ない索引語のポスティングだけを復号し、残りの索引語とは短い順に、
+ * ブロックのスキップ表で読み飛ばしながら積集合を取る。候補が無くなった時点で打ち切る。
+ * 絞り込んだ候補は、正規化後の本文が検索語を含むことを確認してから tf-idf の合計でランク付けする。
+ * <p>
+ * 索引の対象はメモリ上の履歴（ホット層）だけである。履歴から押し出された申請（コールド層へ移したものを含む）は
+ * 文書表から即座に外し、ポスティングからは不要な件数が溜まった時点でまとめて取り除く。
+ */
+class DescriptionSearchIndex {
+
+    /** 削除済み文書がこの割合を超えたらポスティングを作り直す。 */
+    private static final double COMPACTION_RATIO = 0.5;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** ロック保護: 索引語（2 文字を 1 つの int に詰めた値）ごとのポスティング。 */
+    private final Map<Integer, PostingList> postings = new HashMap<>();
+    /** ロック保護: 検索対象として有効な文書。 */
+    private final Map<Long, SubmissionLog> documents = new HashMap<>();
+    private long removedSinceCompaction;
+
+    void add(SubmissionLog submission) {
+        String text = normalize(submission.description());
+        if (text.length() < 2) {
+            return;
+        }
+        Map<Integer, Integer> termFrequencies = termFrequencies(text);
+        lock.writeLock().lock();
+        try {
+            documents.put(submission.id(), submission);
+            termFrequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new PostingList()).append(submission.id(), frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(SubmissionLog submission) {
+        lock.writeLock().lock();
+        try {
+            if (documents.remove(submission.id()) == null) {
+                return;
+            }
+            removedSinceCompaction++;
+            if (removedSinceCompaction > documents.size() * COMPACTION_RATIO) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 本文に検索語を含む申請を関連度の高い順に返す。
+     *
+     * @param query 検索語（2 文字以上。空白は無視する）
+     * @param limit 取得件数の上限
+     */
+    List<SubmissionSearchHit> search(String query, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.length() < 2 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Integer> queryTerms = termFrequencies(normalizedQuery);
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(queryTerms.size());
+            for (Integer term : queryTerms.keySet()) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(list);
+            }
+            lists.sort((left, right) -> Integer.compare(left.count, right.count));
+
+            // 最も短いポスティングだけを復号し、残りは短い順にスキップ表で必要なブロックへ読み飛ばしながら絞り込む
+            DecodedPostings candidates = lists.get(0).decode();
+            double[] scores = new double[candidates.size];
+            double documentCount = Math.max(1, documents.size());
+            addScores(candidates, scores, documentCount, lists.get(0).count);
+            for (int i = 1; i < lists.size() && candidates.size > 0; i++) {
+                candidates = intersect(candidates, lists.get(i), scores, documentCount);
+            }
+
+            List<SubmissionSearchHit> hits = new ArrayList<>();
+            for (int i = 0; i < candidates.size; i++) {
+                SubmissionLog submission = documents.get(candidates.ids[i]);
+                if (submission != null && normalize(submission.description()).contains(normalizedQuery)) {
+                    hits.add(new SubmissionSearchHit(submission, scores[i]));
+                }
+            }
+            hits.sort((left, right) -> {
+                int byScore = Double.compare(right.score(), left.score());
+                return byScore != 0 ? byScore : Long.compare(right.submission().id(), left.submission().id());
+            });
+            return Collections.unmodifiableList(hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 削除済み文書をポスティングから取り除く。書き込みロックを保持した状態で呼び出すこと。
+     */
+    private void compact() {
+        Map<Integer, PostingList> rebuilt = new HashMap<>();
+        postings.forEach((term, list) -> {
+            DecodedPostings decoded = list.decode();
+            PostingList live = new PostingList(); // 受付番号順に追記するため、ブロックの組み直しは起きない
+            for (int i = 0; i < decoded.size; i++) {
+                if (documents.containsKey(decoded.ids[i])) {
+                    live.append(decoded.ids[i], decoded.frequencies[i]);
+                }
+            }
+            if (live.count > 0) {
+                rebuilt.put(term, live);
+            }
+        });
+        postings.clear();
+        postings.putAll(rebuilt);
+        removedSinceCompaction = 0;
+    }
+
+    private static void addScores(DecodedPostings postings, double[] scores, double documentCount,
+                                  int documentFrequency) {
+        double idf = Math.log(1 + documentCount / documentFrequency);
+        for (int i = 0; i < postings.size; i++) {
+            scores[i] += postings.frequencies[i] * idf;
+        }
+    }
+
+    /**
+     * 候補を {@code other} にも含まれるものだけに絞り込み、{@code scores} を詰め直して加点する。
+     * 候補は受付番号の昇順に並ぶため、{@code other} は前へ戻らずに読み進めるだけでよい。
+     */
+    private static DecodedPostings intersect(DecodedPostings candidates, PostingList other, double[] scores,
+                                             double documentCount) {
+        double idf = Math.log(1 + documentCount / other.count);
+        PostingList.Cursor cursor = other.cursor();
+        int size = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            long id = candidates.ids[i];
+            if (!cursor.advance(id)) {
+                break; // 残りの候補はどれも other の最後の受付番号より大きい
+            }
+            if (cursor.id() == id) {
+                candidates.ids[size] = id;
+                candidates.frequencies[size] = candidates.frequencies[i];
+                scores[size] = scores[i] + cursor.frequency() * idf; // size <= i のため上書きしても安全
+                size++;
+            }
+        }
+        return new DecodedPostings(candidates.ids, candidates.frequencies, size);
+    }
+
+    private static Map<Integer, Integer> termFrequencies(String text) {
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        for (int i = 0; i + 1 < text.length(); i++) {
+            int term = (text.charAt(i) << 16) | text.charAt(i + 1);
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    static String normalize(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 受付番号の昇順に並べたポスティングリスト。
+     * <p>
+     * {@link #BLOCK_SIZE} 件ごとのブロックに分け、各ブロックは受付番号の差分と出現回数を可変長整数で詰めたバイト列で持つ。
+     * 受付番号は概ね昇順に届くため差分は小さく、1 件あたり 2〜3 バイトに収まる。
+     * ブロックごとの最初と最後の受付番号をスキップ表として持ち、積集合では該当しないブロックを復号せずに読み飛ばす。
+     * <p>
+     * 非同期受付との兼ね合いで受付番号が前後して届いた場合は、追記の時点で該当するブロックだけを組み直して順序を保つ。
+     * 検索のたびに並べ替えることはない。
+     */
+    private static final class PostingList {
+        private static final int BLOCK_SIZE = 128;
+
+        private Block[] blocks = new Block[1];
+        private int blockCount;
+        private int count;
+
+        void append(long id, int frequency) {
+            Block last = blockCount == 0 ? null : blocks[blockCount - 1];
+            if (last != null && id < last.lastId) {
+                insert(id, frequency);
+            } else {
+                if (last == null || last.count == BLOCK_SIZE) {
+                    last = new Block(id);
+                    insertBlock(blockCount, last);
+                }
+                last.append(id, frequency);
+            }
+            count++;
+        }
+
+        /**
+         * 受付番号が前後して届いた場合に、該当するブロックを復号して正しい位置へ差し込み、詰め直す。
+         */
+        private void insert(long id, int frequency) {
+            int index = firstBlockEndingAtOrAfter(id, 0);
+            Block block = blocks[index];
+            long[] ids = new long[block.count + 1];
+            int[] frequencies = new int[block.count + 1];
+            block.decodeInto(ids, frequencies, 0);
+            int position = Arrays.binarySearch(ids, 0, block.count, id);
+            position = position < 0 ? -position - 1 : position;
+            System.arraycopy(ids, position, ids, position + 1, block.count - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, block.count - position);
+            ids[position] = id;
+            frequencies[position] = frequency;
+
+            int size = ids.length;
+            if (size <= BLOCK_SIZE) {
+                blocks[index] = Block.of(ids, frequencies, 0, size);
+            } else {
+                int half = size / 2;
+                blocks[index] = Block.of(ids, frequencies, 0, half);
+                insertBlock(index + 1, Block.of(ids, frequencies, half, size));
+            }
+        }
+
+        private void insertBlock(int index, Block block) {
+            if (blockCount == blocks.length) {
+                blocks = Arrays.copyOf(blocks, blocks.length * 2);
+            }
+            System.arraycopy(blocks, index, blocks, index + 1, blockCount - index);
+            blocks[index] = block;
+            blockCount++;
+        }
+
+        /**
+         * {@code from} 番目以降で、最後の受付番号が {@code id} 以上の最初のブロックを二分探索で探す。
+         *
+         * @return ブロックの添字。該当するブロックが無い場合は {@code blockCount}
+         */
+        private int firstBlockEndingAtOrAfter(long id, int from) {
+            int low = from;
+            int high = blockCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (blocks[middle].lastId < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        DecodedPostings decode() {
+            long[] ids = new long[count];
+            int[] frequencies = new int[count];
+            int offset = 0;
+            for (int i = 0; i < blockCount; i++) {
+                offset = blocks[i].decodeInto(ids, frequencies, offset);
+            }
+            return new DecodedPostings(ids, frequencies, count);
+        }
+
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        /**
+         * 受付番号の昇順に読み進めるカーソル。復号するのは読み進めた先のブロックだけ。
+         */
+        final class Cursor {
+            private final long[] ids = new long[BLOCK_SIZE];
+            private final int[] frequencies = new int[BLOCK_SIZE];
+            private int block = -1;
+            private int size;
+            private int position;
+
+            /**
+             * {@code target} 以上の最初の受付番号まで進む。
+             *
+             * @return 進めた場合は {@code true}。{@code target} 以上の受付番号が無い場合は {@code false}
+             */
+            boolean advance(long target) {
+                if (block < 0 || blocks[block].lastId < target) {
+                    int next = firstBlockEndingAtOrAfter(target, block + 1);
+                    if (next == blockCount) {
+                        return false;
+                    }
+                    block = next;
+                    size = blocks[next].decodeInto(ids, frequencies, 0);
+                    position = 0;
+                }
+                while (ids[position] < target) {
+                    position++;
+                }
+                return true;
+            }
+
+            long id() {
+                return ids[position];
+            }
+
+            int frequency() {
+                return frequencies[position];
+            }
+        }
+    }
+
+    /**
+     * ポスティングの 1 ブロック。受付番号は昇順で、先頭からの差分として詰める。
+     */
+    private static final class Block {
+        private byte[] data = new byte[16];
+        private int length;
+        private int count;
+        private final long firstId;
+        private long lastId;
+
+        Block(long firstId) {
+            this.firstId = firstId;
+            this.lastId = firstId;
+        }
+
+        static Block of(long[] ids, int[] frequencies, int from, int to) {
+            Block block = new Block(ids[from]);
+            for (int i = from; i < to; i++) {
+                block.append(ids[i], frequencies[i]);
+            }
+            return block;
+        }
+
+        void append(long id, int frequency) {
+            ensureCapacity(10 + 5);
+            putVarLong(id - lastId);
+            putVarLong(frequency);
+            lastId = id;
+            count++;
+        }
+
+        /**
+         * 復号した受付番号と出現回数を {@code offset} 番目から書き込む。
+         *
+         * @return 書き込んだ後の位置
+         */
+        int decodeInto(long[] ids, int[] frequencies, int offset) {
+            int position = 0;
+            long id = firstId;
+            for (int i = 0; i < count; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                id += delta;
+                int frequency = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    frequency |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                ids[offset + i] = id;
+                frequencies[offset + i] = frequency;
+            }
+            return offset + count;
+        }
+
+        private void putVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + additional));
+            }
+        }
+    }
+
+    /**
+     * 復号したポスティング。受付番号の昇順に並ぶ。
+     */
+    private static final class DecodedPostings {
+        private final long[] ids;
+        private final int[] frequencies;
+        private final int size;
+
+        DecodedPostings(long[] ids, int[] frequencies, int size) {
+            this.ids = ids;
+            this.frequencies = frequencies;
+            this.size = size;
+        }
+    }
+}
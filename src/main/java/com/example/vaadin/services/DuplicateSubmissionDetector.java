@@ -0,0 +1,228 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 二重送信を検出する。
+ * <p>
+ * フォームごとに払い出す冪等キーと、申請内容のフィンガープリント（SHA-256）の両方を記録し、
+ * どちらかが直近に登録済みであれば重複とみなす。判定は次の 2 段階で行い、履歴は走査しない。
+ * <ol>
+ *   <li>ブルームフィルタ: 「確実に未登録」と分かる大半の申請は、キャッシュを参照せずに通過させる</li>
+ *   <li>直近キーのキャッシュ: フィルタが「登録済みかもしれない」と答えた場合に完全一致で確認する</li>
+ * </ol>
+ * 同時に届いた同一申請の競合は、キャッシュへの {@code putIfAbsent} で 1 件だけを受理して解決する。
+ * キャッシュは保持期間と件数の上限を超えた古いキーから削除し、ブルームフィルタは
+ * 上限件数ごとに世代を切り替えて誤検知率が上がり続けないようにする。
+ */
+class DuplicateSubmissionDetector {
+
+    private static final int BLOOM_HASHES = 5;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+
+    private final long windowNanos;
+    private final int capacity;
+
+    private final ConcurrentHashMap<Digest, Long> recentKeys = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<RecentKey> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    private volatile BloomFilter currentFilter;
+    private volatile BloomFilter previousFilter;
+
+    /**
+     * @param windowSeconds 同一申請を重複とみなす期間（秒）
+     * @param capacity      記録しておくキーの上限件数
+     */
+    DuplicateSubmissionDetector(long windowSeconds, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.windowNanos = windowSeconds * 1_000_000_000L;
+        this.capacity = capacity;
+        this.currentFilter = new BloomFilter(capacity);
+        this.previousFilter = new BloomFilter(capacity);
+    }
+
+    /**
+     * 申請を記録する。既に同じ冪等キーまたは同じ内容の申請が記録されている場合は何もしない。
+     *
+     * @param idempotencyKey フォームごとの冪等キー。{@code null} の場合は内容のみで判定する
+     * @param request        申請内容
+     * @return 新規に記録できた場合は {@code true}、重複の場合は {@code false}
+     */
+    boolean tryAcquire(String idempotencyKey, SimpleApplicationRequest request) {
+        long now = System.nanoTime();
+        evictExpired(now);
+
+        Digest keyDigest = idempotencyKey == null ? null : Digest.ofKey(idempotencyKey);
+        Digest contentDigest = Digest.ofContent(request);
+        if ((keyDigest != null && isRecent(keyDigest, now)) || isRecent(contentDigest, now)) {
+            return false;
+        }
+        if (keyDigest != null && !record(keyDigest, now)) {
+            return false;
+        }
+        if (!record(contentDigest, now)) {
+            if (keyDigest != null) {
+                recentKeys.remove(keyDigest);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * {@link #tryAcquire} で記録したキーを取り消す。保存に失敗した申請を再送できるようにするために使う。
+     */
+    void release(String idempotencyKey, SimpleApplicationRequest request) {
+        if (idempotencyKey != null) {
+            recentKeys.remove(Digest.ofKey(idempotencyKey));
+        }
+        recentKeys.remove(Digest.ofContent(request));
+    }
+
+    private boolean isRecent(Digest digest, long now) {
+        if (!currentFilter.mightContain(digest) && !previousFilter.mightContain(digest)) {
+            return false;
+        }
+        Long recordedAt = recentKeys.get(digest);
+        return recordedAt != null && now - recordedAt < windowNanos;
+    }
+
+    private boolean record(Digest digest, long now) {
+        Long existing = recentKeys.putIfAbsent(digest, now);
+        if (existing != null) {
+            if (now - existing < windowNanos || !recentKeys.replace(digest, existing, now)) {
+                return false;
+            }
+        }
+        insertionOrder.add(new RecentKey(digest, now));
+        BloomFilter filter = currentFilter;
+        filter.add(digest);
+        if (filter.isFull()) {
+            rotate(filter);
+        }
+        return true;
+    }
+
+    private synchronized void rotate(BloomFilter full) {
+        if (currentFilter == full) {
+            previousFilter = full;
+            currentFilter = new BloomFilter(capacity);
+        }
+    }
+
+    private void evictExpired(long now) {
+        RecentKey oldest;
+        while ((oldest = insertionOrder.peek()) != null
+            && (now - oldest.recordedAt() >= windowNanos || recentKeys.size() > capacity)) {
+            if (insertionOrder.remove(oldest)) {
+                recentKeys.remove(oldest.digest(), oldest.recordedAt());
+            }
+        }
+    }
+
+    private record RecentKey(Digest digest, long recordedAt) {
+    }
+
+    /**
+     * キーまたは申請内容の SHA-256 ダイジェスト。
+     */
+    private record Digest(long h1, long h2, long h3, long h4) {
+
+        private static final char SEPARATOR = '\u0000';
+
+        /** 申請のたびに生成しないよう、スレッドごとに使い回す（{@code digest} の呼び出しで状態は初期化される）。 */
+        private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 is not available", ex);
+            }
+        });
+
+        static Digest ofKey(String idempotencyKey) {
+            return of("K" + SEPARATOR + idempotencyKey);
+        }
+
+        static Digest ofContent(SimpleApplicationRequest request) {
+            LocalDate desiredDate = request.getDesiredDate();
+            String canonical = "C" + SEPARATOR + request.getApplicantId()
+                + SEPARATOR + request.getApplicantName()
+                + SEPARATOR + request.getContactEmail()
+                + SEPARATOR + request.getDepartment()
+                + SEPARATOR + request.getRequestType()
+                + SEPARATOR + (desiredDate == null ? "" : desiredDate.toString())
+                + SEPARATOR + request.getDescription();
+            return of(canonical);
+        }
+
+        private static Digest of(String value) {
+            byte[] hash = SHA_256.get().digest(value.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer buffer = ByteBuffer.wrap(hash);
+            return new Digest(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    /**
+     * ロックを使わないブルームフィルタ。ビットの設定は CAS で行う。
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int expectedInsertions;
+        private final AtomicInteger insertions = new AtomicInteger();
+
+        BloomFilter(int expectedInsertions) {
+            long bits = Math.max(64L, (long) expectedInsertions * BLOOM_BITS_PER_ENTRY);
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+            this.bitCount = words.length() * 64L;
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        void add(Digest digest) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = bitIndex(digest, i);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, current, current | mask));
+            }
+            insertions.incrementAndGet();
+        }
+
+        boolean mightContain(Digest digest) {
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = bitIndex(digest, i);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isFull() {
+            return insertions.get() >= expectedInsertions;
+        }
+
+        private long bitIndex(Digest digest, int i) {
+            // ダイジェストの 2 つの 64 ビット値から k 個のハッシュを合成する（double hashing）
+            return Math.floorMod(digest.h1() + i * digest.h2(), bitCount);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.vaadin.services;
+
+import java.time.Duration;
+
+/**
+ * 同じフォームからの再送信や、直近に受け付けた申請と同一内容の申請を拒否したことを表す例外。
+ */
+public class DuplicateSubmissionException extends SubmissionRejectedException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateSubmissionException(String message) {
+        super(Reason.DUPLICATE, Duration.ZERO, message);
+    }
+}
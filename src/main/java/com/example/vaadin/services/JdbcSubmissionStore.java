@@ -0,0 +1,352 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 申請履歴を組み込みデータベース（既定はファイルモードの H2）へ保存するストア。
+ * <p>
+ * 書き込みは 1 回の保存処理ぶんを 1 トランザクションにまとめ、{@link #ROWS_PER_INSERT} 行ずつの複数行 INSERT を
+ * バッチ実行する。接続は HikariCP のコネクションプールから借りて返すため、呼び出しごとに接続を作らない。
+ * <p>
+ * 絞り込み条件の各列には {@code (列, id)} の複合インデックスを張っており、「条件に一致する新しい順の N 件」は
+ * インデックスを逆順に辿るだけで返る。メモリ上の履歴と異なり保持件数の上限は無い。
+ * <p>
+ * {@code app.submissions.jdbc.enabled=true} の場合のみ Bean として登録される。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.submissions.jdbc", name = "enabled", havingValue = "true")
+public class JdbcSubmissionStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcSubmissionStore.class);
+
+    /** 1 つの INSERT 文にまとめる行数。 */
+    static final int ROWS_PER_INSERT = 64;
+
+    private static final String COLUMNS = "id, submitted_at, applicant_id, applicant_name, contact_email, "
+        + "department, request_type, desired_date, description";
+    private static final int COLUMN_COUNT = 9;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS submission ("
+            + "id BIGINT PRIMARY KEY, "
+            + "submitted_at TIMESTAMP NOT NULL, "
+            + "applicant_id VARCHAR, "
+            + "applicant_name VARCHAR, "
+            + "contact_email VARCHAR, "
+            + "department VARCHAR, "
+            + "request_type VARCHAR, "
+            + "desired_date DATE, "
+            + "description VARCHAR)",
+        "CREATE INDEX IF NOT EXISTS submission_applicant_id_idx ON submission (applicant_id, id)",
+        "CREATE INDEX IF NOT EXISTS submission_request_type_idx ON submission (request_type, id)",
+        "CREATE INDEX IF NOT EXISTS submission_department_idx ON submission (department, id)",
+        "CREATE INDEX IF NOT EXISTS submission_desired_date_idx ON submission (desired_date, id)"
+    };
+
+    private static final String MULTI_ROW_INSERT = insertStatement(ROWS_PER_INSERT);
+    private static final String SINGLE_ROW_INSERT = insertStatement(1);
+
+    private final HikariDataSource dataSource;
+
+    public JdbcSubmissionStore(
+        @Value("${app.submissions.jdbc.url:jdbc:h2:file:./data/submissions}") String url,
+        @Value("${app.submissions.jdbc.username:sa}") String username,
+        @Value("${app.submissions.jdbc.password:}") String password,
+        @Value("${app.submissions.jdbc.pool-size:8}") int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(1);
+        config.setPoolName("submission-store");
+        config.setAutoCommit(true);
+        this.dataSource = new HikariDataSource(config);
+        try {
+            createSchema();
+        } catch (RuntimeException ex) {
+            dataSource.close();
+            throw ex;
+        }
+        log.info("Opened submission store {}", url);
+    }
+
+    /**
+     * 申請を 1 トランザクションでまとめて保存する。
+     *
+     * @throws IllegalStateException 保存に失敗した場合（いずれの申請も保存されない）
+     */
+    public void appendAll(List<SubmissionLog> submissions) {
+        if (submissions.isEmpty()) {
+            return;
+        }
+        int fullStatements = submissions.size() / ROWS_PER_INSERT;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (fullStatements > 0) {
+                    try (PreparedStatement insert = connection.prepareStatement(MULTI_ROW_INSERT)) {
+                        for (int i = 0; i < fullStatements; i++) {
+                            int parameter = 1;
+                            for (int row = i * ROWS_PER_INSERT; row < (i + 1) * ROWS_PER_INSERT; row++) {
+                                parameter = bind(insert, parameter, submissions.get(row));
+                            }
+                            insert.addBatch();
+                        }
+                        insert.executeBatch();
+                    }
+                }
+                if (submissions.size() > fullStatements * ROWS_PER_INSERT) {
+                    try (PreparedStatement insert = connection.prepareStatement(SINGLE_ROW_INSERT)) {
+                        for (int row = fullStatements * ROWS_PER_INSERT; row < submissions.size(); row++) {
+                            bind(insert, 1, submissions.get(row));
+                            insert.addBatch();
+                        }
+                        insert.executeBatch();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to store submissions", ex);
+        }
+    }
+
+    /**
+     * 保存済みの申請を受付番号で 1 トランザクションにまとめて削除する。
+     * 保存後の処理（ジャーナルへの追記など）に失敗した申請を取り消すために使う。
+     *
+     * @throws IllegalStateException 削除に失敗した場合（いずれの申請も削除されない）
+     */
+    public void deleteAll(List<SubmissionLog> submissions) {
+        if (submissions.isEmpty()) {
+            return;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM submission WHERE id = ?")) {
+                for (SubmissionLog submission : submissions) {
+                    delete.setLong(1, submission.id());
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to delete submissions", ex);
+        }
+    }
+
+    /**
+     * 条件に一致する申請を受付番号順にページ単位で取得する。
+     *
+     * @param newestFirst {@code true} の場合は受付番号の大きい順、{@code false} の場合は小さい順
+     */
+    public List<SubmissionLog> query(SubmissionQuery query, int offset, int limit, boolean newestFirst) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT " + COLUMNS + " FROM submission" + where(query, parameters)
+            + " ORDER BY id " + (newestFirst ? "DESC" : "ASC") + " LIMIT ? OFFSET ?";
+        parameters.add(limit);
+        parameters.add(Math.max(0, offset));
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(sql)) {
+            bindAll(select, parameters);
+            try (ResultSet rows = select.executeQuery()) {
+                List<SubmissionLog> result = new ArrayList<>(Math.min(limit, 1024));
+                while (rows.next()) {
+                    result.add(read(rows));
+                }
+                return Collections.unmodifiableList(result);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to query submissions", ex);
+        }
+    }
+
+    /**
+     * 受付番号が {@code afterId} より後ろ（新しい順なら小さい番号、古い順なら大きい番号）で条件に一致する申請を
+     * 受付番号順に最大 {@code limit} 件取得する。主キーの範囲検索になるため、OFFSET と異なり読み飛ばしが発生しない。
+     */
+    public List<SubmissionLog> queryAfter(SubmissionQuery query, long afterId, int limit, boolean newestFirst) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Object> parameters = new ArrayList<>();
+        String where = where(query, parameters);
+        String sql = "SELECT " + COLUMNS + " FROM submission" + (where.isEmpty() ? " WHERE " : where + " AND ")
+            + (newestFirst ? "id < ?" : "id > ?")
+            + " ORDER BY id " + (newestFirst ? "DESC" : "ASC") + " LIMIT ?";
+        parameters.add(afterId);
+        parameters.add(limit);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(sql)) {
+            bindAll(select, parameters);
+            try (ResultSet rows = select.executeQuery()) {
+                List<SubmissionLog> result = new ArrayList<>(Math.min(limit, 1024));
+                while (rows.next()) {
+                    result.add(read(rows));
+                }
+                return Collections.unmodifiableList(result);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to query submissions", ex);
+        }
+    }
+
+    /**
+     * 条件に一致する申請の件数を返す。
+     */
+    public int count(SubmissionQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM submission" + where(query, parameters);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement select = connection.prepareStatement(sql)) {
+            bindAll(select, parameters);
+            try (ResultSet rows = select.executeQuery()) {
+                rows.next();
+                return (int) Math.min(Integer.MAX_VALUE, rows.getLong(1));
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to count submissions", ex);
+        }
+    }
+
+    /**
+     * 保存済みの最大の受付番号を返す。1 件も無い場合は 0。
+     */
+    public long maxId() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM submission")) {
+            rows.next();
+            return rows.getLong(1);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to read max submission id", ex);
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+
+    private void createSchema() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to create submission schema", ex);
+        }
+    }
+
+    private static String where(SubmissionQuery query, List<Object> parameters) {
+        if (query.isUnfiltered()) {
+            return "";
+        }
+        List<String> conditions = new ArrayList<>(5);
+        if (query.applicantId() != null) {
+            conditions.add("applicant_id = ?");
+            parameters.add(query.applicantId());
+        }
+        if (query.requestType() != null) {
+            conditions.add("request_type = ?");
+            parameters.add(query.requestType());
+        }
+        if (query.department() != null) {
+            conditions.add("department = ?");
+            parameters.add(query.department());
+        }
+        if (query.desiredFrom() != null) {
+            conditions.add("desired_date >= ?");
+            parameters.add(Date.valueOf(query.desiredFrom()));
+        }
+        if (query.desiredTo() != null) {
+            conditions.add("desired_date <= ?");
+            parameters.add(Date.valueOf(query.desiredTo()));
+        }
+        return " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void bindAll(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    private static int bind(PreparedStatement insert, int parameter, SubmissionLog submission) throws SQLException {
+        insert.setLong(parameter++, submission.id());
+        insert.setTimestamp(parameter++, Timestamp.valueOf(submission.submittedAt()));
+        insert.setString(parameter++, submission.applicantId());
+        insert.setString(parameter++, submission.applicantName());
+        insert.setString(parameter++, submission.contactEmail());
+        insert.setString(parameter++, submission.department());
+        insert.setString(parameter++, submission.requestType());
+        LocalDate desiredDate = submission.desiredDate();
+        if (desiredDate == null) {
+            insert.setNull(parameter++, Types.DATE);
+        } else {
+            insert.setDate(parameter++, Date.valueOf(desiredDate));
+        }
+        insert.setString(parameter++, submission.description());
+        return parameter;
+    }
+
+    private static SubmissionLog read(ResultSet rows) throws SQLException {
+        Date desiredDate = rows.getDate(8);
+        return new SubmissionLog(rows.getLong(1), rows.getTimestamp(2).toLocalDateTime()
+            .toInstant(ZoneOffset.UTC).toEpochMilli(),
+            rows.getString(3), rows.getString(4), rows.getString(5), rows.getString(6), rows.getString(7),
+            desiredDate == null ? SubmissionLog.NO_DESIRED_DATE : (int) desiredDate.toLocalDate().toEpochDay(),
+            rows.getString(9));
+    }
+
+    private static String insertStatement(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO submission (").append(COLUMNS).append(") VALUES ");
+        String tuple = "(" + "?, ".repeat(COLUMN_COUNT - 1) + "?)";
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(tuple);
+        }
+        return sql.toString();
+    }
+}
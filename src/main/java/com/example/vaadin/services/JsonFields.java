@@ -0,0 +1,44 @@
+package com.example.vaadin.services;
+
+/**
+ * NDJSON の 1 行を組み立てるための文字列項目の書き出し。
+ * <p>
+ * エクスポート（{@link SubmissionExportWriter}）と監査ログ（{@link SubmissionAuditLog}）で同じエスケープ規則を使う。
+ * 制御文字に加えて U+2028／U+2029 もエスケープし、JavaScript の文字列リテラルとしてもそのまま読めるようにする。
+ */
+final class JsonFields {
+
+    private JsonFields() {
+    }
+
+    /**
+     * {@code ,"name":"value"} の形で項目を追記する。{@code value} が {@code null} の場合は {@code null} を書く。
+     * 項目名はエスケープしないため、固定の名前だけを渡すこと。
+     */
+    static void append(StringBuilder line, String name, String value) {
+        line.append(",\"").append(name).append("\":");
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
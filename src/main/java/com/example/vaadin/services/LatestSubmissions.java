@@ -0,0 +1,182 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+/**
+ * 最新の履歴を受付番号の新しい順に固定件数だけ並べた読み取り専用のスナップショットを公開する。
+ * <p>
+ * 書き込みのたびに新しい配列を作って {@link AtomicReference} を差し替える（コピーオンライト）。
+ * 読み取りは参照を 1 回読むだけで、ロック・コピー・並べ替えを行わずに同じリストを何度でも返せる。
+ * 書き込みのコピー量は保持する件数（{@code windowSize}）で頭打ちになり、履歴全体の件数には依存しない。
+ * よく使う先頭 {@code headSize} 件のビューも書き込み時に作っておき、読み取り側ではオブジェクトを確保しない。
+ * <p>
+ * 複数のシャードから同時に書き込まれても、差し替えは CAS で行うため更新を取りこぼさない。
+ * 押し出しはシャードごとに起きるため、押し出された履歴を取り除いて空いた分は、各シャードに残っている
+ * 次に新しい履歴（{@code newestBefore}）で埋める。これにより、スナップショットは常に全シャードを通した上位
+ * {@code windowSize} 件と一致し、偏ったシャードの押し出しで件数が減ったままになることはない。
+ * 追加した履歴が公開までの間に別の書き込みで押し出されていた場合（押し出し側の反映と入れ違った場合）は、
+ * 公開後に {@code retained} で確認して取り除く。
+ */
+class LatestSubmissions {
+
+    private static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyList());
+
+    private final int windowSize;
+    private final int headSize;
+    private final Predicate<SubmissionLog> retained;
+    private final LongFunction<SubmissionLog> newestBefore;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(EMPTY);
+
+    /**
+     * @param windowSize   保持する件数
+     * @param headSize     先頭部分のビューを作っておく件数（{@code windowSize} 以下）
+     * @param retained     履歴がまだ保持されている（押し出されていない）かどうか
+     * @param newestBefore 受付番号が引数より小さい保持中の履歴のうち最も新しいもの。無い場合は {@code null}
+     */
+    LatestSubmissions(int windowSize, int headSize, Predicate<SubmissionLog> retained,
+                      LongFunction<SubmissionLog> newestBefore) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+        }
+        if (headSize <= 0 || headSize > windowSize) {
+            throw new IllegalArgumentException("headSize must be between 1 and " + windowSize + ": " + headSize);
+        }
+        this.windowSize = windowSize;
+        this.headSize = headSize;
+        this.retained = retained;
+        this.newestBefore = newestBefore;
+    }
+
+    int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 新しい順に並んだ最新の履歴（最大 {@link #windowSize()} 件、読み取り専用）。呼び出すたびのコピーは行わない。
+     */
+    List<SubmissionLog> snapshot() {
+        return snapshot.get().items();
+    }
+
+    /**
+     * 新しい順に最大 {@code limit} 件を返す。{@code limit} が保持件数以上の場合はスナップショットそのもの、
+     * {@code headSize} と等しい場合は作成済みのビューを返す。それ以外の場合は先頭部分のビュー（コピーなし）を作って返す。
+     */
+    List<SubmissionLog> latest(int limit) {
+        Snapshot current = snapshot.get();
+        List<SubmissionLog> items = current.items();
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (limit >= items.size()) {
+            return items;
+        }
+        return limit == headSize ? current.head() : items.subList(0, limit);
+    }
+
+    /**
+     * 追加された履歴を並び順の位置へ挿入し、押し出された履歴が含まれていれば取り除いたスナップショットを公開する。
+     * どちらも変化しない場合（追加分が保持範囲より古く、押し出し分も含まれない場合）は差し替えない。
+     * 呼び出し側は、押し出された履歴を {@code retained} が {@code false} を返す状態にしてから呼び出すこと。
+     *
+     * @param added   追加された履歴。無い場合は {@code null}
+     * @param evicted 同時に押し出された履歴。無い場合は {@code null}
+     */
+    void publish(SubmissionLog added, SubmissionLog evicted) {
+        List<SubmissionLog> inserted = update(added, evicted);
+        for (SubmissionLog log : inserted) {
+            if (!retained.test(log)) {
+                publish(null, log);
+            }
+        }
+    }
+
+    /**
+     * スナップショットを差し替え、新たに含めた履歴を返す。
+     */
+    private List<SubmissionLog> update(SubmissionLog added, SubmissionLog evicted) {
+        List<SubmissionLog> inserted = new ArrayList<>(1);
+        while (true) {
+            inserted.clear();
+            Snapshot current = snapshot.get();
+            List<SubmissionLog> next = apply(current.items(), added, evicted, inserted);
+            if (next == current.items()) {
+                return inserted;
+            }
+            Snapshot published = new Snapshot(next, next.size() > headSize ? next.subList(0, headSize) : next);
+            if (snapshot.compareAndSet(current, published)) {
+                return inserted;
+            }
+        }
+    }
+
+    private List<SubmissionLog> apply(List<SubmissionLog> current, SubmissionLog added, SubmissionLog evicted,
+                                      List<SubmissionLog> inserted) {
+        int size = current.size();
+        int removeAt = -1;
+        if (evicted != null) {
+            for (int i = 0; i < size; i++) {
+                if (current.get(i) == evicted) {
+                    removeAt = i;
+                    break;
+                }
+            }
+        }
+        int insertAt = -1;
+        if (added != null) {
+            // 通常は最新の履歴なので先頭から探せばすぐに位置が決まる
+            int position = 0;
+            while (position < size && current.get(position).id() > added.id()) {
+                position++;
+            }
+            boolean present = position < size && current.get(position).id() == added.id(); // 補充で追加済み
+            if (!present && position - (removeAt >= 0 && removeAt < position ? 1 : 0) < windowSize) {
+                insertAt = position;
+            }
+        }
+        if (removeAt < 0 && insertAt < 0) {
+            return current;
+        }
+        SubmissionLog[] items = new SubmissionLog[windowSize];
+        int count = 0;
+        for (int i = 0; i <= size && count < windowSize; i++) {
+            if (i == insertAt) {
+                items[count++] = added;
+                inserted.add(added);
+                if (count == windowSize) {
+                    break;
+                }
+            }
+            if (i < size && i != removeAt) {
+                items[count++] = current.get(i);
+            }
+        }
+        if (removeAt >= 0) {
+            // 押し出しで空いた分を、各シャードに残っている次に新しい履歴で埋める
+            while (count < windowSize) {
+                SubmissionLog older = newestBefore.apply(count == 0 ? Long.MAX_VALUE : items[count - 1].id());
+                if (older == null) {
+                    break;
+                }
+                items[count++] = older;
+                inserted.add(older);
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(count == windowSize ? items : Arrays.copyOf(items, count)));
+    }
+
+    /**
+     * @param items 新しい順の最新の履歴
+     * @param head  {@code items} の先頭 {@code headSize} 件のビュー
+     */
+    private record Snapshot(List<SubmissionLog> items, List<SubmissionLog> head) {
+    }
+}
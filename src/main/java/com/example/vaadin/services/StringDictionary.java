@@ -0,0 +1,50 @@
+package com.example.vaadin.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 繰り返し現れる文字列を 1 つのインスタンスにまとめる辞書。
+ * <p>
+ * 申請区分や所属部署のように種類の少ない値は、履歴ごとに別々の {@link String} を持つと同じ内容が何万回も重複する。
+ * {@link #canonical(String)} を通すと同じ内容の文字列は辞書に登録された 1 つのインスタンスを共有する。
+ * 登録件数が上限に達した後の新しい値は辞書に登録せず、渡された文字列をそのまま返す。
+ */
+final class StringDictionary {
+
+    private final ConcurrentHashMap<String, String> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    /**
+     * @param maxEntries 登録する値の種類の上限
+     */
+    StringDictionary(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * {@code value} と同じ内容の共有インスタンスを返す。
+     *
+     * @return 共有インスタンス。{@code value} が {@code null} の場合は {@code null}
+     */
+    String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = entries.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (entries.size() >= maxEntries) {
+            return value;
+        }
+        existing = entries.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
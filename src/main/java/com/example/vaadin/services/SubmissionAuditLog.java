@@ -0,0 +1,295 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * 申請の受付・取り込み・拒否を 1 行 1 件の JSON（NDJSON）でローカルファイルへ記録する監査ログ。
+ * <p>
+ * 保存した申請は {@link SubmissionChangeFeed} の後続処理として、受け付けなかった申請は UI のリクエストスレッドから記録する。
+ * 呼び出し元はイベントをキューへ投入するだけで戻り、
+ * 文字列の組み立て・ファイルへの書き込み・fsync は専用の書き込みスレッド 1 本がまとめて行う。
+ * キューは複数の投入元と 1 つの取り出し先（MPSC）で使う非ブロッキングのキューで、件数の上限はアトミックなカウンタで管理する。
+ * 上限に達した場合、投入元は待たずにそのイベントを捨て、件数を {@link #droppedCount()} に数える。
+ * <p>
+ * 書き込みスレッドはキューが空になるまで最大 {@code batch-size} 件ずつ取り出して 1 回の書き込みにまとめ、
+ * 空の間は {@code flush-interval-ms} ごとに確認する。{@code fsync=true} の場合は書き込みのたびに
+ * {@link FileChannel#force(boolean)} する。ファイルは {@code max-file-size-bytes} を超えると次の番号へ切り替え、
+ * 古いものから削除して {@code max-files} 個までを残す。
+ * <p>
+ * {@code app.submissions.audit.enabled=true} の場合のみ Bean として登録される（既定は無効）。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.submissions.audit", name = "enabled", havingValue = "true")
+public class SubmissionAuditLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionAuditLog.class);
+
+    private static final String FILE_PREFIX = "audit-";
+    private static final String FILE_SUFFIX = ".ndjson";
+
+    /**
+     * 監査ログに記録するイベントの種類。
+     */
+    public enum EventType {
+        /** 画面などから受け付けて保存した。 */
+        SUBMITTED,
+        /** CSV 一括取り込みで保存した。 */
+        IMPORTED,
+        /** 受け付けなかった。 */
+        REJECTED
+    }
+
+    private final Path directory;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final boolean fsync;
+
+    private final ConcurrentLinkedQueue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    /** 書き込みスレッド専用: 現在の書き込み先。 */
+    private FileChannel channel;
+    private long channelSize;
+    private long nextFileIndex;
+
+    public SubmissionAuditLog(
+        @Value("${app.submissions.audit.directory:./data/audit}") String directory,
+        @Value("${app.submissions.audit.queue-capacity:65536}") int queueCapacity,
+        @Value("${app.submissions.audit.batch-size:1024}") int batchSize,
+        @Value("${app.submissions.audit.flush-interval-ms:50}") long flushIntervalMillis,
+        @Value("${app.submissions.audit.max-file-size-bytes:67108864}") long maxFileSize,
+        @Value("${app.submissions.audit.max-files:10}") int maxFiles,
+        @Value("${app.submissions.audit.fsync:false}") boolean fsync) throws IOException {
+        if (queueCapacity <= 0 || batchSize <= 0 || maxFileSize <= 0 || maxFiles <= 0) {
+            throw new IllegalArgumentException("Audit log queue, batch, file size and file count must be positive");
+        }
+        this.directory = Paths.get(directory);
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        this.fsync = fsync;
+
+        Files.createDirectories(this.directory);
+        List<Path> existing = listFiles();
+        this.nextFileIndex = existing.isEmpty() ? 0 : fileIndexOf(existing.get(existing.size() - 1)) + 1;
+
+        this.writer = new Thread(this::writeLoop, "submission-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 保存した申請を記録する。
+     */
+    public void recordStored(EventType type, SubmissionLog submission) {
+        enqueue(new AuditEvent(System.currentTimeMillis(), type, submission.id(), submission.applicantId(),
+            submission.department(), submission.requestType(), submission.desiredDate(), null));
+    }
+
+    /**
+     * 受け付けなかった申請を理由とともに記録する。
+     */
+    public void recordRejected(SimpleApplicationRequest request, SubmissionRejectedException.Reason reason) {
+        enqueue(new AuditEvent(System.currentTimeMillis(), EventType.REJECTED, 0, request.getApplicantId(),
+            request.getDepartment(), request.getRequestType(), request.getDesiredDate(), reason.name()));
+    }
+
+    /**
+     * キューが満杯、または終了処理中のために記録しなかったイベントの延べ件数。
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void enqueue(AuditEvent event) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(event);
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(batchSize * 160);
+        while (true) {
+            boolean stopping = closed;
+            int count = 0;
+            AuditEvent event;
+            while (count < batchSize && (event = queue.poll()) != null) {
+                appendJson(batch, event);
+                count++;
+            }
+            if (count > 0) {
+                pending.addAndGet(-count);
+                writeBatch(batch, count);
+                batch.setLength(0);
+            } else if (stopping) {
+                break;
+            } else {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        closeChannel();
+    }
+
+    private void writeBatch(StringBuilder batch, int count) {
+        ByteBuffer bytes = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            if (channel == null || (channelSize > 0 && channelSize + bytes.remaining() > maxFileSize)) {
+                rotate();
+            }
+            channelSize += bytes.remaining();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException ex) {
+            // 監査ログの失敗で申請の受付を止めないよう、記録できなかった件数を数えて続行する
+            dropped.add(count);
+            log.error("Failed to write {} audit events to {}", count, directory, ex);
+            closeChannel();
+        }
+    }
+
+    /**
+     * 新しい番号のファイルへ切り替え、上限を超えた古いファイルを削除する。
+     */
+    private void rotate() throws IOException {
+        closeChannel();
+        Path path = directory.resolve(String.format("%s%012d%s", FILE_PREFIX, nextFileIndex++, FILE_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channelSize = 0;
+        List<Path> files = listFiles();
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException ex) {
+            log.warn("Failed to close audit log file in {}", directory, ex);
+        }
+        channel = null;
+    }
+
+    private static void appendJson(StringBuilder line, AuditEvent event) {
+        line.append("{\"at\":\"").append(Instant.ofEpochMilli(event.atMillis())).append('"');
+        line.append(",\"event\":\"").append(event.type().name()).append('"');
+        if (event.type() != EventType.REJECTED) {
+            line.append(",\"id\":").append(event.submissionId());
+        }
+        JsonFields.append(line, "applicantId", event.applicantId());
+        JsonFields.append(line, "department", event.department());
+        JsonFields.append(line, "requestType", event.requestType());
+        line.append(",\"desiredDate\":");
+        if (event.desiredDate() == null) {
+            line.append("null");
+        } else {
+            line.append('"');
+            DateTimeFormatter.ISO_LOCAL_DATE.formatTo(event.desiredDate(), line);
+            line.append('"');
+        }
+        if (event.reason() != null) {
+            JsonFields.append(line, "reason", event.reason());
+        }
+        line.append("}\n");
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static long fileIndexOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            throw new UncheckedIOException(new IOException("Unexpected audit log file name: " + name, ex));
+        }
+    }
+
+    /**
+     * 新しいイベントの受け付けを止め、キューに残っているイベントを書き出してからファイルを閉じる。
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * キューに溜めるイベント。文字列への変換は書き込みスレッドで行う。
+     *
+     * @param submissionId 受付番号。{@link EventType#REJECTED} の場合は使わない
+     * @param reason       拒否理由。{@link EventType#REJECTED} 以外は {@code null}
+     */
+    private record AuditEvent(long atMillis, EventType type, long submissionId, String applicantId,
+                              String department, String requestType, LocalDate desiredDate, String reason) {
+    }
+}
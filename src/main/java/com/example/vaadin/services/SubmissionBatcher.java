@@ -0,0 +1,122 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * 非同期で受け付けた申請をキューに溜め、専用スレッドでまとめて保存するバッチ処理ステージ。
+ * <p>
+ * 呼び出し元（UI のリクエストスレッド）はキューへの投入だけで戻る。ドレインスレッドは
+ * キューに溜まった申請を最大 {@code maxBatchSize} 件ずつ取り出し、1 回の保存処理に渡す。
+ * ジャーナルの fsync などの固定コストはバッチ単位で 1 回になる。
+ */
+class SubmissionBatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionBatcher.class);
+
+    private final BlockingQueue<PendingSubmission> queue;
+    private final int maxBatchSize;
+    private final Consumer<List<SubmissionLog>> sink;
+    private final Thread drainer;
+
+    private volatile boolean closed;
+
+    /**
+     * @param name          ドレインスレッドの名前
+     * @param queueCapacity 受付待ちキューの上限。超過した申請は即座に失敗させる
+     * @param maxBatchSize  1 回の保存処理に渡す最大件数
+     * @param sink          バッチを保存する処理。例外（{@link Error} を含む）を投げた場合はバッチ全体を失敗扱いにする
+     */
+    SubmissionBatcher(String name, int queueCapacity, int maxBatchSize, Consumer<List<SubmissionLog>> sink) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.sink = sink;
+        this.drainer = new Thread(this::drainLoop, name);
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * 申請をキューへ投入する。
+     *
+     * @return 保存完了時に完了する Future。キューが満杯の場合は {@link RejectedExecutionException} で失敗する
+     */
+    CompletableFuture<SubmissionLog> enqueue(SubmissionLog submission) {
+        CompletableFuture<SubmissionLog> future = new CompletableFuture<>();
+        if (closed || !queue.offer(new PendingSubmission(submission, future))) {
+            future.completeExceptionally(new RejectedExecutionException("Submission queue is full or closed"));
+        }
+        return future;
+    }
+
+    private void drainLoop() {
+        List<PendingSubmission> batch = new ArrayList<>(maxBatchSize);
+        List<SubmissionLog> logs = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingSubmission first = queue.take();
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+            } catch (InterruptedException ex) {
+                // close() による割り込み。残りのキューを処理してから終了する
+                queue.drainTo(batch, maxBatchSize);
+                if (batch.isEmpty()) {
+                    continue;
+                }
+            }
+            for (PendingSubmission pending : batch) {
+                logs.add(pending.submission());
+            }
+            try {
+                sink.accept(logs);
+                for (PendingSubmission pending : batch) {
+                    pending.future().complete(pending.submission());
+                }
+            } catch (Throwable ex) {
+                // Error もここで受け止める。ドレインスレッドが止まると以降の Future が完了しなくなるため、
+                // バッチを失敗扱いにしてループを続ける
+                log.error("Failed to store a batch of {} submissions", batch.size(), ex);
+                for (PendingSubmission pending : batch) {
+                    pending.future().completeExceptionally(ex);
+                }
+            }
+            batch.clear();
+            logs.clear();
+        }
+    }
+
+    /**
+     * 新規受付を止め、キューに残っている申請を処理してから終了する。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        drainer.interrupt();
+        try {
+            drainer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // close() と競合して投入された申請は処理されないため、明示的に失敗させる
+        List<PendingSubmission> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        for (PendingSubmission pending : leftovers) {
+            pending.future().completeExceptionally(new RejectedExecutionException("Submission queue is closed"));
+        }
+    }
+
+    private record PendingSubmission(SubmissionLog submission, CompletableFuture<SubmissionLog> future) {
+    }
+}
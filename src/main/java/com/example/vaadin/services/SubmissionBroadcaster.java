@@ -0,0 +1,94 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import com.vaadin.flow.shared.Registration;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 新しい申請を接続中のすべての画面へ通知するブロードキャスター。
+ * <p>
+ * {@link #publish(SubmissionLog)} はキューへの追加のみを行い、一定間隔（既定 250 ms）ごとに
+ * 溜まった申請をまとめて各リスナーへ 1 回だけ配信する。画面側はこの 1 回の通知につき
+ * {@code UI.access} を 1 回実行すればよく、短時間に大量の申請があってもプッシュ回数は
+ * 間隔あたり 1 回に抑えられる。
+ */
+@Component
+public class SubmissionBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionBroadcaster.class);
+
+    private final ConcurrentLinkedQueue<SubmissionLog> pending = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<Consumer<List<SubmissionLog>>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    public SubmissionBroadcaster(@Value("${app.submissions.broadcast.interval-ms:250}") long intervalMillis) {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "submission-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 新しい申請を配信キューへ追加する。配信は次回のフラッシュ時にまとめて行われる。
+     */
+    public void publish(SubmissionLog submission) {
+        if (!listeners.isEmpty()) {
+            pending.add(submission);
+        }
+    }
+
+    /**
+     * 申請の通知を受け取るリスナーを登録する。
+     * <p>
+     * リスナーはブロードキャスター用スレッドから呼び出されるため、UI を更新する場合は
+     * {@code UI.access} を経由すること。画面のデタッチ時には返却された登録を解除すること。
+     *
+     * @param listener フラッシュ間隔内に登録された申請（古い順）を受け取る処理
+     * @return 登録解除用のハンドル
+     */
+    public Registration register(Consumer<List<SubmissionLog>> listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<SubmissionLog> batch = new ArrayList<>();
+        SubmissionLog submission;
+        while ((submission = pending.poll()) != null) {
+            batch.add(submission);
+        }
+        List<SubmissionLog> readOnly = Collections.unmodifiableList(batch);
+        for (Consumer<List<SubmissionLog>> listener : listeners) {
+            try {
+                listener.accept(readOnly);
+            } catch (RuntimeException ex) {
+                // 1 つの画面の失敗で他の画面への配信を止めない
+                log.warn("Failed to deliver submission broadcast", ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.vaadin.services;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 申請区分・希望日ごとの受付枠を管理する。
+ * <p>
+ * 受付枠のある申請区分について、(申請区分, 希望日) を 1 つの {@code long} に詰めたキーで件数を数える。
+ * 件数表はキーと件数をそれぞれ {@link AtomicLongArray}・{@link AtomicIntegerArray} に持つオープンアドレス法のハッシュ表で、
+ * キーのボクシングやロックを伴わず、枠の確保は CAS 1 回（競合時は再試行）で完了する。
+ * <p>
+ * 受付枠を確保できる希望日は当日から {@code bookableDays} 日後までで、それ以外の日は満枠と同じく受け付けない。
+ * 件数表には過去の日を載せず、新しいキーを追加するときは過去の日になったスロットを再利用する。
+ * 件数表の大きさは「受付枠のある申請区分の数 × 受け付ける日数」の 2 倍以上に切り上げるため、
+ * 受け付ける希望日をすべて載せても満杯にならない。キーの追加だけはロックを取って行い、同じキーが二重に載らないようにする。
+ * <p>
+ * 画面向けの満枠日の一覧は件数表を走査して作り、{@link #SNAPSHOT_TTL_NANOS} の間は同じものを返す。
+ */
+class SubmissionCapacityEngine {
+
+    /** 満枠日の一覧を作り直す間隔。 */
+    private static final long SNAPSHOT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, Integer> typeIndexes;
+    private final int[] limits;
+    private final int bookableDays;
+    private final Clock clock;
+    private final CounterTable counters;
+    private final AtomicReference<AvailabilitySnapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * @param dailyLimits   申請区分ごとの 1 日あたりの受付枠。含まれない申請区分は無制限
+     * @param tableCapacity 件数表のスロット数の最小値（受け付ける日数に足りない場合は広げ、2 のべき乗に切り上げる）
+     * @param bookableDays  受付枠を確保できる希望日の範囲（当日から何日後まで）
+     * @param clock         当日の判定に使う時計
+     */
+    SubmissionCapacityEngine(Map<String, Integer> dailyLimits, int tableCapacity, int bookableDays, Clock clock) {
+        if (bookableDays < 0) {
+            throw new IllegalArgumentException("bookableDays must not be negative: " + bookableDays);
+        }
+        this.typeIndexes = new HashMap<>();
+        this.limits = new int[dailyLimits.size()];
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : dailyLimits.entrySet()) {
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Daily limit must not be negative: " + entry);
+            }
+            typeIndexes.put(entry.getKey(), index);
+            limits[index] = entry.getValue();
+            index++;
+        }
+        this.bookableDays = bookableDays;
+        this.clock = clock;
+        long required = 2L * limits.length * (bookableDays + 1L);
+        if (required > 1 << 30) {
+            throw new IllegalArgumentException("Too many limited request types or bookable days: " + required);
+        }
+        this.counters = new CounterTable((int) Math.max(tableCapacity, required));
+    }
+
+    /**
+     * {@code 備品購入:20,出張申請:10} 形式の設定値を読み取る。空文字列の場合は受付枠なし。
+     */
+    static Map<String, Integer> parseLimits(String value) {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        if (value == null || value.isBlank()) {
+            return limits;
+        }
+        for (String entry : value.split(",")) {
+            int separator = entry.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid daily limit entry: " + entry);
+            }
+            limits.put(entry.substring(0, separator).trim(), Integer.parseInt(entry.substring(separator + 1).trim()));
+        }
+        return limits;
+    }
+
+    /**
+     * 希望日が受付枠を確保できる範囲（当日から {@code bookableDays} 日後まで）にあるかどうか。
+     * 受付枠の無い申請区分や希望日が未設定の場合は常に {@code true}。
+     */
+    boolean isBookable(String requestType, LocalDate desiredDate) {
+        if (typeOf(requestType, desiredDate) == null) {
+            return true;
+        }
+        long day = desiredDate.toEpochDay();
+        long today = today();
+        return day >= today && day <= today + bookableDays;
+    }
+
+    /**
+     * 受付枠を 1 つ確保する。受付枠の無い申請区分や希望日が未設定の場合は常に成功する。
+     * <p>
+     * 成功した申請を保存できなかった場合は {@link #release(String, LocalDate)} で返却すること。
+     *
+     * @return 確保できた場合は {@code true}、満枠または希望日が受付範囲外の場合は {@code false}
+     */
+    boolean tryReserve(String requestType, LocalDate desiredDate) {
+        Integer type = typeOf(requestType, desiredDate);
+        if (type == null) {
+            return true;
+        }
+        if (!isBookable(requestType, desiredDate)) {
+            return false;
+        }
+        int slot = counters.slotOf(key(type, desiredDate), true, today());
+        if (slot < 0) {
+            return false; // 件数表が満杯。枠を数えられないため受け付けない
+        }
+        return counters.tryIncrement(slot, limits[type]);
+    }
+
+    /**
+     * {@link #tryReserve(String, LocalDate)} で確保した受付枠を返却する。
+     */
+    void release(String requestType, LocalDate desiredDate) {
+        Integer type = typeOf(requestType, desiredDate);
+        if (type == null) {
+            return;
+        }
+        int slot = counters.slotOf(key(type, desiredDate), false, today());
+        if (slot >= 0) {
+            counters.decrement(slot);
+        }
+    }
+
+    /**
+     * 受付枠に関係なく件数に加える。起動時の件数の復元と、一括取り込みで使う。
+     * <p>
+     * 受付枠を確保できる範囲外の希望日は数えない。過去の日はもう受け付けることがなく、
+     * 範囲より先の日を載せると件数表が受け付ける日数を超えて埋まるため（範囲に入った日の件数は再起動時に復元する）。
+     */
+    void record(String requestType, LocalDate desiredDate) {
+        Integer type = typeOf(requestType, desiredDate);
+        if (type == null || !isBookable(requestType, desiredDate)) {
+            return;
+        }
+        int slot = counters.slotOf(key(type, desiredDate), true, today());
+        if (slot >= 0) {
+            counters.increment(slot);
+        }
+    }
+
+    /**
+     * 受付枠のある申請区分の一覧。
+     */
+    Set<String> limitedTypes() {
+        return Collections.unmodifiableSet(typeIndexes.keySet());
+    }
+
+    /**
+     * 申請区分の 1 日あたりの受付枠。受付枠が無い場合は -1。
+     */
+    int dailyLimit(String requestType) {
+        Integer type = requestType == null ? null : typeIndexes.get(requestType);
+        return type == null ? -1 : limits[type];
+    }
+
+    /**
+     * 受付枠が埋まっている希望日の一覧（読み取り専用）を返す。受付枠の無い申請区分は空。
+     * <p>
+     * 直近に作った一覧があればそれを返すため、確保・返却の直後は最大 {@link #SNAPSHOT_TTL_NANOS} だけ古い場合がある。
+     */
+    Set<LocalDate> fullyBookedDates(String requestType) {
+        Integer type = requestType == null ? null : typeIndexes.get(requestType);
+        if (type == null) {
+            return Collections.emptySet();
+        }
+        long now = System.nanoTime();
+        AvailabilitySnapshot current = snapshot.get();
+        if (current == null || now - current.builtAtNanos() > SNAPSHOT_TTL_NANOS) {
+            AvailabilitySnapshot rebuilt = buildSnapshot(now);
+            // 同時に作り直した場合はどちらを採用しても良い
+            snapshot.compareAndSet(current, rebuilt);
+            current = rebuilt;
+        }
+        return current.fullDates().get(type);
+    }
+
+    private AvailabilitySnapshot buildSnapshot(long now) {
+        List<TreeSet<LocalDate>> full = new ArrayList<>(limits.length);
+        for (int i = 0; i < limits.length; i++) {
+            full.add(new TreeSet<>());
+        }
+        long today = today();
+        counters.forEach((key, count) -> {
+            int type = (int) (key >>> 32);
+            if (CounterTable.dayOf(key) >= today && count >= limits[type]) {
+                full.get(type).add(LocalDate.ofEpochDay((int) key));
+            }
+        });
+        List<Set<LocalDate>> readOnly = new ArrayList<>(limits.length);
+        for (TreeSet<LocalDate> dates : full) {
+            readOnly.add(Collections.unmodifiableSet(dates));
+        }
+        return new AvailabilitySnapshot(now, Collections.unmodifiableList(readOnly));
+    }
+
+    private long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    private Integer typeOf(String requestType, LocalDate desiredDate) {
+        if (requestType == null || desiredDate == null) {
+            return null;
+        }
+        return typeIndexes.get(requestType);
+    }
+
+    /**
+     * 申請区分の番号を上位 32 ビット、希望日のエポック日を下位 32 ビットに詰める（常に 0 以上になる）。
+     */
+    private static long key(int type, LocalDate date) {
+        return ((long) type << 32) | ((int) date.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param builtAtNanos 作成時刻（{@link System#nanoTime()}）
+     * @param fullDates    申請区分の番号ごとの満枠日
+     */
+    private record AvailabilitySnapshot(long builtAtNanos, List<Set<LocalDate>> fullDates) {
+    }
+
+    /**
+     * {@code long} のキーから {@code int} の件数を引く、オープンアドレス法（線形探索）のハッシュ表。
+     * <p>
+     * 削除は行わず、過去の日になったキーのスロットを新しいキーの追加時に再利用する。
+     * 再利用はキーを差し替えるだけで探索列に空きを作らないため、他のキーの探索には影響しない。
+     */
+    private static final class CounterTable {
+
+        /** 未使用スロットを表すキー。実際のキーは常に 0 以上なので衝突しない。 */
+        private static final long EMPTY = Long.MIN_VALUE;
+        /** 再利用のために件数を 0 に戻している間のキー。どのキーとも一致しない使用中のスロットとして扱う。 */
+        private static final long RECLAIMING = -1;
+
+        private final AtomicLongArray keys;
+        private final AtomicIntegerArray counts;
+        private final int mask;
+
+        CounterTable(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            }
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.keys = new AtomicLongArray(size);
+            this.counts = new AtomicIntegerArray(size);
+            this.mask = size - 1;
+            for (int i = 0; i < size; i++) {
+                keys.set(i, EMPTY);
+            }
+        }
+
+        /**
+         * キーのスロットを返す。既にあるキーはロックを取らずに探す。
+         *
+         * @param create キーが無い場合にスロットを確保する場合は {@code true}
+         * @param today  当日のエポック日。これより前の日のキーのスロットは再利用してよい
+         * @return スロット番号。キーが無く作成もしない場合、または表が満杯の場合は -1
+         */
+        int slotOf(long key, boolean create, long today) {
+            int slot = (int) mix(key) & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                long current = keys.get(slot);
+                if (current == key) {
+                    return slot;
+                }
+                if (current == EMPTY) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return create ? add(key, today) : -1;
+        }
+
+        /**
+         * キーを追加する。追加は件数表ごとに 1 スレッドずつ行うため、同じキーが 2 つのスロットに載ることはない。
+         */
+        private synchronized int add(long key, long today) {
+            int slot = (int) mix(key) & mask;
+            int reusable = -1;
+            for (int probe = 0; probe <= mask; probe++) {
+                long current = keys.get(slot);
+                if (current == key) {
+                    return slot; // 別のスレッドが先に追加した
+                }
+                if (current == EMPTY) {
+                    break;
+                }
+                if (reusable < 0 && current >= 0 && dayOf(current) < today) {
+                    reusable = slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (reusable >= 0) {
+                // 過去の日のスロットを、件数を 0 に戻してから新しいキーに渡す
+                keys.set(reusable, RECLAIMING);
+                counts.set(reusable, 0);
+                keys.set(reusable, key);
+                return reusable;
+            }
+            if (keys.get(slot) != EMPTY) {
+                return -1;
+            }
+            keys.set(slot, key);
+            return slot;
+        }
+
+        static long dayOf(long key) {
+            return (int) key;
+        }
+
+        boolean tryIncrement(int slot, int limit) {
+            while (true) {
+                int count = counts.get(slot);
+                if (count >= limit) {
+                    return false;
+                }
+                if (counts.compareAndSet(slot, count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void increment(int slot) {
+            counts.incrementAndGet(slot);
+        }
+
+        void decrement(int slot) {
+            while (true) {
+                int count = counts.get(slot);
+                if (count <= 0 || counts.compareAndSet(slot, count, count - 1)) {
+                    return;
+                }
+            }
+        }
+
+        void forEach(KeyCountConsumer consumer) {
+            for (int slot = 0; slot <= mask; slot++) {
+                long key = keys.get(slot);
+                if (key >= 0) {
+                    consumer.accept(key, counts.get(slot));
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+
+    @FunctionalInterface
+    private interface KeyCountConsumer {
+        void accept(long key, int count);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 保存した申請を購読者へ順に配信する変更フィード（{@link Flow.Publisher}）。
+ * <p>
+ * 購読者ごとに上限付きのバッファを持ち、{@link Flow.Subscription#request(long)} で要求された件数だけ
+ * 専用スレッドプールから {@code onNext} を呼び出す。購読者は互いに独立した速度で処理でき、
+ * 遅い購読者が他の購読者や保存処理を待たせることはない。
+ * <p>
+ * {@link #publish(SubmissionLog, Origin)} は保存処理のスレッドから呼ばれるため、バッファが満杯でも待たない。
+ * 満杯の購読者へはその申請を配信せずに読み捨て、件数を {@link #droppedCount()} に数える。
+ * 取りこぼしは受付番号の飛びで検出できるので、必要な購読者は {@link ApplicationRequestService#query} で補うこと。
+ * <p>
+ * アプリケーション内の後続処理（集計・画面への通知・全文検索の索引付け・監査ログなど）は {@link #consume} で登録する。
+ * これらは外部の購読者とは別の経路で、保存の経路（{@link Origin}）を添えて配信し、読み捨てない。処理が {@code bufferSize} 件遅れた場合に限り、
+ * {@link #publish(SubmissionLog, Origin)} は追いつくまで待つ。後続処理の例外は記録するだけで配信を続ける。
+ */
+class SubmissionChangeFeed implements Flow.Publisher<SubmissionLog>, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionChangeFeed.class);
+
+    private final ExecutorService executor;
+    private final SubmissionPublisher<SubmissionLog> publisher;
+    /** アプリケーション内の後続処理への配信。読み捨てずに待つ。 */
+    private final SubmissionPublisher<Change> consumers;
+    /** 外部の購読者のバッファが満杯で読み捨てた件数。 */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * 申請を保存した経路。
+     */
+    enum Origin {
+        /** 画面などから受け付けた。 */
+        SUBMITTED,
+        /** CSV 一括取り込みで保存した。 */
+        IMPORTED
+    }
+
+    /**
+     * 後続処理へ渡す保存済みの申請。
+     */
+    record Change(SubmissionLog submission, Origin origin) {
+    }
+
+    /**
+     * @param bufferSize 購読者ごとのバッファの上限件数（2 のべき乗に切り上げられる）
+     */
+    SubmissionChangeFeed(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "submission-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+        this.consumers = new SubmissionPublisher<>(executor, bufferSize);
+    }
+
+    /**
+     * アプリケーション内の後続処理を登録する。登録より前に保存された申請は渡さない。
+     * <p>
+     * {@code consumer} は配信用スレッドから保存順に 1 件ずつ呼ばれる（同じ処理が並行して呼ばれることはない）。
+     *
+     * @param name     ログに出す処理の名前
+     * @param consumer 保存した申請の受け取り先
+     */
+    void consume(String name, Consumer<Change> consumer) {
+        consumers.consume(change -> {
+            try {
+                consumer.accept(change);
+            } catch (RuntimeException ex) {
+                // 例外を投げると購読が解除されるため、記録して次の申請の処理を続ける
+                log.error("Change feed consumer {} failed for submission id={}", name, change.submission().id(), ex);
+            }
+        });
+    }
+
+    /**
+     * 購読者を登録する。購読開始より前に保存された申請は配信しない。
+     * <p>
+     * {@code onNext} などは配信用スレッドから呼び出されるため、UI を更新する場合は {@code UI.access} を経由すること。
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super SubmissionLog> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * 保存した申請を後続処理と各購読者のバッファへ追加する。
+     * <p>
+     * 後続処理のバッファが満杯の場合だけ空きができるまで待ち、外部の購読者のバッファが満杯の場合は待たずに読み捨てる。
+     */
+    void publish(SubmissionLog submission, Origin origin) {
+        if (consumers.hasSubscribers()) {
+            consumers.submit(new Change(submission, origin));
+        }
+        if (!publisher.hasSubscribers()) {
+            return;
+        }
+        publisher.offer(submission, (subscriber, item) -> {
+            dropped.increment();
+            log.debug("Change feed buffer is full; dropped submission id={} for {}", item.id(), subscriber);
+            return false;
+        });
+    }
+
+    /**
+     * バッファが満杯で読み捨てた申請の延べ件数。
+     */
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 購読者へ {@code onComplete} を通知し、配信用スレッドを止める。バッファに残っている申請は配信を試みる。
+     */
+    @Override
+    public void close() {
+        consumers.close();
+        publisher.close();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
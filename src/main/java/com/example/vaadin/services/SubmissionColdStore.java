@@ -0,0 +1,793 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * メモリ上の履歴から押し出された古い申請を、圧縮した不変のブロックファイルとしてディスクに保持するコールド層。
+ * <p>
+ * 押し出された申請はまずメモリ上のバッファに溜め、{@code block-size} 件たまるとバックグラウンドスレッドが
+ * 受付番号順に並べて 1 つのブロックファイルへ書き出す。書き出し済みのブロックは変更しない。
+ * 各ブロックのヘッダには受付番号・受付日時・希望日の最小値と最大値、申請区分・所属部署ごとの件数、
+ * 申請者IDのブルームフィルタ（疎インデックス）を持ち、起動時はヘッダだけを読んでメモリに載せる。
+ * 検索ではヘッダで条件に一致し得ないブロックを読み飛ばし、残りのブロックだけを展開する。
+ * メモリに載るのはヘッダ（1 件あたり 1 バイト程度）と、直近に展開したブロックのキャッシュだけである。
+ * <p>
+ * ブロックファイルの形式（すべてビッグエンディアン）:
+ * <pre>
+ * int     マジックナンバー
+ * byte    フォーマットバージョン
+ * int     レコード件数
+ * long    受付番号の最小値 / 最大値
+ * long    受付日時の最小値 / 最大値（UTC とみなしたエポックミリ秒）
+ * int     希望日の最小値 / 最大値（エポック日数。希望日のあるレコードが無い場合は {@link Integer#MIN_VALUE}）
+ * byte    希望日の無いレコードを含む場合は 1
+ * int     申請区分の種類数、以降 [文字列][int 件数] を種類数ぶん（所属部署も同じ形式で続く）
+ * int     ブルームフィルタの long 数、以降ビット列
+ * int     本体の展開後のバイト数
+ * int     本体の圧縮後のバイト数、以降 Deflate で圧縮した本体（{@link SubmissionLogCodec} のレコードの連続）
+ * int     ここまでの CRC32
+ * </pre>
+ * 文字列は「有無を表す byte + 修正 UTF-8」で書き込む。
+ * <p>
+ * {@code app.submissions.tiering.enabled=true} の場合のみ Bean として登録される。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.submissions.tiering", name = "enabled", havingValue = "true")
+public class SubmissionColdStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionColdStore.class);
+
+    private static final int MAGIC = 0x53554243; // "SUBC"
+    private static final byte FORMAT_VERSION = 1;
+    private static final String BLOCK_PREFIX = "block-";
+    private static final String BLOCK_SUFFIX = ".blk";
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** 申請者IDのブルームフィルタに割り当てる 1 件あたりのビット数とハッシュ関数の数（誤検出率 3% 程度）。 */
+    private static final int BLOOM_BITS_PER_ENTRY = 8;
+    private static final int BLOOM_HASHES = 3;
+
+    /** ホット層と同じく受付番号で並べる（取り込んだ申請は受付日時と受付番号の順序が一致しないため）。 */
+    private static final Comparator<SubmissionLog> NEWEST_FIRST =
+        Comparator.comparingLong(SubmissionLog::id).reversed();
+    private static final Comparator<SubmissionLog> OLDEST_FIRST = NEWEST_FIRST.reversed();
+
+    private final Path directory;
+    private final int blockSize;
+    private final ExecutorService writer;
+
+    /** 書き出し済みのブロック。追加はロック保護下で行い、読み出しはロックなしで行う。 */
+    private final CopyOnWriteArrayList<Block> blocks = new CopyOnWriteArrayList<>();
+    /** 直近に展開したブロックの内容（アクセス順）。 */
+    private final Map<Path, List<SubmissionLog>> cache;
+
+    /** ロック保護: 書き出し前の申請。 */
+    private List<SubmissionLog> pending = new ArrayList<>();
+    /** ロック保護: 書き出し中の申請。書き出しが完了してブロックが公開されるまで検索対象に含める。 */
+    private final List<List<SubmissionLog>> sealing = new ArrayList<>();
+    /** ロック保護: 次に書き出すブロックの番号。 */
+    private long nextBlockNumber;
+    /** 起動時の復元中は、既にブロックへ書き出し済みの申請を二重に取り込まないよう確認する。 */
+    private volatile boolean restoring = true;
+
+    public SubmissionColdStore(
+        @Value("${app.submissions.tiering.directory:./data/cold}") String directory,
+        @Value("${app.submissions.tiering.block-size:4096}") int blockSize,
+        @Value("${app.submissions.tiering.cache-blocks:8}") int cacheBlocks) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        this.directory = Paths.get(directory);
+        this.blockSize = blockSize;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, List<SubmissionLog>> eldest) {
+                return size() > Math.max(0, cacheBlocks);
+            }
+        });
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "submission-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(this.directory);
+        loadBlocks();
+    }
+
+    /**
+     * メモリ上の履歴から押し出された申請を受け取る。保存処理のスレッドから呼ばれるため、書き出しは待たない。
+     */
+    void migrate(SubmissionLog submission) {
+        if (restoring && isStored(submission.id())) {
+            return;
+        }
+        synchronized (this) {
+            pending.add(submission);
+            if (pending.size() >= blockSize) {
+                seal();
+            }
+        }
+    }
+
+    /**
+     * 起動時の復元が完了したことを通知する。以降は押し出された申請をそのまま取り込む。
+     */
+    void restoreCompleted() {
+        restoring = false;
+    }
+
+    /**
+     * まだブロックに書き出していない申請を古い順に返す。スナップショットに含めて、再起動時に取り込み直すために使う。
+     */
+    synchronized List<SubmissionLog> unwritten() {
+        List<SubmissionLog> unwritten = new ArrayList<>();
+        sealing.forEach(unwritten::addAll);
+        unwritten.addAll(pending);
+        unwritten.sort(OLDEST_FIRST);
+        return Collections.unmodifiableList(unwritten);
+    }
+
+    /**
+     * ブロックに書き出した申請の最大の受付番号を返す。1 件も無い場合は 0。
+     */
+    long maxId() {
+        long max = 0;
+        for (Block block : blocks) {
+            max = Math.max(max, block.maxId);
+        }
+        return max;
+    }
+
+    /**
+     * 条件に一致する申請を指定した並び順で最大 {@code limit} 件返す。
+     * <p>
+     * {@code bound} を指定した場合、並び順で {@code bound} より後ろにしか一致し得ないブロックは読まない。
+     * 呼び出し側がホット層で既に {@code limit} 件を得ている場合に、その最後の 1 件を渡す。
+     *
+     * @param newestFirst {@code true} の場合は受付番号の大きい順、{@code false} の場合は小さい順
+     * @param bound       読み飛ばしの基準にする履歴。{@code null} の場合は基準なし
+     */
+    List<SubmissionLog> query(SubmissionQuery query, int limit, boolean newestFirst, SubmissionLog bound) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Comparator<SubmissionLog> order = newestFirst ? NEWEST_FIRST : OLDEST_FIRST;
+        List<SubmissionLog> collected = new ArrayList<>();
+        List<Block> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (List<SubmissionLog> batch : sealing) {
+                addMatches(batch, query, collected);
+            }
+            addMatches(pending, query, collected);
+            for (Block block : blocks) {
+                if (block.mayMatch(query)) {
+                    candidates.add(block);
+                }
+            }
+        }
+        trim(collected, order, limit);
+        candidates.sort(newestFirst
+            ? Comparator.comparingLong((Block block) -> block.maxId).reversed()
+            : Comparator.comparingLong((Block block) -> block.minId));
+        for (Block block : candidates) {
+            SubmissionLog worst = collected.size() >= limit ? collected.get(limit - 1) : bound;
+            if (worst != null && !block.mayPrecede(worst, newestFirst)) {
+                break; // 以降のブロックは並び順でさらに後ろにしか無い
+            }
+            addMatches(read(block), query, collected);
+            trim(collected, order, limit);
+        }
+        return Collections.unmodifiableList(collected);
+    }
+
+    /**
+     * 受付番号が {@code afterId} より後ろ（新しい順なら小さい番号、古い順なら大きい番号）で条件に一致する申請を
+     * 受付番号順に最大 {@code limit} 件返す。
+     * <p>
+     * ブロックはヘッダの受付番号の範囲でカーソル以降を含むものだけを受付番号順に読み、
+     * {@code limit} 件が確定した時点で打ち切る。
+     */
+    List<SubmissionLog> queryAfter(SubmissionQuery query, long afterId, int limit, boolean newestFirst) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Comparator<SubmissionLog> byId = Comparator.comparingLong(SubmissionLog::id);
+        Comparator<SubmissionLog> order = newestFirst ? byId.reversed() : byId;
+        List<SubmissionLog> collected = new ArrayList<>();
+        List<Block> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (List<SubmissionLog> batch : sealing) {
+                addMatchesAfter(batch, query, afterId, newestFirst, collected);
+            }
+            addMatchesAfter(pending, query, afterId, newestFirst, collected);
+            for (Block block : blocks) {
+                if ((newestFirst ? block.minId < afterId : block.maxId > afterId) && block.mayMatch(query)) {
+                    candidates.add(block);
+                }
+            }
+        }
+        trim(collected, order, limit);
+        candidates.sort(newestFirst
+            ? Comparator.comparingLong((Block block) -> block.maxId).reversed()
+            : Comparator.comparingLong((Block block) -> block.minId));
+        for (Block block : candidates) {
+            if (collected.size() >= limit) {
+                long worst = collected.get(limit - 1).id();
+                if (newestFirst ? block.maxId < worst : block.minId > worst) {
+                    break; // 以降のブロックは受付番号順でさらに後ろにしか無い
+                }
+            }
+            addMatchesAfter(read(block), query, afterId, newestFirst, collected);
+            trim(collected, order, limit);
+        }
+        return Collections.unmodifiableList(collected);
+    }
+
+    private static void addMatchesAfter(List<SubmissionLog> source, SubmissionQuery query, long afterId,
+                                        boolean newestFirst, List<SubmissionLog> out) {
+        for (SubmissionLog submission : source) {
+            if ((newestFirst ? submission.id() < afterId : submission.id() > afterId) && query.matches(submission)) {
+                out.add(submission);
+            }
+        }
+    }
+
+    /**
+     * 受付日時が {@code [fromMillis, toMillis)} の申請を含み得るブロックごとの読み出し処理を返す。
+     * まだブロックに書き出していない申請は、呼び出し時点の内容を 1 つの要素にまとめる。
+     * <p>
+     * 集計のように全件を一度だけ読む用途向けで、ブロックは呼び出すたびに展開し、キャッシュには載せない。
+     */
+    List<Supplier<List<SubmissionLog>>> submittedBetween(long fromMillis, long toMillis) {
+        List<Supplier<List<SubmissionLog>>> sources = new ArrayList<>();
+        synchronized (this) {
+            List<SubmissionLog> unwritten = new ArrayList<>(pending);
+            sealing.forEach(unwritten::addAll);
+            if (!unwritten.isEmpty()) {
+                sources.add(() -> unwritten);
+            }
+            for (Block block : blocks) {
+                if (block.maxSubmittedAt >= fromMillis && block.minSubmittedAt < toMillis) {
+                    sources.add(() -> {
+                        try {
+                            return readBody(block.path);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(
+                                "Failed to read cold submission block " + block.path.getFileName(), ex);
+                        }
+                    });
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * 条件に一致する申請の件数を返す。ヘッダの件数で確定できるブロックは展開しない。
+     */
+    int count(SubmissionQuery query) {
+        long total = 0;
+        List<Block> scan = new ArrayList<>();
+        synchronized (this) {
+            for (List<SubmissionLog> batch : sealing) {
+                total += countMatches(batch, query);
+            }
+            total += countMatches(pending, query);
+            for (Block block : blocks) {
+                int exact = block.exactCount(query);
+                if (exact >= 0) {
+                    total += exact;
+                } else {
+                    scan.add(block);
+                }
+            }
+        }
+        for (Block block : scan) {
+            total += countMatches(read(block), query);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+
+    /**
+     * 溜まっている申請を（ブロックの件数に満たなくても）書き出し、書き出しが終わるまで待つ。
+     */
+    void flush() {
+        Future<?> last;
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                seal();
+            }
+            last = writer.submit(() -> { });
+        }
+        try {
+            last.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Failed to flush cold submissions", ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * ロック保護下で呼ぶこと。溜まっている申請を書き出し待ちに移し、書き出しを依頼する。
+     */
+    private void seal() {
+        List<SubmissionLog> batch = pending;
+        pending = new ArrayList<>(blockSize);
+        sealing.add(batch);
+        long blockNumber = nextBlockNumber++;
+        writer.execute(() -> {
+            try {
+                Block block = write(blockNumber, batch);
+                synchronized (this) {
+                    blocks.add(block);
+                    sealing.remove(batch);
+                }
+            } catch (IOException | RuntimeException ex) {
+                // 書き出せなかった申請は書き出し待ちのまま残り、検索とスナップショットの対象であり続ける
+                log.error("Failed to write cold submission block {} ({} entries)", blockNumber, batch.size(), ex);
+            }
+        });
+    }
+
+    private Block write(long blockNumber, List<SubmissionLog> batch) throws IOException {
+        long started = System.nanoTime();
+        List<SubmissionLog> sorted = new ArrayList<>(batch);
+        sorted.sort(Comparator.comparingLong(SubmissionLog::id));
+        Block block = Block.summarize(directory.resolve(String.format("%s%020d%s", BLOCK_PREFIX, blockNumber, BLOCK_SUFFIX)), sorted);
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(sorted.size() * 256);
+        for (SubmissionLog submission : sorted) {
+            raw.write(SubmissionLogCodec.encode(submission));
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 3);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, 1 << 16)) {
+            raw.writeTo(out);
+        } finally {
+            deflater.end();
+        }
+
+        Path temporary = directory.resolve(block.path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temporary);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            block.writeHeader(out);
+            out.writeInt(raw.size());
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+            file.flush();
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, block.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        cache.put(block.path, Collections.unmodifiableList(sorted));
+        log.debug("Wrote cold submission block {} with {} entries ({} -> {} bytes) in {} ms", block.path.getFileName(),
+            sorted.size(), raw.size(), compressed.size(), (System.nanoTime() - started) / 1_000_000);
+        return block;
+    }
+
+    /**
+     * ブロックの内容を受付番号順に返す。直近に展開したブロックはキャッシュから返す。
+     */
+    private List<SubmissionLog> read(Block block) {
+        List<SubmissionLog> cached = cache.get(block.path);
+        if (cached != null) {
+            return cached;
+        }
+        List<SubmissionLog> submissions;
+        try {
+            submissions = readBody(block.path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read cold submission block " + block.path.getFileName(), ex);
+        }
+        cache.put(block.path, submissions);
+        return submissions;
+    }
+
+    private static List<SubmissionLog> readBody(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+             CheckedInputStream checked = new CheckedInputStream(file, crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            Block.readHeader(path, in);
+            byte[] raw = new byte[in.readInt()];
+            byte[] compressed = new byte[in.readInt()];
+            in.readFully(compressed);
+            int expected = (int) crc.getValue();
+            if (new DataInputStream(file).readInt() != expected) {
+                throw new IOException("Cold block checksum mismatch: " + path);
+            }
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int inflated = 0;
+                while (inflated < raw.length && !inflater.finished()) {
+                    int n = inflater.inflate(raw, inflated, raw.length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated cold block body: " + path);
+                    }
+                    inflated += n;
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException("Corrupted cold block body: " + path, ex);
+            } finally {
+                inflater.end();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(raw);
+            List<SubmissionLog> submissions = new ArrayList<>();
+            while (buffer.hasRemaining()) {
+                submissions.add(SubmissionLogCodec.decode(buffer));
+            }
+            return Collections.unmodifiableList(submissions);
+        } catch (EOFException ex) {
+            throw new IOException("Truncated cold block: " + path, ex);
+        }
+    }
+
+    private void loadBlocks() throws IOException {
+        long started = System.nanoTime();
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(BLOCK_PREFIX) && name.endsWith(BLOCK_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+        long entries = 0;
+        for (Path path : paths) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+                Block block = Block.readHeader(path, in);
+                blocks.add(block);
+                entries += block.count;
+            } catch (IOException ex) {
+                log.warn("Ignoring unreadable cold submission block {}", path.getFileName(), ex);
+            }
+            String name = path.getFileName().toString();
+            nextBlockNumber = Math.max(nextBlockNumber,
+                Long.parseLong(name.substring(BLOCK_PREFIX.length(), name.length() - BLOCK_SUFFIX.length())) + 1);
+        }
+        log.info("Loaded {} cold submission blocks ({} entries) in {} ms",
+            blocks.size(), entries, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * 受付番号が書き出し済みのブロックに含まれているかどうか。起動時の復元中だけ使う。
+     */
+    private boolean isStored(long id) {
+        for (Block block : blocks) {
+            if (id >= block.minId && id <= block.maxId) {
+                List<SubmissionLog> submissions = read(block);
+                int low = 0;
+                int high = submissions.size() - 1;
+                while (low <= high) {
+                    int middle = (low + high) >>> 1;
+                    long middleId = submissions.get(middle).id();
+                    if (middleId < id) {
+                        low = middle + 1;
+                    } else if (middleId > id) {
+                        high = middle - 1;
+                    } else {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void addMatches(List<SubmissionLog> source, SubmissionQuery query, List<SubmissionLog> out) {
+        boolean unfiltered = query.isUnfiltered();
+        for (SubmissionLog submission : source) {
+            if (unfiltered || query.matches(submission)) {
+                out.add(submission);
+            }
+        }
+    }
+
+    private static long countMatches(List<SubmissionLog> source, SubmissionQuery query) {
+        if (query.isUnfiltered()) {
+            return source.size();
+        }
+        long count = 0;
+        for (SubmissionLog submission : source) {
+            if (query.matches(submission)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void trim(List<SubmissionLog> collected, Comparator<SubmissionLog> order, int limit) {
+        collected.sort(order);
+        if (collected.size() > limit) {
+            collected.subList(limit, collected.size()).clear();
+        }
+    }
+
+    /**
+     * ブロックのヘッダ。検索時にブロックを展開せずに読み飛ばすための要約を持つ。
+     */
+    private static final class Block {
+        private final Path path;
+        private final int count;
+        private final long minId;
+        private final long maxId;
+        private final long minSubmittedAt;
+        private final long maxSubmittedAt;
+        private final int minDesiredDay;
+        private final int maxDesiredDay;
+        private final boolean hasUndated;
+        private final Map<String, Integer> requestTypeCounts;
+        private final Map<String, Integer> departmentCounts;
+        private final long[] applicantBloom;
+
+        private Block(Path path, int count, long minId, long maxId, long minSubmittedAt, long maxSubmittedAt,
+                      int minDesiredDay, int maxDesiredDay, boolean hasUndated, Map<String, Integer> requestTypeCounts,
+                      Map<String, Integer> departmentCounts, long[] applicantBloom) {
+            this.path = path;
+            this.count = count;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.minSubmittedAt = minSubmittedAt;
+            this.maxSubmittedAt = maxSubmittedAt;
+            this.minDesiredDay = minDesiredDay;
+            this.maxDesiredDay = maxDesiredDay;
+            this.hasUndated = hasUndated;
+            this.requestTypeCounts = requestTypeCounts;
+            this.departmentCounts = departmentCounts;
+            this.applicantBloom = applicantBloom;
+        }
+
+        /**
+         * 受付番号順に並んだ申請からヘッダを作る。
+         */
+        static Block summarize(Path path, List<SubmissionLog> sorted) {
+            long minSubmittedAt = Long.MAX_VALUE;
+            long maxSubmittedAt = Long.MIN_VALUE;
+            int minDesiredDay = Integer.MAX_VALUE;
+            int maxDesiredDay = NO_DATE;
+            boolean hasUndated = false;
+            Map<String, Integer> requestTypeCounts = new HashMap<>();
+            Map<String, Integer> departmentCounts = new HashMap<>();
+            long[] bloom = new long[Math.max(1, (sorted.size() * BLOOM_BITS_PER_ENTRY + 63) / 64)];
+            for (SubmissionLog submission : sorted) {
+                minSubmittedAt = Math.min(minSubmittedAt, submission.submittedAtMillis());
+                maxSubmittedAt = Math.max(maxSubmittedAt, submission.submittedAtMillis());
+                int day = submission.desiredEpochDay();
+                if (day == SubmissionLog.NO_DESIRED_DATE) {
+                    hasUndated = true;
+                } else {
+                    minDesiredDay = Math.min(minDesiredDay, day);
+                    maxDesiredDay = Math.max(maxDesiredDay, day);
+                }
+                requestTypeCounts.merge(submission.requestType(), 1, Integer::sum);
+                departmentCounts.merge(submission.department(), 1, Integer::sum);
+                if (submission.applicantId() != null) {
+                    bloomAdd(bloom, submission.applicantId());
+                }
+            }
+            return new Block(path, sorted.size(), sorted.get(0).id(), sorted.get(sorted.size() - 1).id(),
+                minSubmittedAt, maxSubmittedAt, maxDesiredDay == NO_DATE ? NO_DATE : minDesiredDay, maxDesiredDay,
+                hasUndated, requestTypeCounts, departmentCounts, bloom);
+        }
+
+        void writeHeader(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(count);
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            out.writeLong(minSubmittedAt);
+            out.writeLong(maxSubmittedAt);
+            out.writeInt(minDesiredDay);
+            out.writeInt(maxDesiredDay);
+            out.writeBoolean(hasUndated);
+            writeCounts(out, requestTypeCounts);
+            writeCounts(out, departmentCounts);
+            out.writeInt(applicantBloom.length);
+            for (long word : applicantBloom) {
+                out.writeLong(word);
+            }
+        }
+
+        static Block readHeader(Path path, DataInputStream in) throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cold submission block: " + path);
+            }
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported cold block version: " + version);
+            }
+            int count = in.readInt();
+            long minId = in.readLong();
+            long maxId = in.readLong();
+            long minSubmittedAt = in.readLong();
+            long maxSubmittedAt = in.readLong();
+            int minDesiredDay = in.readInt();
+            int maxDesiredDay = in.readInt();
+            boolean hasUndated = in.readBoolean();
+            Map<String, Integer> requestTypeCounts = readCounts(in);
+            Map<String, Integer> departmentCounts = readCounts(in);
+            long[] bloom = new long[in.readInt()];
+            for (int i = 0; i < bloom.length; i++) {
+                bloom[i] = in.readLong();
+            }
+            return new Block(path, count, minId, maxId, minSubmittedAt, maxSubmittedAt, minDesiredDay, maxDesiredDay,
+                hasUndated, requestTypeCounts, departmentCounts, bloom);
+        }
+
+        /**
+         * ヘッダから見て、条件に一致する申請を含み得るかどうか。
+         */
+        boolean mayMatch(SubmissionQuery query) {
+            if (query.requestType() != null && !requestTypeCounts.containsKey(query.requestType())) {
+                return false;
+            }
+            if (query.department() != null && !departmentCounts.containsKey(query.department())) {
+                return false;
+            }
+            if (query.applicantId() != null && !bloomMightContain(applicantBloom, query.applicantId())) {
+                return false;
+            }
+            if (query.hasDateRange()) {
+                if (maxDesiredDay == NO_DATE) {
+                    return false;
+                }
+                if (query.desiredFrom() != null && maxDesiredDay < query.desiredFrom().toEpochDay()) {
+                    return false;
+                }
+                if (query.desiredTo() != null && minDesiredDay > query.desiredTo().toEpochDay()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * ヘッダだけで確定できる場合は一致件数を、確定できない場合は -1 を返す。
+         */
+        int exactCount(SubmissionQuery query) {
+            if (!mayMatch(query)) {
+                return 0;
+            }
+            if (query.applicantId() != null || (query.requestType() != null && query.department() != null)) {
+                return -1;
+            }
+            if (query.hasDateRange() && !coversAllDates(query)) {
+                return -1;
+            }
+            if (query.requestType() != null) {
+                return requestTypeCounts.get(query.requestType());
+            }
+            if (query.department() != null) {
+                return departmentCounts.get(query.department());
+            }
+            return count;
+        }
+
+        private boolean coversAllDates(SubmissionQuery query) {
+            return !hasUndated
+                && (query.desiredFrom() == null || query.desiredFrom().toEpochDay() <= minDesiredDay)
+                && (query.desiredTo() == null || query.desiredTo().toEpochDay() >= maxDesiredDay);
+        }
+
+        /**
+         * 並び順で {@code worst} より前に来る申請を含み得るかどうか。
+         */
+        boolean mayPrecede(SubmissionLog worst, boolean newestFirst) {
+            return newestFirst ? maxId > worst.id() : minId < worst.id();
+        }
+
+        private static void writeCounts(DataOutputStream out, Map<String, Integer> counts) throws IOException {
+            out.writeInt(counts.size());
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                out.writeBoolean(entry.getKey() != null);
+                if (entry.getKey() != null) {
+                    out.writeUTF(entry.getKey());
+                }
+                out.writeInt(entry.getValue());
+            }
+        }
+
+        private static Map<String, Integer> readCounts(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            Map<String, Integer> counts = new HashMap<>(Math.max(16, size * 2));
+            for (int i = 0; i < size; i++) {
+                String key = in.readBoolean() ? in.readUTF() : null;
+                counts.put(key, in.readInt());
+            }
+            return counts;
+        }
+
+        private static void bloomAdd(long[] bloom, String value) {
+            int hash = value.hashCode();
+            int step = Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+            long bits = (long) bloom.length * 64;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(hash + (long) i * step, bits);
+                bloom[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        private static boolean bloomMightContain(long[] bloom, String value) {
+            int hash = value.hashCode();
+            int step = Integer.rotateLeft(hash * 0x9E3779B9, 16) | 1;
+            long bits = (long) bloom.length * 64;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                long bit = Math.floorMod(hash + (long) i * step, bits);
+                if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
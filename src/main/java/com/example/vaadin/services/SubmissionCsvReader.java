@@ -0,0 +1,125 @@
+package com.example.vaadin.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 形式の CSV をレコード単位で順に読み出す。
+ * <p>
+ * 入力を固定長の文字バッファ越しに 1 文字ずつ読むため、ファイル全体をメモリに載せない。
+ * 引用符で囲まれたフィールド内の改行・カンマ・二重引用符（{@code ""}）に対応し、
+ * 行末は CRLF / LF のどちらでもよい。先頭の BOM は読み飛ばす。
+ * <p>
+ * このクラスはスレッドセーフではない。
+ */
+class SubmissionCsvReader {
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_CHARS];
+    private final StringBuilder field = new StringBuilder(256);
+    private int position;
+    private int limit;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    private boolean started;
+
+    SubmissionCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * 次のレコードを読み出す。
+     *
+     * @return フィールドのリスト。入力の終端に達した場合は {@code null}
+     * @throws IOException 読み込みに失敗した場合、または引用符が閉じられないまま終端に達した場合
+     */
+    List<String> next() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == '\uFEFF') {
+                position++;
+            }
+        }
+        int c = peek();
+        if (c < 0) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean afterQuote = false;
+        while (true) {
+            c = read();
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field starting at line " + recordLineNumber);
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        position++;
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        afterQuote = true;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+                continue;
+            }
+            if (c == '"' && field.length() == 0 && !afterQuote) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                afterQuote = false;
+            } else if (c == '\r' || c == '\n' || c < 0) {
+                if (c == '\r' && peek() == '\n') {
+                    position++;
+                }
+                if (c >= 0) {
+                    lineNumber++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * 直前に {@link #next()} で読み出したレコードの開始行番号（1 始まり）を返す。
+     */
+    long recordLineNumber() {
+        return recordLineNumber;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.vaadin.services;
+
+/**
+ * 申請履歴のエクスポート形式。
+ */
+public enum SubmissionExportFormat {
+
+    /** Excel でそのまま開けるよう BOM 付き UTF-8 で出力する CSV（RFC 4180）。 */
+    CSV("text/csv; charset=UTF-8", "csv"),
+
+    /** 1 行に 1 件の JSON オブジェクトを出力する NDJSON。 */
+    NDJSON("application/x-ndjson; charset=UTF-8", "ndjson");
+
+    private final String contentType;
+    private final String fileExtension;
+
+    SubmissionExportFormat(String contentType, String fileExtension) {
+        this.contentType = contentType;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 申請履歴を 1 件ずつ CSV / NDJSON に変換して出力ストリームへ書き出す。
+ * <p>
+ * 1 行ぶんの文字列組み立てバッファ、UTF-8 エンコーダ、出力用の固定長バイトバッファを
+ * 使い回すため、出力件数に関わらずメモリ使用量は一定である。バイトバッファが埋まった時点で
+ * 出力ストリームへ書き出すので、どれだけ大きなファイルでも保持するのは 1 チャンクぶんだけになる。
+ * <p>
+ * このクラスはスレッドセーフではない。出力ストリームは閉じないため、呼び出し側で管理すること。
+ */
+class SubmissionExportWriter implements Flushable {
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final String[] CSV_HEADER = {
+        "id", "submittedAt", "applicantId", "applicantName", "contactEmail",
+        "department", "requestType", "desiredDate", "description"
+    };
+
+    private final OutputStream out;
+    private final SubmissionExportFormat format;
+    private final StringBuilder line = new StringBuilder(1024);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+
+    SubmissionExportWriter(OutputStream out, SubmissionExportFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * ファイル先頭の BOM とヘッダ行を書き出す。NDJSON の場合は何も書かない。
+     */
+    void writeHeader() throws IOException {
+        if (format != SubmissionExportFormat.CSV) {
+            return;
+        }
+        chunk.put(UTF8_BOM);
+        line.setLength(0);
+        for (int i = 0; i < CSV_HEADER.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(CSV_HEADER[i]);
+        }
+        line.append("\r\n");
+        encodeLine();
+    }
+
+    void write(SubmissionLog submission) throws IOException {
+        line.setLength(0);
+        if (format == SubmissionExportFormat.CSV) {
+            appendCsv(submission);
+        } else {
+            appendJson(submission);
+        }
+        encodeLine();
+    }
+
+    /**
+     * バッファに残っている内容を出力ストリームへ書き出す。
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void appendCsv(SubmissionLog submission) {
+        line.append(submission.id()).append(',');
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(submission.submittedAt(), line);
+        line.append(',');
+        appendCsvField(submission.applicantId()).append(',');
+        appendCsvField(submission.applicantName()).append(',');
+        appendCsvField(submission.contactEmail()).append(',');
+        appendCsvField(submission.department()).append(',');
+        appendCsvField(submission.requestType()).append(',');
+        LocalDate desiredDate = submission.desiredDate();
+        if (desiredDate != null) {
+            DateTimeFormatter.ISO_LOCAL_DATE.formatTo(desiredDate, line);
+        }
+        line.append(',');
+        appendCsvField(submission.description()).append("\r\n");
+    }
+
+    private StringBuilder appendCsvField(String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private void appendJson(SubmissionLog submission) {
+        line.append("{\"id\":").append(submission.id());
+        line.append(",\"submittedAt\":\"");
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(submission.submittedAt(), line);
+        line.append('"');
+        JsonFields.append(line, "applicantId", submission.applicantId());
+        JsonFields.append(line, "applicantName", submission.applicantName());
+        JsonFields.append(line, "contactEmail", submission.contactEmail());
+        JsonFields.append(line, "department", submission.department());
+        JsonFields.append(line, "requestType", submission.requestType());
+        line.append(",\"desiredDate\":");
+        LocalDate desiredDate = submission.desiredDate();
+        if (desiredDate == null) {
+            line.append("null");
+        } else {
+            line.append('"');
+            DateTimeFormatter.ISO_LOCAL_DATE.formatTo(desiredDate, line);
+            line.append('"');
+        }
+        JsonFields.append(line, "description", submission.description());
+        line.append("}\n");
+    }
+
+    /**
+     * 組み立てた 1 行をエンコードしてバイトバッファへ詰める。バッファが埋まるたびに出力ストリームへ書き出す。
+     */
+    private void encodeLine() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, chunk, true);
+            if (result.isOverflow()) {
+                drain();
+            }
+        } while (result.isOverflow());
+        while (encoder.flush(chunk).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (chunk.position() > 0) {
+            out.write(chunk.array(), 0, chunk.position());
+            chunk.clear();
+        }
+    }
+}
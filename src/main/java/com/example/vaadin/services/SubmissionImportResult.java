@@ -0,0 +1,22 @@
+package com.example.vaadin.services;
+
+import java.util.List;
+
+/**
+ * 申請の一括取り込み結果。
+ *
+ * @param importedCount 取り込んだ件数
+ * @param rejectedCount 形式不正や入力チェックエラーで取り込まなかった件数
+ * @param errors        取り込まなかった行ごとのエラー（行番号順。件数が多い場合は先頭から一定件数まで）
+ */
+public record SubmissionImportResult(long importedCount, long rejectedCount, List<RowError> errors) {
+
+    /**
+     * 取り込まなかった行のエラー内容。
+     *
+     * @param lineNumber CSV 上の行番号（1 始まり。ヘッダ行を含む）
+     * @param message    エラー内容
+     */
+    public record RowError(long lineNumber, String message) {
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+import com.example.vaadin.services.SubmissionImportResult.RowError;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * CSV から申請を一括で取り込む。
+ * <p>
+ * CSV は {@link SubmissionCsvReader} で先頭から順に読み、{@code batchSize} 行ごとのチャンクに区切る。
+ * 各チャンクの値変換と入力チェック（{@link SimpleApplicationRequest} の Jakarta Validation アノテーションを
+ * {@link CompiledBeanValidator} で検査）は専用の {@link ForkJoinPool} 上で分割統治により並列に行い、
+ * その間に読み込みスレッドは次のチャンクを読む。
+ * 画面からの取り込みは {@link #reader()} の専用スレッドで 1 件ずつ順に実行し、共通の {@link ForkJoinPool} は使わない。
+ * チェックを通過した行はチャンク単位でまとめて保存処理へ渡すため、保持するのは高々 2 チャンクぶんである。
+ * <p>
+ * 列はヘッダ行の名前で対応付け、エクスポート（{@link SubmissionExportWriter}）と同じ列名を受け付ける。
+ * {@code id} 列は無視し、受付番号は取り込み時に採番し直す。{@code submittedAt} 列が無い、または空の場合は取り込み日時を使う。
+ */
+class SubmissionImporter implements AutoCloseable {
+
+    /** エラー内容を保持する行数の上限。超えた分は件数のみ数える。 */
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    /** 1 つの fork-join タスクで直接処理する行数。 */
+    private static final int VALIDATION_THRESHOLD = 256;
+
+    private static final DateTimeFormatter SLASH_DATE = DateTimeFormatter.ofPattern("yyyy/M/d");
+    private static final DateTimeFormatter SLASH_DATE_TIME = DateTimeFormatter.ofPattern("yyyy/M/d H:mm[:ss]");
+
+    /**
+     * 取り込み対象の列。
+     */
+    private enum Column {
+        SUBMITTED_AT("submittedAt", false),
+        APPLICANT_ID("applicantId", true),
+        APPLICANT_NAME("applicantName", true),
+        CONTACT_EMAIL("contactEmail", true),
+        DEPARTMENT("department", false),
+        REQUEST_TYPE("requestType", true),
+        DESIRED_DATE("desiredDate", true),
+        DESCRIPTION("description", false);
+
+        private final String header;
+        private final boolean required;
+
+        Column(String header, boolean required) {
+            this.header = header;
+            this.required = required;
+        }
+    }
+
+    private final CompiledBeanValidator<SimpleApplicationRequest> validator =
+        CompiledBeanValidator.of(SimpleApplicationRequest.class);
+    private final int batchSize;
+    private final ForkJoinPool pool;
+    private final ExecutorService reader;
+
+    SubmissionImporter(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("submission-import-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.reader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "submission-import-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 非同期の取り込みで CSV を読む専用スレッド。取り込みは投入順に 1 件ずつ実行される。
+     */
+    ExecutorService reader() {
+        return reader;
+    }
+
+    /**
+     * CSV を読み込み、チェックを通過した行を {@code sink} へチャンク単位で渡す。
+     * <p>
+     * 読み込みの途中で失敗した場合、それまでに {@code sink} へ渡した行は取り消されない。
+     *
+     * @param reader CSV の入力
+     * @param sink   チェックを通過した行の保存処理（読み込みスレッドから呼び出される）
+     * @return 取り込み結果
+     * @throws IOException 入力の読み込みに失敗した場合
+     */
+    SubmissionImportResult importCsv(Reader reader, Consumer<List<ImportedRow>> sink) throws IOException {
+        SubmissionCsvReader csv = new SubmissionCsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return new SubmissionImportResult(0, 0, List.of());
+        }
+        int[] columns = mapColumns(header);
+        List<String> missing = new ArrayList<>();
+        for (Column column : Column.values()) {
+            if (column.required && columns[column.ordinal()] < 0) {
+                missing.add(column.header);
+            }
+        }
+        if (!missing.isEmpty()) {
+            return new SubmissionImportResult(0, 0,
+                List.of(new RowError(csv.recordLineNumber(), "必須の列がありません: " + String.join(", ", missing))));
+        }
+
+        Report report = new Report();
+        Row[] pending = null;
+        ForkJoinTask<Void> pendingTask = null;
+        while (true) {
+            // 前のチャンクを検証している間に次のチャンクを読む
+            Row[] chunk = readChunk(csv, header.size());
+            if (pending != null) {
+                pendingTask.join();
+                report.accept(pending, sink);
+            }
+            if (chunk.length == 0) {
+                break;
+            }
+            pendingTask = pool.submit(new ValidationTask(chunk, 0, chunk.length, columns));
+            pending = chunk;
+        }
+        return report.toResult();
+    }
+
+    private Row[] readChunk(SubmissionCsvReader csv, int columnCount) throws IOException {
+        List<Row> rows = new ArrayList<>(batchSize);
+        List<String> fields;
+        while (rows.size() < batchSize && (fields = csv.next()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue; // 空行
+            }
+            Row row = new Row(csv.recordLineNumber(), fields);
+            if (fields.size() != columnCount) {
+                row.error = "列数がヘッダと一致しません（" + fields.size() + " 列）";
+            }
+            rows.add(row);
+        }
+        return rows.toArray(new Row[0]);
+    }
+
+    private static int[] mapColumns(List<String> header) {
+        int[] columns = new int[Column.values().length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            for (Column column : Column.values()) {
+                if (column.header.equals(name)) {
+                    columns[column.ordinal()] = i;
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 行の値を変換し、入力チェックを行う。ワーカースレッド上で呼び出される。
+     */
+    private void convertAndValidate(Row row, int[] columns) {
+        if (row.error != null) {
+            return;
+        }
+        SimpleApplicationRequest request = new SimpleApplicationRequest();
+        request.setApplicantId(value(row, columns, Column.APPLICANT_ID));
+        request.setApplicantName(value(row, columns, Column.APPLICANT_NAME));
+        request.setContactEmail(value(row, columns, Column.CONTACT_EMAIL));
+        request.setDepartment(value(row, columns, Column.DEPARTMENT));
+        request.setRequestType(value(row, columns, Column.REQUEST_TYPE));
+        request.setDescription(value(row, columns, Column.DESCRIPTION));
+        try {
+            String desiredDate = value(row, columns, Column.DESIRED_DATE);
+            request.setDesiredDate(desiredDate == null ? null : parseDate(desiredDate));
+        } catch (DateTimeParseException ex) {
+            row.error = "希望日の形式が不正です: " + ex.getParsedString();
+            return;
+        }
+        try {
+            String submittedAt = value(row, columns, Column.SUBMITTED_AT);
+            row.submittedAt = submittedAt == null ? null : parseDateTime(submittedAt);
+        } catch (DateTimeParseException ex) {
+            row.error = "受付日時の形式が不正です: " + ex.getParsedString();
+            return;
+        }
+
+        List<CompiledBeanValidator.Violation> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            StringJoiner messages = new StringJoiner(" / ");
+            violations.forEach(violation -> messages.add(violation.message()));
+            row.error = messages.toString();
+            return;
+        }
+        row.request = request;
+    }
+
+    private static String value(Row row, int[] columns, Column column) {
+        int index = columns[column.ordinal()];
+        if (index < 0) {
+            return null;
+        }
+        String value = row.fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static LocalDate parseDate(String value) {
+        return value.indexOf('/') >= 0 ? LocalDate.parse(value, SLASH_DATE) : LocalDate.parse(value);
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        return value.indexOf('/') >= 0 ? LocalDateTime.parse(value, SLASH_DATE_TIME) : LocalDateTime.parse(value);
+    }
+
+    @Override
+    public void close() {
+        reader.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * チェックを通過した行。
+     *
+     * @param request     申請内容
+     * @param submittedAt CSV に記載された受付日時。記載が無い場合は {@code null}
+     */
+    record ImportedRow(SimpleApplicationRequest request, LocalDateTime submittedAt) {
+    }
+
+    /**
+     * 読み込んだ 1 行。ワーカースレッドが変換・チェック結果を書き込み、{@link ForkJoinTask#join()} 後に読み込みスレッドが読む。
+     */
+    private static final class Row {
+        private final long lineNumber;
+        private final List<String> fields;
+        private SimpleApplicationRequest request;
+        private LocalDateTime submittedAt;
+        private String error;
+
+        Row(long lineNumber, List<String> fields) {
+            this.lineNumber = lineNumber;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * チャンクを半分ずつに分割し、{@link #VALIDATION_THRESHOLD} 行以下になったら直接処理する。
+     */
+    private final class ValidationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Row[] rows;
+        private final int from;
+        private final int to;
+        private final int[] columns;
+
+        ValidationTask(Row[] rows, int from, int to, int[] columns) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.columns = columns;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= VALIDATION_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    convertAndValidate(rows[i], columns);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidationTask(rows, from, middle, columns), new ValidationTask(rows, middle, to, columns));
+        }
+    }
+
+    /**
+     * 取り込み件数とエラー内容を集計する。読み込みスレッドからのみ使う。
+     */
+    private static final class Report {
+        private long imported;
+        private long rejected;
+        private final List<RowError> errors = new ArrayList<>();
+
+        void accept(Row[] rows, Consumer<List<ImportedRow>> sink) {
+            List<ImportedRow> accepted = new ArrayList<>(rows.length);
+            for (Row row : rows) {
+                if (row.request != null) {
+                    accepted.add(new ImportedRow(row.request, row.submittedAt));
+                    continue;
+                }
+                rejected++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new RowError(row.lineNumber, row.error));
+                }
+            }
+            if (!accepted.isEmpty()) {
+                sink.accept(accepted);
+                imported += accepted.size();
+            }
+        }
+
+        SubmissionImportResult toResult() {
+            return new SubmissionImportResult(imported, rejected, Collections.unmodifiableList(errors));
+        }
+    }
+}
@@ -0,0 +1,690 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 申請履歴の二次インデックス。
+ * <p>
+ * 申請者ID・申請区分・所属部署はハッシュインデックス、希望日は日付順のスキップリストで保持する。
+ * 各ポスティングは受付番号順に並んでおり（どちら向きにも読める）、検索時は最も件数の少ない
+ * ポスティングだけを走査して残りの条件で絞り込む。希望日の範囲で絞る場合は、範囲内の日付ごとのポスティングを
+ * 受付番号順に k-way マージし、必要な件数が揃った時点で打ち切る（件数だけを求める場合は並べずに数える）。
+ * <p>
+ * 全件のポスティングも持ち、受付番号をカーソルにした検索（{@link #queryAfter}）は条件の有無に関わらず
+ * ポスティング上でカーソル位置へ直接移動する。読み飛ばしが無いため、深いページでも取得件数ぶんの走査で済む。
+ * <p>
+ * {@link ApplicationRequestService} が登録・押し出しのたびに {@link #add}/{@link #remove} を呼び出し、
+ * 履歴ストアと同じ内容を差分で維持する。
+ */
+class SubmissionIndex {
+
+    /** 一致するキーが存在しないことを表す番兵。 */
+    private static final Posting EMPTY = new Posting();
+
+    private final ConcurrentHashMap<String, Posting> byApplicantId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Posting> byRequestType = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Posting> byDepartment = new ConcurrentHashMap<>();
+    /** 日付の種類は限られるため、空になったポスティングも削除せずに残す。 */
+    private final ConcurrentSkipListMap<LocalDate, Posting> byDesiredDate = new ConcurrentSkipListMap<>();
+    /** 全件のポスティング。カーソル指定の検索で、ハッシュ条件が無い場合の走査に使う。 */
+    private final Posting all = new Posting();
+
+    void add(SubmissionLog log) {
+        all.add(log);
+        addTo(byApplicantId, log.applicantId(), log);
+        addTo(byRequestType, log.requestType(), log);
+        addTo(byDepartment, log.department(), log);
+        LocalDate date = log.desiredDate();
+        if (date != null) {
+            Posting posting = byDesiredDate.get(date);
+            if (posting == null) {
+                Posting created = new Posting();
+                posting = byDesiredDate.putIfAbsent(date, created);
+                if (posting == null) {
+                    posting = created;
+                }
+            }
+            posting.add(log);
+        }
+    }
+
+    void remove(SubmissionLog log) {
+        all.remove(log);
+        removeFrom(byApplicantId, log.applicantId(), log);
+        removeFrom(byRequestType, log.requestType(), log);
+        removeFrom(byDepartment, log.department(), log);
+        LocalDate date = log.desiredDate();
+        if (date != null) {
+            Posting posting = byDesiredDate.get(date);
+            if (posting != null) {
+                posting.remove(log);
+            }
+        }
+    }
+
+    /**
+     * 履歴がインデックスに含まれている（押し出されていない）かどうか。
+     */
+    boolean contains(SubmissionLog log) {
+        return all.contains(log);
+    }
+
+    /**
+     * 受付番号が {@code beforeId} より小さい履歴のうち最も新しいもの。無い場合は {@code null}。
+     */
+    SubmissionLog newestBefore(long beforeId) {
+        return all.newestBefore(beforeId);
+    }
+
+    /**
+     * 条件に一致する履歴を受付番号順にページ単位で取得する。条件なしの検索は全件のポスティングを読む。
+     *
+     * @param newestFirst {@code true} の場合は受付番号の大きい順、{@code false} の場合は小さい順
+     */
+    List<SubmissionLog> query(SubmissionQuery query, int offset, int limit, boolean newestFirst) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Posting driver = smallestHashPosting(query);
+        if (driver == EMPTY) {
+            return Collections.emptyList();
+        }
+        if (query.hasDateRange() && (driver == null || dateRangeSize(query) < driver.size())) {
+            return mergeDateRange(query, newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE, newestFirst, offset, limit);
+        }
+        if (driver == null) {
+            driver = all;
+        }
+
+        List<SubmissionLog> result = new ArrayList<>(Math.min(limit, driver.size()));
+        int skipped = 0;
+        for (SubmissionLog log : newestFirst ? driver.newestFirst() : driver.oldestFirst()) {
+            if (!query.matches(log)) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result.add(log);
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 受付番号が {@code afterId} より後ろ（新しい順なら小さい番号、古い順なら大きい番号）で条件に一致する履歴を
+     * 受付番号順に最大 {@code limit} 件返す。条件なしの検索も扱う。
+     *
+     * @param afterId     前のページの最後の受付番号。先頭ページは新しい順なら {@link Long#MAX_VALUE}、古い順なら 0
+     * @param newestFirst {@code true} の場合は受付番号の大きい順、{@code false} の場合は小さい順
+     */
+    List<SubmissionLog> queryAfter(SubmissionQuery query, long afterId, int limit, boolean newestFirst) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Posting driver = smallestHashPosting(query);
+        if (driver == EMPTY) {
+            return Collections.emptyList();
+        }
+        if (driver == null) {
+            driver = all;
+        }
+        if (query.hasDateRange() && dateRangeSize(query) < driver.size()) {
+            return mergeDateRange(query, afterId, newestFirst, 0, limit);
+        }
+        List<SubmissionLog> result = new ArrayList<>(Math.min(limit, driver.size()));
+        collectAfter(driver, query, afterId, limit, newestFirst, result);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static void collectAfter(Posting posting, SubmissionQuery query, long afterId, int limit,
+                                     boolean newestFirst, List<SubmissionLog> out) {
+        int added = 0;
+        for (SubmissionLog log : posting.after(afterId, newestFirst)) {
+            if (query.matches(log)) {
+                out.add(log);
+                if (++added == limit) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 条件に一致する件数を返す。条件が 1 つだけの場合はポスティングの件数をそのまま返す。
+     */
+    int count(SubmissionQuery query) {
+        requireFiltered(query);
+        Posting driver = smallestHashPosting(query);
+        if (driver == EMPTY) {
+            return 0;
+        }
+        int conditions = (query.applicantId() != null ? 1 : 0)
+            + (query.requestType() != null ? 1 : 0)
+            + (query.department() != null ? 1 : 0);
+        if (conditions == 1 && !query.hasDateRange()) {
+            return driver.size();
+        }
+        if (conditions == 0 && query.hasDateRange()) {
+            return dateRangeSize(query);
+        }
+        if (query.hasDateRange() && dateRangeSize(query) < driver.size()) {
+            // 並び順は関係ないため、日付ごとのポスティングをそのまま数える
+            int count = 0;
+            for (Posting posting : dateRange(query).values()) {
+                count += countMatches(posting, query);
+            }
+            return count;
+        }
+        return countMatches(driver, query);
+    }
+
+    /**
+     * 指定されたハッシュ条件のうち最も件数の少ないポスティングを返す。
+     *
+     * @return ハッシュ条件が無い場合は {@code null}、一致するキーが存在しない条件がある場合は {@link #EMPTY}
+     */
+    private Posting smallestHashPosting(SubmissionQuery query) {
+        Posting smallest = null;
+        for (Posting posting : new Posting[] {
+            lookup(byApplicantId, query.applicantId()),
+            lookup(byRequestType, query.requestType()),
+            lookup(byDepartment, query.department())}) {
+            if (posting == EMPTY) {
+                return EMPTY;
+            }
+            if (posting != null && (smallest == null || posting.size() < smallest.size())) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    private int dateRangeSize(SubmissionQuery query) {
+        int size = 0;
+        for (Posting posting : dateRange(query).values()) {
+            size += posting.size();
+        }
+        return size;
+    }
+
+    private static int countMatches(Posting posting, SubmissionQuery query) {
+        int count = 0;
+        for (SubmissionLog log : posting.newestFirst()) {
+            if (query.matches(log)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 日付ごとのポスティング（それぞれ受付番号順に並んでいる）を k-way マージし、受付番号が {@code afterId} より後ろで
+     * 条件に一致する履歴を、先頭から {@code offset} 件読み飛ばして最大 {@code limit} 件返す。
+     * {@code offset + limit} 件が確定した時点で打ち切るため、範囲内の全件を集めて並べ替えることはしない。
+     */
+    private List<SubmissionLog> mergeDateRange(SubmissionQuery query, long afterId, boolean newestFirst,
+                                               int offset, int limit) {
+        Comparator<SubmissionLog> byId = Comparator.comparingLong(SubmissionLog::id);
+        Comparator<SubmissionLog> order = newestFirst ? byId.reversed() : byId;
+        PriorityQueue<DateCursor> heads = new PriorityQueue<>((left, right) -> order.compare(left.head, right.head));
+        for (Posting posting : dateRange(query).values()) {
+            DateCursor cursor = new DateCursor(posting.after(afterId, newestFirst).iterator());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        List<SubmissionLog> result = new ArrayList<>(Math.min(limit, 256));
+        int skipped = 0;
+        while (!heads.isEmpty() && result.size() < limit) {
+            DateCursor cursor = heads.poll();
+            SubmissionLog log = cursor.head;
+            if (query.matches(log)) {
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    result.add(log);
+                }
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private NavigableMap<LocalDate, Posting> dateRange(SubmissionQuery query) {
+        LocalDate from = query.desiredFrom();
+        LocalDate to = query.desiredTo();
+        if (from != null && to != null) {
+            return from.isAfter(to) ? Collections.emptyNavigableMap() : byDesiredDate.subMap(from, true, to, true);
+        }
+        if (from != null) {
+            return byDesiredDate.tailMap(from, true);
+        }
+        return byDesiredDate.headMap(to, true);
+    }
+
+    private static void requireFiltered(SubmissionQuery query) {
+        if (query.isUnfiltered()) {
+            throw new IllegalArgumentException("Unfiltered queries must be served by the submission store");
+        }
+    }
+
+    private static Posting lookup(ConcurrentHashMap<String, Posting> index, String key) {
+        if (key == null) {
+            return null;
+        }
+        Posting posting = index.get(key);
+        return posting == null ? EMPTY : posting;
+    }
+
+    private static void addTo(ConcurrentHashMap<String, Posting> index, String key, SubmissionLog log) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, posting) -> {
+            Posting target = posting == null ? new Posting() : posting;
+            target.add(log);
+            return target;
+        });
+    }
+
+    private static void removeFrom(ConcurrentHashMap<String, Posting> index, String key, SubmissionLog log) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, posting) -> {
+            posting.remove(log);
+            return posting.size() == 0 ? null : posting;
+        });
+    }
+
+    /**
+     * k-way マージで読み進める、1 つの日付のポスティングの位置。
+     */
+    private static final class DateCursor {
+        private final Iterator<SubmissionLog> iterator;
+        private SubmissionLog head;
+
+        DateCursor(Iterator<SubmissionLog> iterator) {
+            this.iterator = iterator;
+        }
+
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+    }
+
+    /**
+     * 1 つのキーに対応する履歴の集合。受付番号の昇順に並び、どちら向きにも読める。
+     * <p>
+     * 履歴への参照を最大 {@link #CHUNK_SIZE} 件ずつ配列（チャンク）に詰めて持つため、1 件あたりの負担は参照 1 つ分で済み、
+     * 受付番号をボクシングしたキーやスキップリストのノードは作らない。
+     * 受付番号は概ね昇順に届き、押し出しは概ね古い順に起こるため、追加は末尾のチャンクへの追記、削除は先頭のチャンクの
+     * 参照を消すだけで済む。受付番号が前後して届いた場合は、該当するチャンクだけを作り直して順序を保つ。
+     * <p>
+     * 更新はポスティングごとに排他するが、読み取りはロックを取らない。チャンクの並びは {@link Layout} ごと差し替え、
+     * 読み取り側は読み始めた時点の並びをたどる（{@link ConcurrentSkipListMap} と同じく、読み取り中の更新は
+     * 反映されることもされないこともある）。
+     */
+    private static final class Posting {
+        private static final int CHUNK_SIZE = 64;
+        /** 件数の少ないポスティングが大きなチャンクを抱えないよう、チャンクはポスティングの件数に応じて大きくする。 */
+        private static final int MIN_CHUNK_SIZE = 4;
+
+        private volatile Layout layout = new Layout(new AtomicReferenceArray<>(4), 0, 0);
+        private volatile int size;
+
+        synchronized void add(SubmissionLog log) {
+            Layout current = layout;
+            long id = log.id();
+            Chunk last = current.isEmpty() ? null : current.chunk(current.to - 1);
+            if (last == null || id > last.maxId) {
+                if (last == null || last.size == last.entries.length()) {
+                    Chunk chunk = new Chunk(Math.min(CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size)));
+                    chunk.append(log);
+                    layout = current.append(chunk);
+                } else {
+                    last.append(log);
+                }
+                size++;
+                return;
+            }
+            int index = current.firstChunkEndingAtOrAfter(id);
+            Chunk chunk = current.chunk(index);
+            int position = chunk.indexOf(id);
+            if (position >= 0) {
+                chunk.entries.set(position, log); // 同じ受付番号は置き換える
+                return;
+            }
+            SubmissionLog[] logs = chunk.liveWith(log);
+            if (logs.length <= CHUNK_SIZE) {
+                current.chunks.set(index, Chunk.of(logs, 0, logs.length));
+            } else {
+                int half = logs.length / 2;
+                layout = current.split(index, Chunk.of(logs, 0, half), Chunk.of(logs, half, logs.length));
+            }
+            size++;
+        }
+
+        synchronized void remove(SubmissionLog log) {
+            Layout current = layout;
+            int index = current.firstChunkEndingAtOrAfter(log.id());
+            if (index == current.to) {
+                return;
+            }
+            Chunk chunk = current.chunk(index);
+            int position = chunk.indexOf(log.id());
+            if (position < 0 || chunk.entries.get(position) != log) {
+                return;
+            }
+            chunk.entries.set(position, null);
+            size--;
+            if (--chunk.live == 0) {
+                layout = current.remove(index);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(SubmissionLog log) {
+            Layout current = layout;
+            int index = current.firstChunkEndingAtOrAfter(log.id());
+            if (index == current.to) {
+                return false;
+            }
+            Chunk chunk = current.chunk(index);
+            int position = chunk.indexOf(log.id());
+            return position >= 0 && chunk.entries.get(position) == log;
+        }
+
+        SubmissionLog newestBefore(long beforeId) {
+            Iterator<SubmissionLog> iterator = after(beforeId, true).iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        Iterable<SubmissionLog> newestFirst() {
+            return () -> {
+                Layout current = layout;
+                return new Cursor(current, current.to - 1, Integer.MAX_VALUE, true, Long.MAX_VALUE);
+            };
+        }
+
+        Iterable<SubmissionLog> oldestFirst() {
+            return () -> {
+                Layout current = layout;
+                return new Cursor(current, current.from, 0, false, Long.MIN_VALUE);
+            };
+        }
+
+        /**
+         * 受付番号が {@code afterId} より後ろの履歴。チャンクの最大の受付番号を二分探索して読み始める位置へ直接移動する。
+         */
+        Iterable<SubmissionLog> after(long afterId, boolean newestFirst) {
+            return () -> {
+                Layout current = layout;
+                int index = current.firstChunkEndingAtOrAfter(afterId);
+                if (newestFirst) {
+                    return new Cursor(current, Math.min(index, current.to - 1), Integer.MAX_VALUE, true, afterId);
+                }
+                return new Cursor(current, index, 0, false, afterId);
+            };
+        }
+
+        /**
+         * ある時点のチャンクの並び。{@code [from, to)} の範囲が有効で、チャンクは受付番号順に並ぶ。
+         * 先頭のチャンクを外す場合と末尾へ追加する場合は配列を共有したまま範囲だけを変える
+         * （古い並びを読んでいる側が見る範囲の要素は書き換えない）。
+         */
+        private static final class Layout {
+            private final AtomicReferenceArray<Chunk> chunks;
+            private final int from;
+            private final int to;
+
+            Layout(AtomicReferenceArray<Chunk> chunks, int from, int to) {
+                this.chunks = chunks;
+                this.from = from;
+                this.to = to;
+            }
+
+            boolean isEmpty() {
+                return from == to;
+            }
+
+            Chunk chunk(int index) {
+                return chunks.get(index);
+            }
+
+            /**
+             * 最大の受付番号が {@code id} 以上の最初のチャンクを二分探索で探す。
+             *
+             * @return チャンクの添字。該当するチャンクが無い場合は {@code to}
+             */
+            int firstChunkEndingAtOrAfter(long id) {
+                int low = from;
+                int high = to;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (chunks.get(middle).maxId < id) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                return low;
+            }
+
+            Layout append(Chunk chunk) {
+                if (to < chunks.length()) {
+                    chunks.set(to, chunk);
+                    return new Layout(chunks, from, to + 1);
+                }
+                // 配列が埋まったら、外したチャンクの分を詰めて作り直す
+                int live = to - from;
+                AtomicReferenceArray<Chunk> grown = new AtomicReferenceArray<>(Math.max(4, live * 2));
+                for (int i = 0; i < live; i++) {
+                    grown.set(i, chunks.get(from + i));
+                }
+                grown.set(live, chunk);
+                return new Layout(grown, 0, live + 1);
+            }
+
+            Layout remove(int index) {
+                if (index == from) {
+                    return new Layout(chunks, from + 1, to);
+                }
+                AtomicReferenceArray<Chunk> copy = new AtomicReferenceArray<>(Math.max(4, chunks.length()));
+                int size = 0;
+                for (int i = from; i < to; i++) {
+                    if (i != index) {
+                        copy.set(size++, chunks.get(i));
+                    }
+                }
+                return new Layout(copy, 0, size);
+            }
+
+            Layout split(int index, Chunk first, Chunk second) {
+                AtomicReferenceArray<Chunk> copy = new AtomicReferenceArray<>(Math.max(4, (to - from + 1) * 2));
+                int size = 0;
+                for (int i = from; i < to; i++) {
+                    if (i == index) {
+                        copy.set(size++, first);
+                        copy.set(size++, second);
+                    } else {
+                        copy.set(size++, chunks.get(i));
+                    }
+                }
+                return new Layout(copy, 0, size);
+            }
+        }
+
+        /**
+         * 受付番号順に並んだ最大 {@link #CHUNK_SIZE} 件の履歴。削除した要素は {@code null} にする。
+         */
+        private static final class Chunk {
+            private final AtomicReferenceArray<SubmissionLog> entries;
+            /** 使用済みの要素数（削除した要素を含む）。要素を書き込んでから増やす。 */
+            private volatile int size;
+            /** 追記した中で最大の受付番号。削除しても戻さない。 */
+            private volatile long maxId = Long.MIN_VALUE;
+            /** 更新側だけが使う: 削除されていない要素数。 */
+            private int live;
+
+            Chunk(int capacity) {
+                this.entries = new AtomicReferenceArray<>(capacity);
+            }
+
+            static Chunk of(SubmissionLog[] logs, int from, int to) {
+                Chunk chunk = new Chunk(Math.max(MIN_CHUNK_SIZE, to - from));
+                for (int i = from; i < to; i++) {
+                    chunk.append(logs[i]);
+                }
+                return chunk;
+            }
+
+            void append(SubmissionLog log) {
+                int position = size;
+                entries.set(position, log);
+                maxId = log.id();
+                live++;
+                size = position + 1;
+            }
+
+            int indexOf(long id) {
+                int used = size;
+                for (int i = 0; i < used; i++) {
+                    SubmissionLog entry = entries.get(i);
+                    if (entry != null) {
+                        if (entry.id() == id) {
+                            return i;
+                        }
+                        if (entry.id() > id) {
+                            return -1;
+                        }
+                    }
+                }
+                return -1;
+            }
+
+            /**
+             * 削除されていない要素に {@code log} を受付番号順に差し込んだ配列。
+             */
+            SubmissionLog[] liveWith(SubmissionLog log) {
+                SubmissionLog[] logs = new SubmissionLog[live + 1];
+                int count = 0;
+                boolean inserted = false;
+                for (int i = 0; i < size; i++) {
+                    SubmissionLog entry = entries.get(i);
+                    if (entry == null) {
+                        continue;
+                    }
+                    if (!inserted && log.id() < entry.id()) {
+                        logs[count++] = log;
+                        inserted = true;
+                    }
+                    logs[count++] = entry;
+                }
+                if (!inserted) {
+                    logs[count] = log;
+                }
+                return logs;
+            }
+        }
+
+        /**
+         * 読み始めた時点のチャンクの並びをたどるイテレータ。削除済みの要素は読み飛ばす。
+         */
+        private static final class Cursor implements Iterator<SubmissionLog> {
+            private final Layout layout;
+            private final boolean newestFirst;
+            private int chunk;
+            private int position;
+            private SubmissionLog next;
+
+            /**
+             * @param position 読み始めるチャンク内の位置（チャンクの要素数より大きい値は末尾として扱う）
+             * @param afterId  これより後ろ（新しい順なら小さい、古い順なら大きい受付番号）の履歴だけを返す
+             */
+            Cursor(Layout layout, int chunk, int position, boolean newestFirst, long afterId) {
+                this.layout = layout;
+                this.newestFirst = newestFirst;
+                this.chunk = chunk;
+                this.position = newestFirst && chunk >= layout.from ? Math.min(position, layout.chunk(chunk).size - 1)
+                    : position;
+                advance();
+                // 読み始めのチャンクにだけ、境界より手前の履歴が含まれ得る
+                while (next != null && (newestFirst ? next.id() >= afterId : next.id() <= afterId)) {
+                    advance();
+                }
+            }
+
+            private void advance() {
+                while (chunk >= layout.from && chunk < layout.to) {
+                    Chunk current = layout.chunk(chunk);
+                    if (newestFirst) {
+                        while (position >= 0) {
+                            SubmissionLog entry = current.entries.get(position--);
+                            if (entry != null) {
+                                next = entry;
+                                return;
+                            }
+                        }
+                        if (--chunk >= layout.from) {
+                            position = layout.chunk(chunk).size - 1;
+                        }
+                    } else {
+                        int used = current.size;
+                        while (position < used) {
+                            SubmissionLog entry = current.entries.get(position++);
+                            if (entry != null) {
+                                next = entry;
+                                return;
+                            }
+                        }
+                        chunk++;
+                        position = 0;
+                    }
+                }
+                next = null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public SubmissionLog next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                SubmissionLog result = next;
+                advance();
+                return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 申請履歴をローカルディスクへ追記するセグメント分割型のジャーナル。
+ * <p>
+ * 各セグメントは固定サイズのメモリマップドファイルで、レコードは
+ * {@code [int 本体長][int CRC32][本体]} の形式で末尾へ追記する（本体は {@link SubmissionLogCodec} 参照）。
+ * 本体長 0 はセグメントの終端を表し、CRC が一致しないレコード以降は書き込み途中として読み捨てる。
+ * <p>
+ * fsync はグループコミットで行う。書き込みスレッドはマップ済み領域へコピーするだけで戻り、
+ * フラッシュ専用スレッドが {@code commit-interval-ms} の間に溜まった書き込みをまとめて
+ * {@link MappedByteBuffer#force()} する。間隔を延ばすほどスループットが上がり、短くするほど
+ * 永続化までの待ち時間が短くなる。
+ * <p>
+ * fsync に失敗した場合はフラッシュ専用スレッドを止めてジャーナルを失敗状態にし、待機中と以降の追記はすべて
+ * {@link UncheckedIOException} で失敗させる（永続化されたか分からない追記を成功扱いにしない）。
+ * fsync の完了を {@code sync-timeout-ms} 以上待った場合も同じ例外で失敗させる。
+ * <p>
+ * {@code app.submissions.journal.enabled=true} の場合のみ Bean として登録される。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.submissions.journal", name = "enabled", havingValue = "true")
+public class SubmissionJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long commitIntervalMillis;
+    private final boolean syncOnSubmit;
+    private final long syncTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWrites = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+
+    /** ロック保護: 現在の書き込み先と、まだ force していないセグメント。 */
+    private Segment activeSegment;
+    private final List<Segment> dirtySegments = new ArrayList<>();
+    private long nextSegmentIndex;
+    private long appendedRecords;
+    private long durableRecords;
+    private boolean closed;
+    /** fsync に失敗した場合の原因。設定後は追記と fsync の待機をすべて失敗させる。 */
+    private Throwable failure;
+
+    private final Thread flusher;
+
+    public SubmissionJournal(
+        @Value("${app.submissions.journal.directory:./data/journal}") String directory,
+        @Value("${app.submissions.journal.segment-size-bytes:16777216}") int segmentSize,
+        @Value("${app.submissions.journal.commit-interval-ms:5}") long commitIntervalMillis,
+        @Value("${app.submissions.journal.sync-on-submit:true}") boolean syncOnSubmit,
+        @Value("${app.submissions.journal.sync-timeout-ms:10000}") long syncTimeoutMillis) throws IOException {
+        if (segmentSize <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("segment-size-bytes is too small: " + segmentSize);
+        }
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.commitIntervalMillis = Math.max(0, commitIntervalMillis);
+        this.syncOnSubmit = syncOnSubmit;
+        this.syncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, syncTimeoutMillis));
+
+        Files.createDirectories(this.directory);
+        List<Path> existing = listSegments();
+        this.nextSegmentIndex = existing.isEmpty() ? 0 : segmentIndexOf(existing.get(existing.size() - 1)) + 1;
+
+        this.flusher = new Thread(this::runFlusher, "submission-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * ジャーナルに残っているレコードを古い順に読み出す。
+     * <p>
+     * 起動時に一度だけ呼び出される想定で、再起動後は必ず新しいセグメントから追記を始める。
+     *
+     * @param consumer 復元したレコードの受け取り先
+     * @return 復元件数
+     */
+    public long replay(Consumer<SubmissionLog> consumer) throws IOException {
+        return replay(0, consumer);
+    }
+
+    /**
+     * 指定したセグメント番号以降のレコードを古い順に読み出す。
+     * <p>
+     * スナップショットから復元した後、スナップショット取得以降の差分だけを再生するために使う。
+     *
+     * @param fromSegmentIndex 再生を開始するセグメント番号（{@link #rollSegment()} の戻り値）
+     * @param consumer         復元したレコードの受け取り先
+     * @return 復元件数
+     */
+    public long replay(long fromSegmentIndex, Consumer<SubmissionLog> consumer) throws IOException {
+        long count = 0;
+        for (Path path : listSegments()) {
+            if (segmentIndexOf(path) >= fromSegmentIndex) {
+                count += replaySegment(path, consumer);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 現在のセグメントを閉じ、以降の追記を新しいセグメントから始める。
+     * <p>
+     * 戻り値より小さい番号のセグメントには、この呼び出しより前に追記されたレコードだけが含まれる。
+     *
+     * @return 次に追記されるセグメントの番号
+     */
+    public long rollSegment() {
+        lock.lock();
+        try {
+            ensureOpen();
+            if (activeSegment != null) {
+                activeSegment.sealed = true;
+                markDirty(activeSegment);
+                activeSegment = null;
+                pendingWrites.signal();
+            }
+            return nextSegmentIndex;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 指定した番号より前のセグメントを削除する。スナップショットに取り込み済みの範囲を捨てるために使う。
+     *
+     * @return 削除したセグメント数
+     */
+    public int deleteSegmentsBefore(long segmentIndex) throws IOException {
+        int deleted = 0;
+        for (Path path : listSegments()) {
+            if (segmentIndexOf(path) < segmentIndex && Files.deleteIfExists(path)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * レコードを追記する。
+     * <p>
+     * {@code sync-on-submit=true} の場合は、グループコミットで fsync されるまで待機してから戻る。
+     *
+     * @throws UncheckedIOException fsync に失敗している場合、または fsync の完了を待ちきれなかった場合
+     */
+    public void append(SubmissionLog submission) {
+        appendAll(List.of(submission));
+    }
+
+    /**
+     * 複数のレコードを 1 回のロック取得でまとめて追記する。
+     * <p>
+     * {@code sync-on-submit=true} の場合も fsync の待機は最後のレコードに対して 1 回だけ行う。
+     */
+    public void appendAll(List<SubmissionLog> submissions) {
+        if (submissions.isEmpty()) {
+            return;
+        }
+        byte[][] payloads = new byte[submissions.size()][];
+        int[] checksums = new int[payloads.length];
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < payloads.length; i++) {
+            byte[] payload = SubmissionLogCodec.encode(submissions.get(i));
+            if (payload.length + RECORD_HEADER_BYTES + Integer.BYTES > segmentSize) {
+                throw new IllegalArgumentException("Record exceeds journal segment size: " + payload.length);
+            }
+            crc.reset();
+            crc.update(payload);
+            payloads[i] = payload;
+            checksums[i] = (int) crc.getValue();
+        }
+
+        long ticket;
+        lock.lock();
+        try {
+            ensureOpen();
+            for (int i = 0; i < payloads.length; i++) {
+                writeRecord(payloads[i], checksums[i]);
+            }
+            ticket = appendedRecords += payloads.length;
+            pendingWrites.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (syncOnSubmit) {
+            awaitDurable(ticket);
+        }
+    }
+
+    private void writeRecord(byte[] payload, int checksum) {
+        Segment segment = segmentWithRoom(payload.length + RECORD_HEADER_BYTES);
+        MappedByteBuffer buffer = segment.buffer;
+        int start = buffer.position();
+        // 本体長は最後に書き込み、途中で停止しても終端として扱われるようにする
+        buffer.position(start + Integer.BYTES);
+        buffer.putInt(checksum);
+        buffer.put(payload);
+        buffer.putInt(start, payload.length);
+        markDirty(segment);
+    }
+
+    private void awaitDurable(long ticket) {
+        lock.lock();
+        try {
+            long remaining = syncTimeoutNanos;
+            while (durableRecords < ticket && !closed) {
+                ensureNotFailed();
+                if (remaining <= 0) {
+                    throw new UncheckedIOException(new IOException(
+                        "Timed out waiting for the submission journal to be synced to disk"));
+                }
+                try {
+                    remaining = committed.awaitNanos(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException(
+                        "Interrupted while waiting for the submission journal to be synced to disk"));
+                }
+            }
+            ensureNotFailed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            long target;
+            List<Segment> toForce;
+            lock.lock();
+            try {
+                while (appendedRecords == durableRecords && dirtySegments.isEmpty() && !closed) {
+                    pendingWrites.awaitUninterruptibly();
+                }
+                if (closed && appendedRecords == durableRecords && dirtySegments.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (commitIntervalMillis > 0) {
+                // 後続の書き込みを同じ fsync にまとめるため、コミット間隔だけ待つ
+                try {
+                    TimeUnit.MILLISECONDS.sleep(commitIntervalMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            lock.lock();
+            try {
+                target = appendedRecords;
+                toForce = new ArrayList<>(dirtySegments);
+                dirtySegments.clear();
+                toForce.forEach(segment -> segment.dirty = false);
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                for (Segment segment : toForce) {
+                    force(segment.buffer);
+                    if (segment.sealed) {
+                        segment.closeQuietly();
+                    }
+                }
+            } catch (Throwable ex) {
+                // 永続化できたか分からないため、待機中の書き込みも以降の書き込みもすべて失敗させる
+                log.error("Failed to sync submission journal in {}; rejecting further writes", directory, ex);
+                lock.lock();
+                try {
+                    failure = ex;
+                    committed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durableRecords = target;
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * セグメントの書き込みをディスクへ反映する。フラッシュ専用スレッドから呼ばれる。
+     */
+    void force(MappedByteBuffer buffer) {
+        buffer.force();
+    }
+
+    private Segment segmentWithRoom(int recordBytes) {
+        // 終端マーカー（本体長 0）用に 4 バイト残しておく
+        if (activeSegment != null && activeSegment.buffer.remaining() >= recordBytes + Integer.BYTES) {
+            return activeSegment;
+        }
+        if (activeSegment != null) {
+            activeSegment.sealed = true;
+            markDirty(activeSegment);
+        }
+        activeSegment = openSegment(nextSegmentIndex++);
+        return activeSegment;
+    }
+
+    private void markDirty(Segment segment) {
+        if (!segment.dirty) {
+            segment.dirty = true;
+            dirtySegments.add(segment);
+        }
+    }
+
+    private Segment openSegment(long index) {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try {
+            FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            log.debug("Opened journal segment {}", path);
+            return new Segment(channel, buffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open journal segment " + path, ex);
+        }
+    }
+
+    private long replaySegment(Path path, Consumer<SubmissionLog> consumer) throws IOException {
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice();
+                payload.limit(length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Journal segment {} has a torn record at offset {}; ignoring the rest",
+                        path.getFileName(), buffer.position() - RECORD_HEADER_BYTES);
+                    break;
+                }
+                consumer.accept(SubmissionLogCodec.decode(payload));
+                buffer.position(buffer.position() + length);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static long segmentIndexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Submission journal is closed");
+        }
+        ensureNotFailed();
+    }
+
+    private void ensureNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException(new IOException("Submission journal failed to sync to disk", failure));
+        }
+    }
+
+    /**
+     * 未コミットの書き込みを fsync してからジャーナルを閉じる。
+     */
+    @Override
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (activeSegment != null) {
+                activeSegment.sealed = true;
+                markDirty(activeSegment);
+            }
+            pendingWrites.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (activeSegment != null) {
+            activeSegment.closeQuietly();
+        }
+    }
+
+    private static final class Segment {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private boolean dirty;
+        private boolean sealed;
+
+        private Segment(FileChannel channel, MappedByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                log.warn("Failed to close journal segment", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link SubmissionLog} を永続化用のコンパクトなバイナリ形式に変換する。
+ * <p>
+ * レイアウト（すべてビッグエンディアン）:
+ * <pre>
+ * byte    フォーマットバージョン
+ * long    受付番号
+ * long    受付日時（UTC とみなしたエポックミリ秒）
+ * int     希望日（エポック日数。未設定は {@link Integer#MIN_VALUE}）
+ * string  申請者ID / 申請者名 / メールアドレス / 所属部署 / 申請区分 / 申請内容詳細
+ * </pre>
+ * 文字列は「UTF-8 バイト長 + 1」の可変長整数に続けて本体を書き込む（0 は {@code null} を表す）。
+ * <p>
+ * 受付番号を持たない旧形式（バージョン 1。受付日時以降は同じレイアウト）も読み取れる。
+ * その場合の受付番号は {@link #UNASSIGNED_ID} になるため、読み込んだ側で採番し直すこと。
+ */
+final class SubmissionLogCodec {
+
+    static final byte FORMAT_VERSION = 2;
+
+    /** 受付番号を持たない旧形式のバージョン。読み取りのみ対応する。 */
+    static final byte LEGACY_FORMAT_VERSION = 1;
+
+    /** 旧形式のレコードを読み取った場合の受付番号（採番は 1 から行うため使われない値）。 */
+    static final long UNASSIGNED_ID = 0;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private SubmissionLogCodec() {
+    }
+
+    static byte[] encode(SubmissionLog log) {
+        byte[][] strings = {
+            utf8(log.applicantId()),
+            utf8(log.applicantName()),
+            utf8(log.contactEmail()),
+            utf8(log.department()),
+            utf8(log.requestType()),
+            log.descriptionUtf8()
+        };
+        int size = 1 + Long.BYTES * 2 + Integer.BYTES;
+        for (byte[] value : strings) {
+            size += varIntSize(value == null ? 0 : value.length + 1) + (value == null ? 0 : value.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(FORMAT_VERSION);
+        buffer.putLong(log.id());
+        buffer.putLong(log.submittedAtMillis());
+        buffer.putInt(log.desiredEpochDay() == SubmissionLog.NO_DESIRED_DATE ? NO_DATE : log.desiredEpochDay());
+        for (byte[] value : strings) {
+            putVarInt(buffer, value == null ? 0 : value.length + 1);
+            if (value != null) {
+                buffer.put(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * バッファの現在位置からレコードを 1 件読み取る。旧形式のレコードの受付番号は {@link #UNASSIGNED_ID} になる。
+     *
+     * @throws IllegalArgumentException フォーマットが不正な場合
+     */
+    static SubmissionLog decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION && version != LEGACY_FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported submission record version: " + version);
+            }
+            long id = version == LEGACY_FORMAT_VERSION ? UNASSIGNED_ID : buffer.getLong();
+            long submittedAtMillis = buffer.getLong();
+            int epochDay = buffer.getInt();
+            String applicantId = getString(buffer);
+            String applicantName = getString(buffer);
+            String contactEmail = getString(buffer);
+            String department = getString(buffer);
+            String requestType = getString(buffer);
+            String description = getString(buffer);
+            // 格納形式のまま受け渡し、申請内容の DTO や日付オブジェクトは作らない
+            return new SubmissionLog(id, submittedAtMillis, applicantId, applicantName, contactEmail, department,
+                requestType, epochDay == NO_DATE ? SubmissionLog.NO_DESIRED_DATE : epochDay, description);
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated submission record", ex);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int encodedLength = getVarInt(buffer);
+        if (encodedLength == 0) {
+            return null;
+        }
+        int length = encodedLength - 1;
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length exceeds record: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.vaadin.services;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * 受付月ごとの申請件数とリードタイム（受付日から希望日までの日数）の集計結果。
+ *
+ * @param month      集計対象の受付月
+ * @param totalCount 受付月内の申請件数
+ * @param rows       所属部署・申請区分ごとの集計（所属部署、申請区分の順。未指定は末尾）
+ * @param closed     締め済み（当月より前）の月かどうか。締め済みの月の集計は再計算せずに使い回す
+ */
+public record SubmissionMonthlyReport(YearMonth month, long totalCount, List<Row> rows, boolean closed) {
+
+    /**
+     * 所属部署・申請区分ごとの集計。
+     *
+     * @param department       所属部署（未指定の場合は {@code null}）
+     * @param requestType      申請区分（未指定の場合は {@code null}）
+     * @param count            申請件数
+     * @param datedCount       希望日が指定された申請の件数。リードタイムはこの件数で集計する
+     * @param averageLeadDays  リードタイムの平均（日）。{@code datedCount} が 0 の場合は 0
+     * @param minLeadDays      リードタイムの最小値（日）。{@code datedCount} が 0 の場合は 0
+     * @param maxLeadDays      リードタイムの最大値（日）。{@code datedCount} が 0 の場合は 0
+     */
+    public record Row(
+        String department,
+        String requestType,
+        long count,
+        long datedCount,
+        double averageLeadDays,
+        int minLeadDays,
+        int maxLeadDays) {
+    }
+}
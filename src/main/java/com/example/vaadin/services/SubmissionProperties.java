@@ -0,0 +1,110 @@
+package com.example.vaadin.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.context.properties.bind.Name;
+
+/**
+ * {@link ApplicationRequestService} の設定（{@code app.submissions.*}）。
+ * <p>
+ * 各項目の意味は application.properties のコメントを参照。省略した項目は application.properties と同じ既定値になる。
+ * ジャーナル・コールド層・データベース・監査ログなど、別の Bean が使う設定はそれぞれの Bean で読み込む。
+ *
+ * @param retentionSize       メモリ上に保持する履歴の件数（シャードごと）
+ * @param sharding            シャード分割
+ * @param offHeapDescriptions 申請内容詳細のヒープ外格納
+ * @param latest              最新の申請一覧
+ * @param async               非同期受付のバッチ処理
+ * @param dedupe              二重送信の検出
+ * @param rateLimit           申請者ごとのレート制限と同時処理数の上限
+ * @param capacity            希望日ごとの受付枠
+ * @param importing           CSV 一括取り込み（{@code app.submissions.import.*}）
+ * @param feed                変更フィード
+ * @param reports             月次レポート
+ */
+@ConfigurationProperties(prefix = "app.submissions")
+public record SubmissionProperties(
+    @DefaultValue("10000") int retentionSize,
+    @DefaultValue Sharding sharding,
+    @DefaultValue OffHeapDescriptions offHeapDescriptions,
+    @DefaultValue Latest latest,
+    @DefaultValue Async async,
+    @DefaultValue Dedupe dedupe,
+    @DefaultValue RateLimit rateLimit,
+    @DefaultValue Capacity capacity,
+    @Name("import") @DefaultValue Import importing,
+    @DefaultValue Feed feed,
+    @DefaultValue Reports reports) {
+
+    /**
+     * @param enabled    シャード分割を行うか
+     * @param shardCount シャード数（0 以下の場合は CPU コア数）
+     */
+    public record Sharding(@DefaultValue("false") boolean enabled, @DefaultValue("0") int shardCount) {
+    }
+
+    /**
+     * @param enabled        申請内容詳細をヒープ外に格納するか
+     * @param chunkSizeBytes ヒープ外に確保する領域 1 つあたりのバイト数
+     */
+    public record OffHeapDescriptions(@DefaultValue("false") boolean enabled,
+                                      @DefaultValue("4194304") int chunkSizeBytes) {
+    }
+
+    /**
+     * @param windowSize 最新の申請一覧として保持する件数
+     */
+    public record Latest(@DefaultValue("100") int windowSize) {
+    }
+
+    /**
+     * @param queueCapacity 受付キューの上限件数
+     * @param batchSize     1 回のバッチで保存する件数の上限
+     */
+    public record Async(@DefaultValue("10000") int queueCapacity, @DefaultValue("256") int batchSize) {
+    }
+
+    /**
+     * @param windowSeconds 同じ内容の申請を重複とみなす秒数
+     * @param capacity      記録する申請の件数の上限
+     */
+    public record Dedupe(@DefaultValue("600") long windowSeconds, @DefaultValue("100000") int capacity) {
+    }
+
+    /**
+     * @param perApplicantPerMinute 申請者ごとの 1 分あたりの申請数
+     * @param burst                 連続して受け付ける申請数
+     * @param maxInFlight           同時に処理する申請数の上限
+     */
+    public record RateLimit(@DefaultValue("30") int perApplicantPerMinute, @DefaultValue("5") int burst,
+                            @DefaultValue("1000") int maxInFlight) {
+    }
+
+    /**
+     * @param dailyLimits  申請区分ごとの 1 日あたりの受付枠（{@code 区分:件数} をカンマ区切り。空の場合は無制限）
+     * @param tableSize    受付件数表のスロット数の最小値
+     * @param bookableDays 今日から何日先まで受け付けるか
+     */
+    public record Capacity(@DefaultValue("") String dailyLimits, @DefaultValue("65536") int tableSize,
+                           @DefaultValue("365") int bookableDays) {
+    }
+
+    /**
+     * @param batchSize 1 回に検証・保存する行数
+     */
+    public record Import(@DefaultValue("5000") int batchSize) {
+    }
+
+    /**
+     * @param bufferSize 購読者ごとのバッファの上限件数
+     */
+    public record Feed(@DefaultValue("8192") int bufferSize) {
+    }
+
+    /**
+     * @param chunkSize   1 つのタスクが受け持つ件数
+     * @param parallelism 集計に使うスレッド数（0 以下の場合は CPU コア数）
+     */
+    public record Reports(@DefaultValue("65536") int chunkSize, @DefaultValue("0") int parallelism) {
+    }
+}
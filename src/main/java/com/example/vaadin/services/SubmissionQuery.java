@@ -0,0 +1,70 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.time.LocalDate;
+
+/**
+ * 申請履歴の検索条件。
+ * <p>
+ * {@code null} の項目は条件に含めない。希望日の範囲は両端を含む。
+ *
+ * @param applicantId 申請者ID（完全一致）
+ * @param requestType 申請区分（完全一致）
+ * @param department  所属部署（完全一致）
+ * @param desiredFrom 希望日の下限
+ * @param desiredTo   希望日の上限
+ */
+public record SubmissionQuery(
+    String applicantId,
+    String requestType,
+    String department,
+    LocalDate desiredFrom,
+    LocalDate desiredTo) {
+
+    private static final SubmissionQuery ALL = new SubmissionQuery(null, null, null, null, null);
+
+    /**
+     * 条件なし（全件）の検索条件を返す。
+     */
+    public static SubmissionQuery all() {
+        return ALL;
+    }
+
+    public boolean isUnfiltered() {
+        return applicantId == null && requestType == null && department == null
+            && desiredFrom == null && desiredTo == null;
+    }
+
+    boolean hasDateRange() {
+        return desiredFrom != null || desiredTo != null;
+    }
+
+    /**
+     * 履歴が条件をすべて満たすかどうかを判定する。
+     */
+    boolean matches(SubmissionLog log) {
+        if (applicantId != null && !applicantId.equals(log.applicantId())) {
+            return false;
+        }
+        if (requestType != null && !requestType.equals(log.requestType())) {
+            return false;
+        }
+        if (department != null && !department.equals(log.department())) {
+            return false;
+        }
+        if (hasDateRange()) {
+            int epochDay = log.desiredEpochDay();
+            if (epochDay == SubmissionLog.NO_DESIRED_DATE) {
+                return false;
+            }
+            if (desiredFrom != null && epochDay < desiredFrom.toEpochDay()) {
+                return false;
+            }
+            if (desiredTo != null && epochDay > desiredTo.toEpochDay()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.SubmissionRejectedException.Reason;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 申請者ごとのレート制限と、システム全体の同時処理数の上限を管理する。
+ * <p>
+ * 申請者ごとのバケットはトークンバケットと等価な GCRA（Generic Cell Rate Algorithm）で実装しており、
+ * 状態は「次にトークンが満たされる理論時刻」を表す 1 つの {@code long} だけである。
+ * 判定は CAS 1 回で完了するため、バケット自体がコア間の競合点になることはない。
+ * バケットの管理表は内部でストライプ化された {@link ConcurrentHashMap} を使う。
+ */
+class SubmissionRateLimiter {
+
+    /** 管理表がこの件数を超えたら、満タンに戻ったバケットを削除する。 */
+    private static final int CLEANUP_THRESHOLD = 10_000;
+    private static final long CLEANUP_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxInFlight;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastCleanup = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param permitsPerMinute 申請者ごとに 1 分あたり補充される申請数
+     * @param burst            申請者ごとに連続して受け付ける申請数の上限
+     * @param maxInFlight      システム全体で同時に処理中にできる申請数の上限
+     */
+    SubmissionRateLimiter(int permitsPerMinute, int burst, int maxInFlight) {
+        if (permitsPerMinute <= 0 || burst <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Rate limit settings must be positive");
+        }
+        this.emissionIntervalNanos = Duration.ofMinutes(1).toNanos() / permitsPerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 申請者のトークンを 1 つ消費し、同時処理枠を 1 つ確保する。
+     * <p>
+     * 成功した場合は処理完了後に必ず {@link #release()} を呼び出すこと。
+     *
+     * @throws SubmissionRejectedException トークンまたは同時処理枠が不足している場合
+     */
+    void acquire(String applicantId) {
+        long retryAfterNanos = consumeToken(applicantId == null ? "" : applicantId);
+        if (retryAfterNanos > 0) {
+            throw new SubmissionRejectedException(Reason.RATE_LIMITED, Duration.ofNanos(retryAfterNanos),
+                "Too many submissions from applicant");
+        }
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                throw new SubmissionRejectedException(Reason.OVERLOADED, Duration.ofSeconds(1),
+                    "Too many submissions in flight");
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+    }
+
+    /**
+     * {@link #acquire(String)} で確保した同時処理枠を返却する。
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * @return 受け付けた場合は 0、拒否した場合は再送信までの待ち時間（ナノ秒）
+     */
+    private long consumeToken(String applicantId) {
+        long now = System.nanoTime();
+        if (buckets.size() > CLEANUP_THRESHOLD) {
+            removeIdleBuckets(now);
+        }
+        AtomicLong theoreticalArrival = buckets.computeIfAbsent(applicantId, key -> new AtomicLong(now));
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = Math.max(tat, now);
+            long wait = base - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    private void removeIdleBuckets(long now) {
+        long last = lastCleanup.get();
+        if (now - last < CLEANUP_INTERVAL_NANOS || !lastCleanup.compareAndSet(last, now)) {
+            return; // 他のスレッドが掃除中、または直近に掃除済み
+        }
+        // 理論時刻が現在より過去のバケットは満タンなので、削除しても判定結果は変わらない
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() <= now);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.vaadin.services;
+
+import java.time.Duration;
+
+/**
+ * 申請を受け付けなかったことを表す例外。
+ * <p>
+ * 画面は {@link #getReason()} で拒否理由を判別し、利用者向けのメッセージを出し分ける。
+ */
+public class SubmissionRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 申請を拒否した理由。
+     */
+    public enum Reason {
+        /** 同じフォームからの再送信、または直近に同一内容の申請を受け付けている。 */
+        DUPLICATE,
+        /** 同じ申請者からの申請が短時間に集中している。 */
+        RATE_LIMITED,
+        /** システム全体で処理中の申請が上限に達している。 */
+        OVERLOADED,
+        /** 申請区分・希望日ごとの受付枠が埋まっている。 */
+        FULLY_BOOKED,
+        /** 受付枠のある申請区分で、希望日が受付期間（当日から一定日数後まで）の外にある。 */
+        OUTSIDE_BOOKING_PERIOD
+    }
+
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public SubmissionRejectedException(Reason reason, Duration retryAfter, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfter = retryAfter == null ? Duration.ZERO : retryAfter;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * 再送信までの目安となる待ち時間。目安が無い場合は {@link Duration#ZERO}。
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 申請履歴から月次レポート（所属部署・申請区分ごとの件数とリードタイム）を並列に集計する。
+ * <p>
+ * 履歴の読み出し元（シャードごとの履歴やコールド層のブロックなど）をそれぞれ 1 つのタスクとし、
+ * 大きな読み出し元は {@code chunkSize} 件ずつに分割して専用の {@link ForkJoinPool} で集計する。
+ * 各タスクは所属部署→申請区分の 2 段の {@link HashMap} に、件数・日数の合計・最小値・最大値を
+ * プリミティブのフィールドで持つ {@link Accumulator} を置いて数え、1 件ごとのオブジェクト生成やボクシングを行わない。
+ * 部分結果は fork-join の合流時に足し合わせる。
+ * <p>
+ * 締め済み（当月より前）の月の結果はキャッシュし、以降は再計算しない。
+ * 保存する申請は受付日時を確定した時点で {@link #beginWrite(long)}、履歴へ反映した後に {@link #endWrite(long)} を呼ぶこと。
+ * 保存中の申請がある月や、集計中に保存が終わった月の結果はキャッシュしない。保存が終わった月のキャッシュは捨てるため、
+ * 過去の受付日時を持つ申請を取り込んだ場合も、月の境目をまたいで保存した申請も、次の集計に含まれる。
+ */
+class SubmissionReportEngine implements AutoCloseable {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final Comparator<SubmissionMonthlyReport.Row> ROW_ORDER = Comparator
+        .comparing(SubmissionMonthlyReport.Row::department, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(SubmissionMonthlyReport.Row::requestType, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final ConcurrentHashMap<YearMonth, SubmissionMonthlyReport> closedMonths = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<YearMonth, MonthWrites> writes = new ConcurrentHashMap<>();
+
+    /**
+     * @param chunkSize   1 つのタスクで集計する件数の上限
+     * @param parallelism 集計に使うスレッド数。0 以下の場合は CPU コア数
+     */
+    SubmissionReportEngine(int chunkSize, int parallelism) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+            pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("submission-report-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+    }
+
+    /**
+     * 受付月のレポートを返す。締め済みの月はキャッシュがあればそれを返す。
+     *
+     * @param month   集計対象の受付月
+     * @param current 当月（これより前を締め済みとみなす）
+     * @param sources 履歴の読み出し元の一覧。キャッシュを使わない場合だけ呼ばれ、各要素は集計用スレッドから 1 回だけ呼ばれる
+     */
+    SubmissionMonthlyReport report(YearMonth month, YearMonth current,
+                                   Supplier<List<Supplier<List<SubmissionLog>>>> sources) {
+        boolean closed = month.isBefore(current);
+        MonthWrites monthWrites = null;
+        long ended = 0;
+        if (closed) {
+            SubmissionMonthlyReport cached = closedMonths.get(month);
+            if (cached != null) {
+                return cached;
+            }
+            monthWrites = writesOf(month);
+            ended = monthWrites.ended.get();
+        }
+        Partial total = pool.invoke(new SourcesTask(sources.get(), startMillis(month), startMillis(month.plusMonths(1))));
+        SubmissionMonthlyReport report = total.toReport(month, closed);
+        if (closed && monthWrites.settledSince(ended)) {
+            // 同時に集計した場合は先に登録された方を使う
+            SubmissionMonthlyReport existing = closedMonths.putIfAbsent(month, report);
+            if (existing != null) {
+                return existing;
+            }
+            // 登録までの間に保存が始まった・終わった場合は、その申請を含まない結果なので残さない
+            if (!monthWrites.settledSince(ended)) {
+                closedMonths.remove(month, report);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 受付月の初日 0 時を、受付日時と同じく UTC とみなしたエポックミリ秒で返す。
+     */
+    static long startMillis(YearMonth month) {
+        return month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * 受付日時 {@code submittedAtMillis} の申請の保存を始める。{@link #endWrite(long)} を呼ぶまで、その月の結果はキャッシュしない。
+     */
+    void beginWrite(long submittedAtMillis) {
+        writesOf(monthOf(submittedAtMillis)).pending.incrementAndGet();
+    }
+
+    /**
+     * 受付日時 {@code submittedAtMillis} の申請の保存を終える（失敗した場合も呼ぶ）。その月のキャッシュを捨てる。
+     */
+    void endWrite(long submittedAtMillis) {
+        YearMonth month = monthOf(submittedAtMillis);
+        MonthWrites monthWrites = writesOf(month);
+        closedMonths.remove(month);
+        monthWrites.ended.incrementAndGet();
+        monthWrites.pending.decrementAndGet();
+    }
+
+    private MonthWrites writesOf(YearMonth month) {
+        MonthWrites monthWrites = writes.get(month);
+        return monthWrites != null ? monthWrites : writes.computeIfAbsent(month, key -> new MonthWrites());
+    }
+
+    private static YearMonth monthOf(long submittedAtMillis) {
+        return YearMonth.from(LocalDate.ofEpochDay(Math.floorDiv(submittedAtMillis, MILLIS_PER_DAY)));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 受付月ごとの保存中の件数と、保存を終えた延べ件数。
+     */
+    private static final class MonthWrites {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong ended = new AtomicLong();
+
+        /**
+         * 保存中の申請が無く、延べ件数が {@code ended} から変わっていない（集計の開始後に保存を終えた申請が無い）かどうか。
+         */
+        boolean settledSince(long ended) {
+            return pending.get() == 0 && this.ended.get() == ended;
+        }
+    }
+
+    /**
+     * 読み出し元ごとにタスクを分けて並列に集計し、結果を合算する。
+     */
+    private final class SourcesTask extends RecursiveTask<Partial> {
+        private final List<Supplier<List<SubmissionLog>>> sources;
+        private final long fromMillis;
+        private final long toMillis;
+
+        SourcesTask(List<Supplier<List<SubmissionLog>>> sources, long fromMillis, long toMillis) {
+            this.sources = sources;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        @Override
+        protected Partial compute() {
+            List<RecursiveTask<Partial>> tasks = new ArrayList<>(sources.size());
+            for (Supplier<List<SubmissionLog>> source : sources) {
+                tasks.add(new RecursiveTask<>() {
+                    @Override
+                    protected Partial compute() {
+                        List<SubmissionLog> submissions = source.get();
+                        return new ChunkTask(submissions, 0, submissions.size(), fromMillis, toMillis).compute();
+                    }
+                });
+            }
+            Partial total = new Partial();
+            for (RecursiveTask<Partial> task : ForkJoinTask.invokeAll(tasks)) {
+                total.merge(task.join());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 1 つの読み出し元の {@code [from, to)} を集計する。{@code chunkSize} を超える場合は半分に分けて並列に集計する。
+     */
+    private final class ChunkTask extends RecursiveTask<Partial> {
+        private final List<SubmissionLog> submissions;
+        private final int from;
+        private final int to;
+        private final long fromMillis;
+        private final long toMillis;
+
+        ChunkTask(List<SubmissionLog> submissions, int from, int to, long fromMillis, long toMillis) {
+            this.submissions = submissions;
+            this.from = from;
+            this.to = to;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(submissions, from, middle, fromMillis, toMillis);
+                left.fork();
+                Partial right = new ChunkTask(submissions, middle, to, fromMillis, toMillis).compute();
+                return right.merge(left.join());
+            }
+            Partial partial = new Partial();
+            for (int i = from; i < to; i++) {
+                SubmissionLog submission = submissions.get(i);
+                long submittedAt = submission.submittedAtMillis();
+                if (submittedAt >= fromMillis && submittedAt < toMillis) {
+                    partial.add(submission, submittedAt);
+                }
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * タスクごとの部分結果。所属部署→申請区分→集計値の 2 段のマップ（キーは {@code null} を含み得る）。
+     */
+    private static final class Partial {
+        private final Map<String, Map<String, Accumulator>> byDepartment = new HashMap<>();
+        private long total;
+
+        void add(SubmissionLog submission, long submittedAtMillis) {
+            total++;
+            Accumulator accumulator = byDepartment
+                .computeIfAbsent(submission.department(), department -> new HashMap<>())
+                .computeIfAbsent(submission.requestType(), requestType -> new Accumulator());
+            accumulator.count++;
+            int desiredDay = submission.desiredEpochDay();
+            if (desiredDay != SubmissionLog.NO_DESIRED_DATE) {
+                int lead = (int) (desiredDay - Math.floorDiv(submittedAtMillis, MILLIS_PER_DAY));
+                accumulator.dated++;
+                accumulator.leadDaysSum += lead;
+                accumulator.minLead = Math.min(accumulator.minLead, lead);
+                accumulator.maxLead = Math.max(accumulator.maxLead, lead);
+            }
+        }
+
+        Partial merge(Partial other) {
+            total += other.total;
+            other.byDepartment.forEach((department, byType) -> {
+                Map<String, Accumulator> mine = byDepartment.computeIfAbsent(department, key -> new HashMap<>());
+                byType.forEach((requestType, accumulator) -> mine.merge(requestType, accumulator, Accumulator::merge));
+            });
+            return this;
+        }
+
+        SubmissionMonthlyReport toReport(YearMonth month, boolean closed) {
+            List<SubmissionMonthlyReport.Row> rows = new ArrayList<>();
+            byDepartment.forEach((department, byType) -> byType.forEach((requestType, accumulator) ->
+                rows.add(new SubmissionMonthlyReport.Row(department, requestType, accumulator.count, accumulator.dated,
+                    accumulator.dated == 0 ? 0 : (double) accumulator.leadDaysSum / accumulator.dated,
+                    accumulator.dated == 0 ? 0 : accumulator.minLead,
+                    accumulator.dated == 0 ? 0 : accumulator.maxLead))));
+            rows.sort(ROW_ORDER);
+            return new SubmissionMonthlyReport(month, total, Collections.unmodifiableList(rows), closed);
+        }
+    }
+
+    private static final class Accumulator {
+        private long count;
+        private long dated;
+        private long leadDaysSum;
+        private int minLead = Integer.MAX_VALUE;
+        private int maxLead = Integer.MIN_VALUE;
+
+        Accumulator merge(Accumulator other) {
+            count += other.count;
+            dated += other.dated;
+            leadDaysSum += other.leadDaysSum;
+            minLead = Math.min(minLead, other.minLead);
+            maxLead = Math.max(maxLead, other.maxLead);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 申請履歴を固定長で保持するマルチプロデューサー対応のリングバッファ。
+ * <p>
+ * 書き込みはシーケンス番号の採番（CAS 1 回）とスロットへの代入のみで完了し、
+ * 履歴全体をコピーする {@code CopyOnWriteArrayList} と異なり件数に依存しない O(1) で動作する。
+ * 容量を超えた分は最も古いエントリから上書きされる。
+ * 同じスロットを使う 1 周前の書き込み（シーケンスが {@code capacity} 小さいもの）が公開を終えるまでは上書きしないため、
+ * 押し出されたエントリとして返すのは必ず 1 周前のシーケンスのエントリになる。
+ * <p>
+ * 各スロットには公開済みシーケンスを併記しており、読み取り側はその値を前後で確認することで
+ * 書き込み途中や上書き済みのスロットを読み飛ばす（ロックは使用しない）。
+ */
+class SubmissionRingBuffer {
+
+    /** 書き込み中のスロットを示す公開シーケンス値。 */
+    private static final long WRITING = Long.MIN_VALUE;
+
+    private final int capacity;
+    private final AtomicReferenceArray<SubmissionLog> slots;
+    private final AtomicLongArray publishedSequences;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    SubmissionRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.publishedSequences = new AtomicLongArray(capacity);
+        // 未使用スロットは「1 周前のシーケンス（負の値）が公開済み」とみなし、最初の書き込みを待たせない
+        for (int i = 0; i < capacity; i++) {
+            publishedSequences.set(i, i - (long) capacity);
+        }
+    }
+
+    /**
+     * エントリを追加する。
+     *
+     * @param log 追加する履歴
+     * @return 容量超過により押し出された最古のエントリ。押し出しが無い場合は {@code null}
+     */
+    SubmissionLog append(SubmissionLog log) {
+        long sequence = nextSequence.getAndIncrement();
+        int index = indexOf(sequence);
+        // 1 周前の書き込みがまだ終わっていない場合は、その公開を待ってから上書きする
+        while (!publishedSequences.compareAndSet(index, sequence - capacity, WRITING)) {
+            Thread.onSpinWait();
+        }
+        SubmissionLog evicted = slots.getAndSet(index, log);
+        publishedSequences.set(index, sequence);
+        return evicted;
+    }
+
+    /**
+     * 新しい順に最大 {@code limit} 件を取得する。
+     * <p>
+     * 結果配列を 1 つ確保するだけで、中間リストの生成や並べ替えは行わない。
+     *
+     * @param limit 取得件数の上限
+     * @return 新しい順に並んだ読み取り専用リスト
+     */
+    List<SubmissionLog> latest(int limit) {
+        return latest(0, limit);
+    }
+
+    /**
+     * 新しい方から {@code offset} 件を読み飛ばし、続く最大 {@code limit} 件を取得する。
+     *
+     * @param offset 読み飛ばす件数
+     * @param limit  取得件数の上限
+     * @return 新しい順に並んだ読み取り専用リスト
+     */
+    List<SubmissionLog> latest(int offset, int limit) {
+        return page(offset, limit, true);
+    }
+
+    /**
+     * 指定した並び順で {@code offset} 件を読み飛ばし、続く最大 {@code limit} 件を取得する。
+     *
+     * @param offset      読み飛ばす件数
+     * @param limit       取得件数の上限
+     * @param newestFirst {@code true} の場合は新しい順、{@code false} の場合は古い順
+     * @return 読み取り専用リスト
+     */
+    List<SubmissionLog> page(int offset, int limit, boolean newestFirst) {
+        long end = nextSequence.get();
+        long retained = Math.min(end, capacity);
+        int available = (int) Math.min(Math.max(0, retained - Math.max(0, offset)), Math.max(0, limit));
+        if (available == 0) {
+            return Collections.emptyList();
+        }
+        SubmissionLog[] result = new SubmissionLog[available];
+        int count = 0;
+        int skipped = 0;
+        long lowest = Math.max(0, end - capacity);
+        long step = newestFirst ? -1 : 1;
+        for (long sequence = newestFirst ? end - 1 : lowest;
+             sequence >= lowest && sequence < end && count < available;
+             sequence += step) {
+            SubmissionLog log = read(sequence);
+            if (log == null) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result[count++] = log;
+            }
+        }
+        if (count < available) {
+            result = Arrays.copyOf(result, count);
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    /**
+     * 呼び出し時点で保持している履歴を古い順に 1 件ずつ {@code consumer} へ渡す。
+     * <p>
+     * 結果のリストを作らないため、件数に関わらず追加のメモリを使わない。
+     * 走査中に追加された履歴は含まず、走査中に押し出された履歴は読み飛ばす。
+     *
+     * @param consumer 履歴の受け取り先
+     */
+    void forEachOldestFirst(Consumer<SubmissionLog> consumer) {
+        long end = nextSequence.get();
+        for (long sequence = Math.max(0, end - capacity); sequence < end; sequence++) {
+            SubmissionLog log = read(sequence);
+            if (log != null) {
+                consumer.accept(log);
+            }
+        }
+    }
+
+    /**
+     * 通番 {@code fromSequence} 以上 {@code endSequence} 未満の履歴を古い順に最大 {@code max} 件 {@code out} へ追加する。
+     * <p>
+     * 通番をカーソルとして少しずつ読み進めるためのもので、既に押し出された範囲は読み飛ばす。
+     *
+     * @return 次に読み出す通番。{@code endSequence} に達した場合は {@code endSequence}
+     */
+    long readFrom(long fromSequence, long endSequence, int max, List<SubmissionLog> out) {
+        long sequence = Math.max(fromSequence, nextSequence.get() - capacity);
+        int added = 0;
+        for (; sequence < endSequence && added < max; sequence++) {
+            SubmissionLog log = read(sequence);
+            if (log != null) {
+                out.add(log);
+                added++;
+            }
+        }
+        return Math.min(sequence, endSequence);
+    }
+
+    /**
+     * 次に採番する通番を返す。{@link #readFrom} の読み出し範囲の上限に使う。
+     */
+    long endSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * 現在保持している件数を返す。
+     */
+    int size() {
+        return (int) Math.min(nextSequence.get(), capacity);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private SubmissionLog read(long sequence) {
+        int index = indexOf(sequence);
+        if (publishedSequences.get(index) != sequence) {
+            return null; // 書き込み途中、または既に上書きされている
+        }
+        SubmissionLog log = slots.get(index);
+        if (publishedSequences.get(index) != sequence) {
+            return null;
+        }
+        return log;
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+/**
+ * 申請内容詳細の全文検索結果。
+ *
+ * @param submission 一致した申請
+ * @param score      関連度（検索語の bi-gram ごとの tf-idf の合計。大きいほど関連が高い）
+ */
+public record SubmissionSearchHit(SubmissionLog submission, double score) {
+}
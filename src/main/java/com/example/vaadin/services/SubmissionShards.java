@@ -0,0 +1,399 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * メモリ上の履歴（リングバッファ・検索用インデックス・全文検索インデックス）を申請者IDのハッシュで分割して保持する。
+ * <p>
+ * 各シャードは互いに独立しており、異なるシャードへの書き込みは同じロックやカウンタを奪い合わない。
+ * 申請者IDを指定した検索は 1 つのシャードだけを読み、それ以外の読み出しは各シャードの結果を
+ * 受付番号の順に k-way マージする。シャード数が 1 の場合はマージを行わず、分割しない場合と同じ動作になる。
+ * <p>
+ * 並び順はすべての読み出しで受付番号に揃える。CSV で取り込んだ申請は過去の受付日時を持つが受付番号は新しいため、
+ * 受付日時で並べるとリングバッファやインデックスの並びと食い違い、整列済みを前提にしたマージが崩れる。
+ * ページ単位の読み出しはリングバッファではなく、受付番号順に並んだインデックスの全件ポスティングから行う。
+ * <p>
+ * 保持件数はシャードごとに均等に割り当てるため、申請者に偏りがあると全体の保持件数より早く押し出されることがある。
+ * <p>
+ * ヒープ外格納を有効にした場合、各シャードは自分の {@link DescriptionArena} を持ち、格納する履歴の申請内容詳細をそこへ移す。
+ * 押し出された履歴は、指定があれば押し出しリスナー（コールド層への移動など）へ渡す。
+ * <p>
+ * 全シャードを通した最新の履歴は、書き込みのたびに {@link LatestSubmissions} のスナップショットとして公開する。
+ * 新しい順の先頭ページはマージを行わず、このスナップショットから返す。
+ * シャードの押し出しでスナップショットに空きができた場合は、全シャードのインデックスから次に新しい履歴を補充する。
+ */
+class SubmissionShards {
+
+    /** 新しい順のマージで使う比較順（受付番号の降順）。 */
+    private static final Comparator<SubmissionLog> NEWEST_FIRST =
+        Comparator.comparingLong(SubmissionLog::id).reversed();
+    private static final Comparator<SubmissionLog> OLDEST_FIRST = NEWEST_FIRST.reversed();
+
+    /** エクスポート時に各シャードから一度に読み出す件数。 */
+    private static final int CURSOR_CHUNK = 256;
+
+    /** 最新の履歴のスナップショットで保持する件数の既定値。 */
+    static final int DEFAULT_LATEST_WINDOW = 100;
+
+    private final Shard[] shards;
+    private final LatestSubmissions latest;
+
+    /**
+     * @param shardCount    シャード数
+     * @param retentionSize 全体の保持件数。シャードごとに均等に割り当てる
+     */
+    SubmissionShards(int shardCount, int retentionSize) {
+        this(shardCount, retentionSize, 0, DEFAULT_LATEST_WINDOW, 1, null);
+    }
+
+    /**
+     * @param shardCount       シャード数
+     * @param retentionSize    全体の保持件数。シャードごとに均等に割り当てる
+     * @param arenaChunkSize   申請内容詳細をヒープ外に格納するチャンクのバイト数。0 以下の場合はヒープに格納する
+     * @param latestWindow     最新の履歴のスナップショットで保持する件数
+     * @param latestHead       スナップショットの先頭部分のビューを作っておく件数（よく取得される件数）
+     * @param evictionListener 押し出された履歴の受け取り先。書き込みスレッドから呼ばれる。不要な場合は {@code null}
+     */
+    SubmissionShards(int shardCount, int retentionSize, int arenaChunkSize, int latestWindow, int latestHead,
+                     Consumer<SubmissionLog> evictionListener) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive: " + shardCount);
+        }
+        int perShard = (retentionSize + shardCount - 1) / shardCount;
+        this.latest = new LatestSubmissions(latestWindow, latestHead, this::isRetained, this::newestBefore);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(perShard, arenaChunkSize > 0 ? new DescriptionArena(arenaChunkSize) : null,
+                latest, evictionListener);
+        }
+    }
+
+    int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 申請者IDから格納先のシャード番号を求める。
+     */
+    int shardOf(String applicantId) {
+        if (shards.length == 1 || applicantId == null) {
+            return 0;
+        }
+        int hash = applicantId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    /**
+     * 履歴を格納先のシャードへ追加する。押し出された古い履歴はそのシャードのインデックスからも取り除く。
+     * <p>
+     * ヒープ外格納が有効な場合、格納するのは申請内容詳細を移した別インスタンスになる（{@code submission} 自体は変更しない）。
+     * 全文検索の索引付けは行わないため、続けて {@link #indexDescription} を呼ぶこと（保存処理では変更フィードの後続処理から呼ぶ）。
+     *
+     * @return 格納したインスタンス
+     */
+    SubmissionLog retain(SubmissionLog submission) {
+        return shards[shardOf(submission.applicantId())].retain(submission);
+    }
+
+    private boolean isRetained(SubmissionLog log) {
+        return shards[shardOf(log.applicantId())].index.contains(log);
+    }
+
+    /**
+     * 受付番号が {@code beforeId} より小さい保持中の履歴のうち、全シャードを通して最も新しいもの。無い場合は {@code null}。
+     */
+    private SubmissionLog newestBefore(long beforeId) {
+        SubmissionLog newest = null;
+        for (Shard shard : shards) {
+            SubmissionLog candidate = shard.index.newestBefore(beforeId);
+            if (candidate != null && (newest == null || candidate.id() > newest.id())) {
+                newest = candidate;
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * {@link #retain} で格納した履歴を全文検索の索引へ追加する。
+     * <p>
+     * 格納より後で呼ばれるため、その間に押し出された履歴は索引へ追加した直後に取り除く。
+     * 押し出し側はインデックスから外してから全文検索の索引から外すので、どちらの順で競合しても索引に残らない。
+     *
+     * @param stored {@link #retain} が返したインスタンス
+     */
+    void indexDescription(SubmissionLog stored) {
+        Shard shard = shards[shardOf(stored.applicantId())];
+        shard.searchIndex.add(stored);
+        if (!shard.index.contains(stored)) {
+            shard.searchIndex.remove(stored);
+        }
+    }
+
+    /**
+     * 新しい順に最大 {@code limit} 件を返す。{@code limit} がスナップショットの保持件数以内であれば、
+     * 公開済みのスナップショット（またはその先頭部分のビュー）を返し、コピーやマージを行わない。
+     */
+    List<SubmissionLog> latest(int limit) {
+        if (limit <= latest.windowSize()) {
+            return latest.latest(limit);
+        }
+        return page(0, limit, true);
+    }
+
+    /**
+     * 全シャードの履歴を指定した並び順でページ単位で取得する。
+     */
+    List<SubmissionLog> page(int offset, int limit, boolean newestFirst) {
+        if (newestFirst && offset <= 0 && limit <= latest.windowSize()) {
+            return latest.latest(limit);
+        }
+        return query(SubmissionQuery.all(), offset, limit, newestFirst);
+    }
+
+    /**
+     * 条件に一致する履歴を指定した並び順でページ単位で取得する。申請者IDを指定した場合は 1 つのシャードだけを読む。
+     */
+    List<SubmissionLog> query(SubmissionQuery query, int offset, int limit, boolean newestFirst) {
+        if (shards.length == 1 || query.applicantId() != null) {
+            return shards[shardOf(query.applicantId())].index.query(query, offset, limit, newestFirst);
+        }
+        int window = window(offset, limit);
+        List<List<SubmissionLog>> sources = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            sources.add(shard.index.query(query, 0, window, newestFirst));
+        }
+        return merge(sources, offset, limit, newestFirst);
+    }
+
+    /**
+     * 受付番号が {@code afterId} より後ろで条件に一致する履歴を受付番号順に最大 {@code limit} 件返す。
+     * 各シャードはインデックス上でカーソル位置へ直接移動するため、ページの深さに関わらず取得件数ぶんの走査で済む。
+     */
+    List<SubmissionLog> queryAfter(SubmissionQuery query, long afterId, int limit, boolean newestFirst) {
+        if (shards.length == 1 || query.applicantId() != null) {
+            return shards[shardOf(query.applicantId())].index.queryAfter(query, afterId, limit, newestFirst);
+        }
+        List<List<SubmissionLog>> sources = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            sources.add(shard.index.queryAfter(query, afterId, limit, newestFirst));
+        }
+        return mergeById(sources, limit, newestFirst);
+    }
+
+    /**
+     * 受付番号順に整列済みの各結果をまとめ、受付番号順に最大 {@code limit} 件を返す。
+     */
+    static List<SubmissionLog> mergeById(List<List<SubmissionLog>> sources, int limit, boolean newestFirst) {
+        List<SubmissionLog> merged = new ArrayList<>();
+        for (List<SubmissionLog> source : sources) {
+            merged.addAll(source);
+        }
+        Comparator<SubmissionLog> byId = Comparator.comparingLong(SubmissionLog::id);
+        merged.sort(newestFirst ? byId.reversed() : byId);
+        return Collections.unmodifiableList(merged.size() > limit ? merged.subList(0, Math.max(0, limit)) : merged);
+    }
+
+    /**
+     * 条件に一致する履歴の件数を返す。
+     */
+    int count(SubmissionQuery query) {
+        if (query.isUnfiltered()) {
+            int total = 0;
+            for (Shard shard : shards) {
+                total += shard.ring.size();
+            }
+            return total;
+        }
+        if (query.applicantId() != null) {
+            return shards[shardOf(query.applicantId())].index.count(query);
+        }
+        int total = 0;
+        for (Shard shard : shards) {
+            total += shard.index.count(query);
+        }
+        return total;
+    }
+
+    /**
+     * 申請内容詳細を全文検索し、全シャードの結果を関連度の高い順にまとめて返す。
+     */
+    List<SubmissionSearchHit> search(String text, int limit) {
+        if (shards.length == 1) {
+            return shards[0].searchIndex.search(text, limit);
+        }
+        List<SubmissionSearchHit> hits = new ArrayList<>();
+        for (Shard shard : shards) {
+            hits.addAll(shard.searchIndex.search(text, limit));
+        }
+        hits.sort((left, right) -> {
+            int byScore = Double.compare(right.score(), left.score());
+            return byScore != 0 ? byScore : Long.compare(right.submission().id(), left.submission().id());
+        });
+        return Collections.unmodifiableList(hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits);
+    }
+
+    /**
+     * 呼び出し時点で保持している履歴を古い順に 1 件ずつ {@code consumer} へ渡す。
+     * <p>
+     * 各シャードを通番のカーソルで少しずつ読み進めながらマージするため、追加のメモリはシャードあたり一定量で済む。
+     * シャード内の順序は格納順のまま保つ（スナップショットから復元したときに同じ履歴が押し出されるようにするため）。
+     */
+    void forEachOldestFirst(Consumer<SubmissionLog> consumer) {
+        if (shards.length == 1) {
+            shards[0].ring.forEachOldestFirst(consumer);
+            return;
+        }
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>(shards.length,
+            (left, right) -> OLDEST_FIRST.compare(left.head(), right.head()));
+        for (Shard shard : shards) {
+            ShardCursor cursor = new ShardCursor(shard.ring);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        while (!heads.isEmpty()) {
+            ShardCursor cursor = heads.poll();
+            consumer.accept(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * 保持している全履歴を古い順に返す。スナップショットの取得に使う。
+     */
+    List<SubmissionLog> retained() {
+        List<SubmissionLog> retained = new ArrayList<>();
+        forEachOldestFirst(retained::add);
+        return Collections.unmodifiableList(retained);
+    }
+
+    /**
+     * シャードごとに保持している履歴を古い順に返す。シャードをまたいだマージを行わないため、
+     * 並び順を問わない集計で各シャードを並列に読むために使う。
+     */
+    List<List<SubmissionLog>> retainedByShard() {
+        List<List<SubmissionLog>> retained = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            retained.add(shard.ring.page(0, Integer.MAX_VALUE, false));
+        }
+        return retained;
+    }
+
+    static int window(int offset, int limit) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.max(0, offset) + Math.max(0, limit));
+    }
+
+    /**
+     * 並び順に整列済みの各シャードの結果をマージし、{@code offset} 件を読み飛ばして最大 {@code limit} 件を返す。
+     */
+    static List<SubmissionLog> merge(List<List<SubmissionLog>> sources, int offset, int limit, boolean newestFirst) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Comparator<SubmissionLog> order = newestFirst ? NEWEST_FIRST : OLDEST_FIRST;
+        // 各要素は {ソース番号, ソース内の位置}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(sources.size(),
+            (left, right) -> order.compare(sources.get(left[0]).get(left[1]), sources.get(right[0]).get(right[1])));
+        for (int i = 0; i < sources.size(); i++) {
+            if (!sources.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<SubmissionLog> result = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        while (!heads.isEmpty() && result.size() < limit) {
+            int[] head = heads.poll();
+            List<SubmissionLog> source = sources.get(head[0]);
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(source.get(head[1]));
+            }
+            if (++head[1] < source.size()) {
+                heads.add(head);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * 1 つのシャード分の履歴とインデックス。
+     */
+    private static final class Shard {
+        private final SubmissionRingBuffer ring;
+        private final SubmissionIndex index = new SubmissionIndex();
+        private final DescriptionSearchIndex searchIndex = new DescriptionSearchIndex();
+        /** 申請内容詳細の格納先。ヒープに格納する場合は {@code null}。 */
+        private final DescriptionArena arena;
+        private final LatestSubmissions latest;
+        private final Consumer<SubmissionLog> evictionListener;
+
+        Shard(int retentionSize, DescriptionArena arena, LatestSubmissions latest,
+              Consumer<SubmissionLog> evictionListener) {
+            this.ring = new SubmissionRingBuffer(retentionSize);
+            this.arena = arena;
+            this.latest = latest;
+            this.evictionListener = evictionListener;
+        }
+
+        SubmissionLog retain(SubmissionLog submission) {
+            SubmissionLog stored = arena == null ? submission : submission.withDescriptionIn(arena);
+            index.add(stored);
+            SubmissionLog evicted = ring.append(stored);
+            if (evicted != null) {
+                // スナップショットの補充で押し出した履歴を拾わないよう、公開より先にインデックスから外す
+                index.remove(evicted);
+                searchIndex.remove(evicted);
+            }
+            latest.publish(stored, evicted);
+            if (evicted != null && evictionListener != null) {
+                evictionListener.accept(evicted);
+            }
+            return stored;
+        }
+    }
+
+    /**
+     * シャードのリングバッファを通番で少しずつ読み進めるカーソル。
+     */
+    private static final class ShardCursor {
+        private final SubmissionRingBuffer ring;
+        private final long endSequence;
+        private final List<SubmissionLog> buffer = new ArrayList<>(CURSOR_CHUNK);
+        private long nextSequence;
+        private int position;
+
+        ShardCursor(SubmissionRingBuffer ring) {
+            this.ring = ring;
+            this.endSequence = ring.endSequence();
+        }
+
+        SubmissionLog head() {
+            return buffer.get(position);
+        }
+
+        /**
+         * 次の履歴へ進む。読み終えた場合は {@code false}。
+         */
+        boolean advance() {
+            if (!buffer.isEmpty() && ++position < buffer.size()) {
+                return true;
+            }
+            buffer.clear();
+            position = 0;
+            while (buffer.isEmpty() && nextSequence < endSequence) {
+                nextSequence = ring.readFrom(nextSequence, endSequence, CURSOR_CHUNK, buffer);
+            }
+            return !buffer.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 申請履歴のスナップショットを保存し、取り込み済みのジャーナルセグメントを削除する。
+ * <p>
+ * 一定間隔でメモリ上の履歴（保持件数ぶん）をバイナリファイルへ書き出し、書き出しが完了したら
+ * スナップショットより前のジャーナルセグメントと古いスナップショットを削除する。
+ * 起動時は最新のスナップショットを読み込んでから、それ以降のセグメントだけを再生すればよいため、
+ * 稼働期間が延びても再起動にかかる時間は保持件数ぶんで頭打ちになる。
+ * <p>
+ * ファイル形式（すべてビッグエンディアン）:
+ * <pre>
+ * int     マジックナンバー
+ * byte    フォーマットバージョン
+ * long    再生を開始するジャーナルセグメント番号
+ * long    次に採番する受付番号
+ * int     レコード件数
+ * 以降    [int 本体長][本体]（本体は {@link SubmissionLogCodec} 参照）をレコード件数ぶん
+ * int     ここまでの CRC32
+ * </pre>
+ * ジャーナルと同じく {@code app.submissions.journal.enabled=true} の場合のみ Bean として登録される。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.submissions.journal", name = "enabled", havingValue = "true")
+public class SubmissionSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionSnapshotStore.class);
+
+    private static final int MAGIC = 0x53554253; // "SUBS"
+    private static final byte FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path directory;
+    private final long intervalSeconds;
+    private final SubmissionJournal journal;
+    private final ScheduledExecutorService scheduler;
+
+    public SubmissionSnapshotStore(
+        @Value("${app.submissions.journal.directory:./data/journal}") String directory,
+        @Value("${app.submissions.journal.snapshot-interval-seconds:300}") long intervalSeconds,
+        SubmissionJournal journal) throws IOException {
+        this.directory = Paths.get(directory);
+        this.intervalSeconds = intervalSeconds;
+        this.journal = journal;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "submission-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Files.createDirectories(this.directory);
+    }
+
+    /**
+     * 定期的なスナップショット取得を開始する。
+     *
+     * @param capture 履歴の整合した状態を取り出す処理。取り出し中は新しい保存を止めておくこと
+     */
+    void start(Supplier<SnapshotState> capture) {
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                write(capture.get());
+            } catch (IOException | RuntimeException ex) {
+                // 失敗してもジャーナルは残っているため、次回の取得で取り戻せる
+                log.warn("Failed to write submission snapshot", ex);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 最新の有効なスナップショットを読み込む。破損しているファイルは読み飛ばして 1 つ前を使う。
+     */
+    Optional<SnapshotState> loadLatest() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try {
+                return Optional.of(read(path));
+            } catch (IOException | IllegalArgumentException ex) {
+                log.warn("Ignoring unreadable submission snapshot {}", path.getFileName(), ex);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * スナップショットを書き出し、取り込み済みのジャーナルセグメントと古いスナップショットを削除する。
+     */
+    void write(SnapshotState state) throws IOException {
+        long started = System.nanoTime();
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, state.journalSegment(), SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temporary);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(state.journalSegment());
+            out.writeLong(state.nextId());
+            out.writeInt(state.submissions().size());
+            for (SubmissionLog submission : state.submissions()) {
+                byte[] payload = SubmissionLogCodec.encode(submission);
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            out.flush();
+            // CRC は本体だけを対象にするため、チェック用ストリームを通さずに書き込む
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+            file.flush();
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        int deletedSegments = journal.deleteSegmentsBefore(state.journalSegment());
+        for (Path snapshot : listSnapshots()) {
+            if (!snapshot.equals(target)) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        log.info("Wrote submission snapshot with {} entries in {} ms; compacted {} journal segments",
+            state.submissions().size(), (System.nanoTime() - started) / 1_000_000, deletedSegments);
+    }
+
+    private SnapshotState read(Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+             CheckedInputStream checked = new CheckedInputStream(file, crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a submission snapshot: " + path);
+            }
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            long journalSegment = in.readLong();
+            long nextId = in.readLong();
+            int count = in.readInt();
+            List<SubmissionLog> submissions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                submissions.add(SubmissionLogCodec.decode(ByteBuffer.wrap(payload)));
+            }
+            int expected = (int) crc.getValue();
+            if (new DataInputStream(file).readInt() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+            return new SnapshotState(journalSegment, nextId, Collections.unmodifiableList(submissions));
+        } catch (EOFException ex) {
+            throw new IOException("Truncated snapshot: " + path, ex);
+        }
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * スナップショットとして保存する履歴の状態。
+     *
+     * @param journalSegment 復元後に再生を開始するジャーナルセグメント番号
+     * @param nextId         次に採番する受付番号
+     * @param submissions    保持している履歴（古い順）
+     */
+    record SnapshotState(long journalSegment, long nextId, List<SubmissionLog> submissions) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 申請の件数をリアルタイムに集計する統計コンポーネント。
+ * <p>
+ * 申請区分・所属部署・希望日ごとの件数は {@link LongAdder} で数え、書き込み側のスレッド間で
+ * カウンタを奪い合わないようにしている。直近 1 分・5 分・15 分の秒間申請数は、
+ * 1 秒単位のバケットを 15 分ぶん並べたリングで集計する。
+ * 希望日ごとの件数は今日の前後 {@code desiredDateDays} 日の範囲だけを日付順に保持し、範囲を外れた日は公開のたびに捨てる。
+ * <p>
+ * CSV 一括取り込みで保存した申請は {@link #recordImported} で件数だけを別に数え、受付件数・内訳・秒間申請数には含めない。
+ * 起動時に読み込んだ履歴は {@link #restore} で件数と内訳に加える（秒間申請数には含めない）。
+ * 保存の経路は履歴に残らないため、以前の起動で取り込んだ申請も再起動後は受け付けた申請として数える。
+ * <p>
+ * 集計結果は 1 秒ごとに {@link Snapshot} として作り直して公開するため、
+ * {@link #snapshot()} は履歴を再集計せず O(1) で返る。
+ */
+@Component
+public class SubmissionStatistics {
+
+    private static final int WINDOW_SECONDS = 15 * 60;
+    private static final String NOT_SPECIFIED = "(未指定)";
+
+    private final LongAdder total = new LongAdder();
+    private final LongAdder imported = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> byRequestType = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> byDepartment = new ConcurrentHashMap<>();
+    /** 希望日ごとの件数。日付順に並ぶため、公開時に並べ替えずに済む。 */
+    private final ConcurrentSkipListMap<LocalDate, LongAdder> byDesiredDate = new ConcurrentSkipListMap<>();
+    private final int desiredDateDays;
+
+    /** 秒単位バケットの件数と、そのバケットが表すエポック秒。 */
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray bucketSeconds = new AtomicLongArray(WINDOW_SECONDS);
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * @param desiredDateDays 希望日ごとの件数を保持する範囲（今日の前後の日数）
+     */
+    public SubmissionStatistics(@Value("${app.submissions.statistics.desired-date-days:365}") int desiredDateDays) {
+        if (desiredDateDays < 0) {
+            throw new IllegalArgumentException("desiredDateDays must not be negative: " + desiredDateDays);
+        }
+        this.desiredDateDays = desiredDateDays;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            bucketSeconds.set(i, -1);
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "submission-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(this::publishSnapshot, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 受け付けた申請を集計に加える。
+     */
+    public void record(SubmissionLog submission) {
+        count(submission);
+        recordRate(currentSecond());
+    }
+
+    /**
+     * CSV 一括取り込みで保存した申請を数える。受付件数・内訳・秒間申請数には含めない。
+     */
+    public void recordImported(SubmissionLog submission) {
+        imported.increment();
+    }
+
+    /**
+     * 起動時に読み込んだ履歴を件数と内訳に加える。秒間申請数には含めない。
+     */
+    public void restore(SubmissionLog submission) {
+        count(submission);
+    }
+
+    private void count(SubmissionLog submission) {
+        total.increment();
+        byRequestType.computeIfAbsent(keyOf(submission.requestType()), key -> new LongAdder()).increment();
+        byDepartment.computeIfAbsent(keyOf(submission.department()), key -> new LongAdder()).increment();
+        LocalDate desiredDate = submission.desiredDate();
+        if (desiredDate != null && Math.abs(desiredDate.toEpochDay() - LocalDate.now().toEpochDay()) <= desiredDateDays) {
+            byDesiredDate.computeIfAbsent(desiredDate, key -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 直近に公開された集計結果を返す。集計結果は 1 秒ごとに更新される。
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    private void recordRate(long second) {
+        int index = (int) (second % WINDOW_SECONDS);
+        long stamp = bucketSeconds.get(index);
+        if (stamp != second && bucketSeconds.compareAndSet(index, stamp, second)) {
+            // 15 分前のバケットを再利用する。切り替え直後の同時書き込みは稀に 1 件失われ得るが、レート表示には影響しない
+            bucketCounts.set(index, 0);
+        }
+        bucketCounts.incrementAndGet(index);
+    }
+
+    void publishSnapshot() {
+        // 範囲を過ぎた希望日を捨てる。範囲より先の日はそもそも数えない
+        byDesiredDate.headMap(LocalDate.now().minusDays(desiredDateDays)).clear();
+        long now = currentSecond();
+        long lastMinute = 0;
+        long lastFiveMinutes = 0;
+        long lastFifteenMinutes = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            long age = now - bucketSeconds.get(i);
+            if (age < 0 || age >= WINDOW_SECONDS) {
+                continue;
+            }
+            long count = bucketCounts.get(i);
+            lastFifteenMinutes += count;
+            if (age < 5 * 60) {
+                lastFiveMinutes += count;
+            }
+            if (age < 60) {
+                lastMinute += count;
+            }
+        }
+        Map<LocalDate, Long> desiredDates = new LinkedHashMap<>();
+        byDesiredDate.forEach((date, count) -> desiredDates.put(date, count.sum()));
+        snapshot = new Snapshot(
+            total.sum(),
+            imported.sum(),
+            lastMinute / 60.0,
+            lastFiveMinutes / (5 * 60.0),
+            lastFifteenMinutes / (15 * 60.0),
+            sortedCounts(byRequestType, Comparator.naturalOrder()),
+            sortedCounts(byDepartment, Comparator.naturalOrder()),
+            Collections.unmodifiableMap(desiredDates));
+    }
+
+    private static <K> Map<K, Long> sortedCounts(Map<K, LongAdder> counters, Comparator<K> order) {
+        Map<K, Long> result = new LinkedHashMap<>();
+        counters.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey(order))
+            .forEach(entry -> result.put(entry.getKey(), entry.getValue().sum()));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String keyOf(String value) {
+        return value == null || value.isBlank() ? NOT_SPECIFIED : value;
+    }
+
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * ある時点の集計結果。
+     *
+     * @param total                  受け付けた申請の総数（起動時に読み込んだ履歴を含み、一括取り込みの分は含まない）
+     * @param imported               起動後に CSV 一括取り込みで保存した申請の数
+     * @param perSecondLastMinute    直近 1 分の平均秒間申請数
+     * @param perSecondLast5Minutes  直近 5 分の平均秒間申請数
+     * @param perSecondLast15Minutes 直近 15 分の平均秒間申請数
+     * @param byRequestType          申請区分ごとの件数
+     * @param byDepartment           所属部署ごとの件数
+     * @param byDesiredDate          希望日ごとの件数（今日の前後の保持範囲内のみ、日付順）
+     */
+    public record Snapshot(
+        long total,
+        long imported,
+        double perSecondLastMinute,
+        double perSecondLast5Minutes,
+        double perSecondLast15Minutes,
+        Map<String, Long> byRequestType,
+        Map<String, Long> byDepartment,
+        Map<LocalDate, Long> byDesiredDate) {
+
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, Map.of(), Map.of(), Map.of());
+    }
+}
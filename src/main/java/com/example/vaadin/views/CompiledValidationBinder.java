@@ -0,0 +1,37 @@
+package com.example.vaadin.views;
+
+import com.example.vaadin.services.CompiledBeanValidator;
+import com.vaadin.flow.data.binder.Binder;
+import com.vaadin.flow.data.binder.PropertyDefinition;
+import com.vaadin.flow.data.binder.ValidationResult;
+import com.vaadin.flow.data.binder.Validator;
+
+/**
+ * {@link CompiledBeanValidator} で入力チェックを行う Binder。
+ * <p>
+ * {@code BeanValidationBinder} と同じく {@link #bindInstanceFields(Object)} などで自動バインドしたプロパティに
+ * アノテーション由来のチェックを追加するが、入力のたびに Bean Validation のメタデータを辿らず、
+ * 起動時に組み立てた検査処理をそのまま呼び出す。メッセージはアノテーションの文言と同じになる。
+ *
+ * @param <BEAN> バインド対象の型
+ */
+class CompiledValidationBinder<BEAN> extends Binder<BEAN> {
+
+    private final CompiledBeanValidator<BEAN> validator;
+
+    CompiledValidationBinder(Class<BEAN> beanType) {
+        super(beanType);
+        this.validator = CompiledBeanValidator.of(beanType);
+    }
+
+    @Override
+    protected BindingBuilder<BEAN, ?> configureBinding(BindingBuilder<BEAN, ?> binding,
+                                                       PropertyDefinition<BEAN, ?> definition) {
+        String property = definition.getTopLevelName();
+        Validator<Object> check = (value, context) -> {
+            String message = validator.firstViolation(property, value);
+            return message == null ? ValidationResult.ok() : ValidationResult.error(message);
+        };
+        return binding.withValidator(check);
+    }
+}
@@ -2,8 +2,14 @@ package com.example.vaadin.views;
 
 import com.example.vaadin.model.SimpleApplicationRequest;
 import com.example.vaadin.services.ApplicationRequestService;
+import com.example.vaadin.services.SubmissionRejectedException;
+import com.example.vaadin.services.SubmissionBroadcaster;
+import com.example.vaadin.services.SubmissionQuery;
+import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.HasValidation;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.combobox.ComboBox;
@@ -23,16 +29,23 @@ import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.EmailField;
 import com.vaadin.flow.component.textfield.TextArea;
 import com.vaadin.flow.component.textfield.TextField;
-import com.vaadin.flow.data.binder.BeanValidationBinder;
 import com.vaadin.flow.data.binder.ValidationException;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
 import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 /**
  * Vaadin 24 の推奨コーディングスタイルに沿ったシンプルな申請フォーム。
@@ -45,10 +58,25 @@ public class SimpleApplicationView extends VerticalLayout {
 
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
 
+    /** 読み出しはすべて受付番号順のため、並べ替えられるのは受付番号の列だけにする。 */
+    private static final String ID_SORT_PROPERTY = "id";
+
+    private static final List<String> REQUEST_TYPES = List.of("備品購入", "出張申請", "システム権限", "その他");
+
     private final ApplicationRequestService requestService;
 
-    private final BeanValidationBinder<SimpleApplicationRequest> binder =
-        new BeanValidationBinder<>(SimpleApplicationRequest.class);
+    private final SubmissionBroadcaster broadcaster;
+
+    private Registration broadcasterRegistration;
+
+    /** 入力フォームごとの冪等キー。リセットのたびに払い出し、同じフォームからの再送信を検出する。 */
+    private String formInstanceKey;
+
+    /** 選択中の申請区分で受付枠が埋まっている希望日。申請区分の変更時と新着申請の通知時に取得し直す。 */
+    private Set<LocalDate> fullyBookedDates = Set.of();
+
+    private final CompiledValidationBinder<SimpleApplicationRequest> binder =
+        new CompiledValidationBinder<>(SimpleApplicationRequest.class);
 
     private final TextField applicantId = new TextField("申請者ID");
     private final TextField applicantName = new TextField("申請者名");
@@ -65,8 +93,16 @@ public class SimpleApplicationView extends VerticalLayout {
         new Grid<>(ApplicationRequestService.SubmissionLog.class, false);
     private final Paragraph emptyHistoryMessage = new Paragraph("まだ申請履歴はありません。");
 
-    public SimpleApplicationView(ApplicationRequestService requestService) {
+    // 履歴の絞り込み条件（Binder の自動バインド対象にならないよう DTO と異なる名前にしている）
+    private final TextField historyApplicantIdFilter = new TextField("申請者ID");
+    private final ComboBox<String> historyRequestTypeFilter = new ComboBox<>("申請区分");
+    private final TextField historyDepartmentFilter = new TextField("所属部署");
+    private final DatePicker historyDesiredFromFilter = new DatePicker("希望日（から）");
+    private final DatePicker historyDesiredToFilter = new DatePicker("希望日（まで）");
+
+    public SimpleApplicationView(ApplicationRequestService requestService, SubmissionBroadcaster broadcaster) {
         this.requestService = requestService;
+        this.broadcaster = broadcaster;
 
         setSizeFull();
         setPadding(false);
@@ -78,6 +114,7 @@ public class SimpleApplicationView extends VerticalLayout {
         configureFormFields();
         configureBinder();
         configureHistoryGrid();
+        configureHistoryFilters();
         configureActions();
         refreshHistory();
         resetForm();
@@ -100,6 +137,26 @@ public class SimpleApplicationView extends VerticalLayout {
         add(shell);
     }
 
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        // 他のユーザーの申請も履歴へ反映する。通知は一定間隔でまとめて届くため、UI.access も 1 回で済む
+        UI ui = attachEvent.getUI();
+        broadcasterRegistration = broadcaster.register(submissions -> ui.access(() -> {
+            refreshHistory();
+            refreshAvailability();
+        }));
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        if (broadcasterRegistration != null) {
+            broadcasterRegistration.remove();
+            broadcasterRegistration = null;
+        }
+        super.onDetach(detachEvent);
+    }
+
     private VerticalLayout createContentLayout() {
         VerticalLayout content = new VerticalLayout();
         content.setPadding(false);
@@ -175,14 +232,22 @@ public class SimpleApplicationView extends VerticalLayout {
         historySection.addClassName("app-content-subsection");
         historySection.getStyle().set("gap", "12px");
 
-        H2 title = new H2("直近の申請履歴");
+        H2 title = new H2("申請履歴");
         title.getStyle().set("margin", "0");
 
         emptyHistoryMessage.getStyle()
             .set("color", "var(--lumo-secondary-text-color)")
             .set("margin", "0");
 
-        historySection.add(title, emptyHistoryMessage, historyGrid);
+        HorizontalLayout filters = new HorizontalLayout(historyApplicantIdFilter, historyRequestTypeFilter,
+            historyDepartmentFilter, historyDesiredFromFilter, historyDesiredToFilter);
+        filters.setPadding(false);
+        filters.setMargin(false);
+        filters.setWidthFull();
+        filters.getStyle().set("flex-wrap", "wrap");
+        filters.setDefaultVerticalComponentAlignment(FlexComponent.Alignment.BASELINE);
+
+        historySection.add(title, emptyHistoryMessage, filters, historyGrid);
         return historySection;
     }
 
@@ -213,7 +278,7 @@ public class SimpleApplicationView extends VerticalLayout {
 
         requestType.setWidthFull();
         requestType.setRequiredIndicatorVisible(true);
-        requestType.setItems("備品購入", "出張申請", "システム権限", "その他");
+        requestType.setItems(REQUEST_TYPES);
         requestType.setPlaceholder("選択してください");
         requestType.setClearButtonVisible(true);
 
@@ -223,6 +288,7 @@ public class SimpleApplicationView extends VerticalLayout {
         desiredDate.setMin(LocalDate.now());
         desiredDate.setPlaceholder("日付を選択");
         desiredDate.setClearButtonVisible(true);
+        requestType.addValueChangeListener(event -> refreshAvailability());
 
         description.setWidthFull();
         description.setMinHeight("160px");
@@ -236,36 +302,94 @@ public class SimpleApplicationView extends VerticalLayout {
     }
 
     private void configureBinder() {
+        // 満枠の日はカレンダー上でも選べないが、手入力や表示後に埋まった場合に備えてサーバー側でも確認する
+        binder.forField(desiredDate)
+            .withValidator(date -> date == null || !fullyBookedDates.contains(date), "選択した日は受付枠が埋まっています")
+            .bind("desiredDate");
         binder.bindInstanceFields(this);
     }
 
     private void configureHistoryGrid() {
         historyGrid.setWidthFull();
-        historyGrid.setAllRowsVisible(true);
+        historyGrid.setHeight("420px");
         historyGrid.addThemeVariants(GridVariant.LUMO_COMPACT, GridVariant.LUMO_ROW_STRIPES);
+        Grid.Column<ApplicationRequestService.SubmissionLog> idColumn =
+            historyGrid.addColumn(log -> log.id())
+                .setHeader("受付番号")
+                .setAutoWidth(true)
+                .setFlexGrow(0);
         historyGrid.addColumn(log -> TIMESTAMP_FORMATTER.format(log.submittedAt()))
             .setHeader("受付日時")
             .setAutoWidth(true)
             .setFlexGrow(0);
-        historyGrid.addColumn(log -> log.request().getApplicantId())
+        historyGrid.addColumn(log -> log.applicantId())
             .setHeader("申請者ID")
             .setAutoWidth(true)
             .setFlexGrow(0);
-        historyGrid.addColumn(log -> log.request().getApplicantName())
+        historyGrid.addColumn(log -> log.applicantName())
             .setHeader("申請者名")
             .setAutoWidth(true);
-        historyGrid.addColumn(log -> log.request().getRequestType())
+        historyGrid.addColumn(log -> log.requestType())
             .setHeader("申請区分")
             .setAutoWidth(true)
             .setFlexGrow(0);
-        historyGrid.addColumn(log -> formatDesiredDate(log.request()))
+        historyGrid.addColumn(log -> formatDesiredDate(log.desiredDate()))
             .setHeader("希望日")
             .setAutoWidth(true)
             .setFlexGrow(0);
-        historyGrid.addColumn(log -> truncateDescription(log.request().getDescription()))
+        historyGrid.addColumn(log -> truncateDescription(log.description()))
             .setHeader("内容概要")
             .setAutoWidth(true);
         historyGrid.getColumns().forEach(column -> column.setSortable(false));
+        idColumn.setSortProperty(ID_SORT_PROPERTY);
+        idColumn.setSortable(true);
+
+        // 表示範囲・並び順・絞り込み条件をサービスへ渡し、必要な行だけを取得する
+        historyGrid.setItems(
+            query -> requestService.query(currentHistoryFilter(), query.getOffset(), query.getLimit(),
+                isNewestFirst(query.getSortOrders())).stream(),
+            query -> requestService.count(currentHistoryFilter()));
+    }
+
+    private void configureHistoryFilters() {
+        historyApplicantIdFilter.setClearButtonVisible(true);
+        historyApplicantIdFilter.setValueChangeMode(ValueChangeMode.LAZY);
+        historyRequestTypeFilter.setItems(REQUEST_TYPES);
+        historyRequestTypeFilter.setClearButtonVisible(true);
+        historyDepartmentFilter.setClearButtonVisible(true);
+        historyDepartmentFilter.setValueChangeMode(ValueChangeMode.LAZY);
+        historyDesiredFromFilter.setLocale(Locale.JAPAN);
+        historyDesiredFromFilter.setClearButtonVisible(true);
+        historyDesiredToFilter.setLocale(Locale.JAPAN);
+        historyDesiredToFilter.setClearButtonVisible(true);
+
+        historyApplicantIdFilter.addValueChangeListener(event -> refreshHistory());
+        historyRequestTypeFilter.addValueChangeListener(event -> refreshHistory());
+        historyDepartmentFilter.addValueChangeListener(event -> refreshHistory());
+        historyDesiredFromFilter.addValueChangeListener(event -> refreshHistory());
+        historyDesiredToFilter.addValueChangeListener(event -> refreshHistory());
+    }
+
+    private SubmissionQuery currentHistoryFilter() {
+        return new SubmissionQuery(
+            blankToNull(historyApplicantIdFilter.getValue()),
+            historyRequestTypeFilter.getValue(),
+            blankToNull(historyDepartmentFilter.getValue()),
+            historyDesiredFromFilter.getValue(),
+            historyDesiredToFilter.getValue());
+    }
+
+    private boolean isNewestFirst(List<QuerySortOrder> sortOrders) {
+        for (QuerySortOrder order : sortOrders) {
+            if (ID_SORT_PROPERTY.equals(order.getSorted())) {
+                return order.getDirection() != SortDirection.ASCENDING;
+            }
+        }
+        return true;
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
     }
 
     private void configureActions() {
@@ -283,30 +407,81 @@ public class SimpleApplicationView extends VerticalLayout {
     }
 
     private void handleSubmit() {
+        SimpleApplicationRequest request = new SimpleApplicationRequest();
         try {
-            SimpleApplicationRequest request = new SimpleApplicationRequest();
             binder.writeBean(request);
-            requestService.submit(request);
+        } catch (ValidationException ex) {
+            submitButton.setEnabled(true);
+            Notification notification = Notification.show("入力内容を確認してください", 3000, Notification.Position.TOP_CENTER);
+            notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+            return;
+        }
+
+        // 保存完了はバッチ処理用スレッドで通知されるため、UI の更新は UI.access 経由で行う
+        UI ui = UI.getCurrent();
+        requestService.submitAsync(request, formInstanceKey).whenComplete((submission, error) -> ui.access(() -> {
+            if (error != null) {
+                showSubmitError(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
             refreshHistory();
             resetForm();
             Notification notification = Notification.show("申請を受け付けました", 3000, Notification.Position.TOP_CENTER);
             notification.addThemeVariants(NotificationVariant.LUMO_SUCCESS);
             applicantId.focus();
-        } catch (ValidationException ex) {
-            submitButton.setEnabled(true);
-            Notification notification = Notification.show("入力内容を確認してください", 3000, Notification.Position.TOP_CENTER);
-            notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+        }));
+    }
+
+    private void showSubmitError(Throwable error) {
+        submitButton.setEnabled(true);
+        if (error instanceof SubmissionRejectedException rejected) {
+            String message = switch (rejected.getReason()) {
+                case DUPLICATE -> "同じ内容の申請は既に送信されています";
+                case RATE_LIMITED -> "短時間に申請が集中しています。"
+                    + Math.max(1, rejected.getRetryAfter().toSeconds()) + "秒ほど待ってから再度お試しください";
+                case OVERLOADED -> "ただいま混み合っています。しばらくしてから再度お試しください";
+                case FULLY_BOOKED -> "選択した希望日は受付枠が埋まっています。別の日を選択してください";
+                case OUTSIDE_BOOKING_PERIOD -> "選択した希望日は受付期間外です。受付期間内の日を選択してください";
+            };
+            if (rejected.getReason() == SubmissionRejectedException.Reason.FULLY_BOOKED) {
+                refreshAvailability();
+            }
+            Notification notification = Notification.show(message, 3000, Notification.Position.TOP_CENTER);
+            notification.addThemeVariants(NotificationVariant.LUMO_CONTRAST);
+            return;
         }
+        Notification notification = Notification.show("申請を受け付けられませんでした。時間をおいて再度お試しください",
+            3000, Notification.Position.TOP_CENTER);
+        notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
     }
 
     private void refreshHistory() {
-        List<ApplicationRequestService.SubmissionLog> latest = requestService.findLatest();
-        historyGrid.setItems(latest);
-        boolean hasHistory = !latest.isEmpty();
+        historyGrid.getDataProvider().refreshAll();
+        boolean hasHistory = requestService.hasHistory();
         historyGrid.setVisible(hasHistory);
         emptyHistoryMessage.setVisible(!hasHistory);
     }
 
+    /**
+     * 選択中の申請区分の満枠日を取得し、カレンダーで選べないようにする。
+     * <p>
+     * 満枠日の一覧はまとめて 1 回だけ取得し、日ごとの判定はブラウザ側の {@code isDateDisabled} で行う。
+     */
+    private void refreshAvailability() {
+        String type = requestType.getValue();
+        fullyBookedDates = type == null ? Set.of() : requestService.findFullyBookedDates(type);
+        OptionalInt dailyCapacity = type == null ? OptionalInt.empty() : requestService.findDailyCapacity(type);
+        desiredDate.setHelperText(dailyCapacity.isPresent()
+            ? "1日あたり " + dailyCapacity.getAsInt() + " 件まで受け付けます（満枠の日は選択できません）"
+            : null);
+        String dates = fullyBookedDates.stream().map(LocalDate::toString).collect(Collectors.joining(","));
+        desiredDate.getElement().executeJs(
+            "const full = new Set($0 ? $0.split(',') : []);"
+                + "this.isDateDisabled = (date) => !!date && full.has("
+                + "date.year + '-' + String(date.month + 1).padStart(2, '0') + '-' + String(date.day).padStart(2, '0'));",
+            dates);
+    }
+
     private void resetForm() {
         applicantId.clear();
         applicantName.clear();
@@ -318,6 +493,7 @@ public class SimpleApplicationView extends VerticalLayout {
 
         clearValidation(applicantId, applicantName, contactEmail, department, requestType, desiredDate, description);
         updateDescriptionHelper(0);
+        formInstanceKey = UUID.randomUUID().toString();
         submitButton.setEnabled(true);
     }
 
@@ -333,8 +509,7 @@ public class SimpleApplicationView extends VerticalLayout {
         description.setHelperText(currentLength + " / 500 文字");
     }
 
-    private String formatDesiredDate(SimpleApplicationRequest request) {
-        LocalDate date = request.getDesiredDate();
+    private String formatDesiredDate(LocalDate date) {
         return date == null ? "-" : date.format(DateTimeFormatter.ISO_LOCAL_DATE);
     }
 
@@ -0,0 +1,249 @@
+package com.example.vaadin.views;
+
+import com.example.vaadin.services.ApplicationRequestService;
+import com.example.vaadin.services.SubmissionExportFormat;
+import com.example.vaadin.services.SubmissionImportResult;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridVariant;
+import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.H1;
+import com.vaadin.flow.component.html.H2;
+import com.vaadin.flow.component.html.Paragraph;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationVariant;
+import com.vaadin.flow.component.orderedlayout.FlexComponent;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.component.upload.receivers.FileBuffer;
+import com.vaadin.flow.router.BeforeEnterEvent;
+import com.vaadin.flow.router.BeforeEnterObserver;
+import com.vaadin.flow.router.NotFoundException;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.flow.server.VaadinRequest;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 申請履歴の一括ダウンロードと CSV 一括取り込みを行う管理者向け画面。
+ * <p>
+ * 全申請者の履歴を扱うため、{@code app.submissions.admin-role} のロールを持つ利用者だけが開ける。
+ * ロールの判定はサーブレットコンテナ（または前段の認証フィルタ）が設定したログイン情報で行い、
+ * 持たない利用者には画面の存在自体を見せないよう「ページが見つかりません」を返す。
+ * ダウンロードは要求のたびにもう一度ロールを確認する。
+ */
+@Route("application/admin")
+@PageTitle("申請データ管理")
+public class SubmissionAdminView extends VerticalLayout implements BeforeEnterObserver {
+
+    private final ApplicationRequestService requestService;
+
+    private final String adminRole;
+
+    // CSV 一括取り込み。アップロードされたファイルは一時ファイルに受けてから読み込む
+    private final FileBuffer importBuffer = new FileBuffer();
+    private final Upload importUpload = new Upload(importBuffer);
+    private final Paragraph importSummary = new Paragraph();
+    private final Grid<SubmissionImportResult.RowError> importErrorGrid =
+        new Grid<>(SubmissionImportResult.RowError.class, false);
+
+    public SubmissionAdminView(ApplicationRequestService requestService,
+                               @Value("${app.submissions.admin-role:ADMIN}") String adminRole) {
+        this.requestService = requestService;
+        this.adminRole = adminRole;
+
+        setSizeFull();
+        setPadding(false);
+        setSpacing(false);
+        setMargin(false);
+        setDefaultHorizontalComponentAlignment(FlexComponent.Alignment.STRETCH);
+        addClassName("app-view");
+    }
+
+    @Override
+    public void beforeEnter(BeforeEnterEvent event) {
+        if (!isAdmin()) {
+            event.rerouteToError(NotFoundException.class);
+            return;
+        }
+        if (getComponentCount() == 0) {
+            // 権限を確認してから組み立て、権限の無い利用者にはダウンロード用のリソースも登録しない
+            configureImport();
+            add(buildShell());
+        }
+    }
+
+    private boolean isAdmin() {
+        VaadinRequest request = VaadinRequest.getCurrent();
+        return request != null && request.isUserInRole(adminRole);
+    }
+
+    private Component buildShell() {
+        SampleNavigationBar navigationBar = new SampleNavigationBar();
+
+        VerticalLayout content = new VerticalLayout();
+        content.setPadding(false);
+        content.setSpacing(false);
+        content.setMargin(false);
+        content.setWidthFull();
+        content.setDefaultHorizontalComponentAlignment(FlexComponent.Alignment.START);
+        content.getStyle().set("gap", "16px");
+
+        content.add(new H1("申請データ管理"));
+        content.add(buildExportSection());
+        content.add(buildImportSection());
+
+        Div navWrapper = new Div(navigationBar);
+        Div contentWrapper = new Div(content);
+        contentWrapper.addClassName("app-content");
+
+        Div frame = new Div(navWrapper, contentWrapper);
+        frame.addClassName("app-frame");
+
+        Div shell = new Div(frame);
+        shell.addClassName("app-shell");
+        shell.setSizeFull();
+        return shell;
+    }
+
+    private Component buildExportSection() {
+        VerticalLayout exportSection = new VerticalLayout();
+        exportSection.setPadding(false);
+        exportSection.setSpacing(false);
+        exportSection.setMargin(false);
+        exportSection.setWidthFull();
+        exportSection.addClassName("app-content-subsection");
+        exportSection.getStyle().set("gap", "12px");
+
+        H2 title = new H2("一括ダウンロード");
+        title.getStyle().set("margin", "0");
+
+        HorizontalLayout exportActions = new HorizontalLayout(
+            createExportLink(SubmissionExportFormat.CSV, "CSV でダウンロード"),
+            createExportLink(SubmissionExportFormat.NDJSON, "NDJSON でダウンロード"));
+        exportActions.setPadding(false);
+        exportActions.setMargin(false);
+
+        exportSection.add(title, exportActions);
+        return exportSection;
+    }
+
+    /**
+     * 保持している全履歴をダウンロードするリンクを作成する。
+     * <p>
+     * 履歴はダウンロード要求のたびにサービスから直接レスポンスへ書き出すため、ファイル全体をメモリに載せない。
+     */
+    private Anchor createExportLink(SubmissionExportFormat format, String label) {
+        StreamResource resource = new StreamResource("submissions." + format.getFileExtension(),
+            (stream, session) -> {
+                if (!isAdmin()) {
+                    throw new IOException("Submission export requires role " + adminRole);
+                }
+                requestService.exportHistory(format, stream);
+            });
+        resource.setContentType(format.getContentType());
+        resource.setCacheTime(0);
+
+        Button button = new Button(label);
+        button.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+
+        Anchor link = new Anchor(resource, "");
+        link.getElement().setAttribute("download", true);
+        link.add(button);
+        return link;
+    }
+
+    private Component buildImportSection() {
+        VerticalLayout importSection = new VerticalLayout();
+        importSection.setPadding(false);
+        importSection.setSpacing(false);
+        importSection.setMargin(false);
+        importSection.setWidthFull();
+        importSection.addClassName("app-content-subsection");
+        importSection.getStyle().set("gap", "12px");
+
+        H2 title = new H2("一括取り込み");
+        title.getStyle().set("margin", "0");
+
+        Paragraph guide = new Paragraph("旧システムから出力した申請データ（UTF-8 の CSV）を取り込みます。"
+            + "列名はダウンロードした CSV と同じです。入力チェックでエラーになった行は取り込まれません。");
+        guide.getStyle()
+            .set("color", "var(--lumo-secondary-text-color)")
+            .set("margin", "0");
+
+        importSection.add(title, guide, importUpload, importSummary, importErrorGrid);
+        return importSection;
+    }
+
+    private void configureImport() {
+        importUpload.setAcceptedFileTypes("text/csv", ".csv");
+        importUpload.setMaxFiles(1);
+        importUpload.setDropLabel(new Paragraph("CSV ファイルをここへドロップ"));
+        importUpload.addSucceededListener(event -> handleImport(importBuffer.getFileData().getFile()));
+
+        importSummary.setVisible(false);
+        importSummary.getStyle().set("margin", "0");
+
+        importErrorGrid.setWidthFull();
+        importErrorGrid.setHeight("240px");
+        importErrorGrid.addThemeVariants(GridVariant.LUMO_COMPACT, GridVariant.LUMO_ROW_STRIPES);
+        importErrorGrid.addColumn(SubmissionImportResult.RowError::lineNumber)
+            .setHeader("行")
+            .setAutoWidth(true)
+            .setFlexGrow(0);
+        importErrorGrid.addColumn(SubmissionImportResult.RowError::message)
+            .setHeader("エラー内容")
+            .setAutoWidth(true);
+        importErrorGrid.setVisible(false);
+    }
+
+    private void handleImport(File file) {
+        importSummary.setText("取り込み中です…");
+        importSummary.setVisible(true);
+        importErrorGrid.setVisible(false);
+
+        // 件数が多いと時間がかかるため、取り込みはサービスの読み込みスレッドで行い結果だけを UI.access で反映する
+        UI ui = UI.getCurrent();
+        requestService.importCsvAsync(file.toPath()).whenComplete((result, error) -> {
+            file.delete();
+            ui.access(() -> {
+                importUpload.clearFileList();
+                if (error != null) {
+                    importSummary.setText("CSV を読み込めませんでした。ファイルの形式を確認してください");
+                    Notification notification = Notification.show("取り込みに失敗しました", 3000, Notification.Position.TOP_CENTER);
+                    notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+                    return;
+                }
+                showImportResult(result);
+            });
+        });
+    }
+
+    private void showImportResult(SubmissionImportResult result) {
+        String summary = result.importedCount() + " 件を取り込みました。";
+        if (result.rejectedCount() > 0) {
+            summary += " " + result.rejectedCount() + " 件はエラーのため取り込んでいません。";
+            if (result.rejectedCount() > result.errors().size()) {
+                summary += "（先頭 " + result.errors().size() + " 件のエラーを表示しています）";
+            }
+        } else if (!result.errors().isEmpty()) {
+            summary = "取り込めませんでした。";
+        }
+        importSummary.setText(summary);
+        importErrorGrid.setItems(result.errors());
+        importErrorGrid.setVisible(!result.errors().isEmpty());
+
+        Notification notification = Notification.show("一括取り込みが完了しました", 3000, Notification.Position.TOP_CENTER);
+        notification.addThemeVariants(result.errors().isEmpty()
+            ? NotificationVariant.LUMO_SUCCESS : NotificationVariant.LUMO_CONTRAST);
+    }
+}
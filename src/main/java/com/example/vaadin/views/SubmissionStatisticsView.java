@@ -0,0 +1,153 @@
+package com.example.vaadin.views;
+
+import com.example.vaadin.services.SubmissionStatistics;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridVariant;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.H1;
+import com.vaadin.flow.component.html.H2;
+import com.vaadin.flow.component.html.Paragraph;
+import com.vaadin.flow.component.orderedlayout.FlexComponent;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * 申請の受付状況をリアルタイムに表示するダッシュボード。
+ * <p>
+ * 集計は {@link SubmissionStatistics} が公開するスナップショットを読むだけで、画面側では履歴を再集計しない。
+ */
+@Route("application/statistics")
+@PageTitle("申請統計")
+public class SubmissionStatisticsView extends VerticalLayout {
+
+    private static final int POLL_INTERVAL_MILLIS = 2000;
+
+    private final SubmissionStatistics statistics;
+
+    private final Paragraph totalLabel = new Paragraph();
+    private final Paragraph rateLabel = new Paragraph();
+    private final Grid<Map.Entry<String, Long>> requestTypeGrid = createCountGrid("申請区分");
+    private final Grid<Map.Entry<String, Long>> departmentGrid = createCountGrid("所属部署");
+    private final Grid<Map.Entry<String, Long>> desiredDateGrid = createCountGrid("希望日");
+
+    private Registration pollRegistration;
+
+    public SubmissionStatisticsView(SubmissionStatistics statistics) {
+        this.statistics = statistics;
+
+        setSizeFull();
+        setPadding(false);
+        setSpacing(false);
+        setMargin(false);
+        setDefaultHorizontalComponentAlignment(FlexComponent.Alignment.STRETCH);
+        addClassName("app-view");
+
+        SampleNavigationBar navigationBar = new SampleNavigationBar();
+
+        VerticalLayout content = new VerticalLayout();
+        content.setPadding(false);
+        content.setSpacing(false);
+        content.setMargin(false);
+        content.setWidthFull();
+        content.setDefaultHorizontalComponentAlignment(FlexComponent.Alignment.START);
+        content.getStyle().set("gap", "16px");
+
+        content.add(new H1("申請統計"));
+        content.add(new Paragraph("シンプル申請フォームで受け付けた申請の件数を集計しています。"
+            + "表示は " + (POLL_INTERVAL_MILLIS / 1000) + " 秒ごとに更新されます。"));
+        content.add(buildSummarySection());
+        content.add(buildBreakdownSection());
+
+        Div navWrapper = new Div(navigationBar);
+        Div contentWrapper = new Div(content);
+        contentWrapper.addClassName("app-content");
+
+        Div frame = new Div(navWrapper, contentWrapper);
+        frame.addClassName("app-frame");
+
+        Div shell = new Div(frame);
+        shell.addClassName("app-shell");
+        shell.setSizeFull();
+
+        add(shell);
+        refresh();
+    }
+
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        attachEvent.getUI().setPollInterval(POLL_INTERVAL_MILLIS);
+        pollRegistration = attachEvent.getUI().addPollListener(event -> refresh());
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        if (pollRegistration != null) {
+            pollRegistration.remove();
+            pollRegistration = null;
+        }
+        detachEvent.getUI().setPollInterval(-1);
+        super.onDetach(detachEvent);
+    }
+
+    private Component buildSummarySection() {
+        VerticalLayout section = new VerticalLayout();
+        section.setPadding(false);
+        section.setSpacing(false);
+        section.setMargin(false);
+        section.setWidthFull();
+        section.addClassName("app-content-subsection");
+        section.getStyle().set("gap", "8px");
+
+        H2 title = new H2("受付状況");
+        title.getStyle().set("margin", "0");
+
+        section.add(title, totalLabel, rateLabel);
+        return section;
+    }
+
+    private Component buildBreakdownSection() {
+        HorizontalLayout section = new HorizontalLayout(requestTypeGrid, departmentGrid, desiredDateGrid);
+        section.setPadding(false);
+        section.setMargin(false);
+        section.setWidthFull();
+        section.addClassName("app-content-subsection");
+        return section;
+    }
+
+    private void refresh() {
+        SubmissionStatistics.Snapshot snapshot = statistics.snapshot();
+        totalLabel.setText("受付総数: " + snapshot.total() + " 件（ほかに一括取り込み " + snapshot.imported() + " 件）");
+        rateLabel.setText(String.format("秒間申請数（平均）: 直近1分 %.2f ／ 直近5分 %.2f ／ 直近15分 %.2f",
+            snapshot.perSecondLastMinute(), snapshot.perSecondLast5Minutes(), snapshot.perSecondLast15Minutes()));
+        requestTypeGrid.setItems(snapshot.byRequestType().entrySet());
+        departmentGrid.setItems(snapshot.byDepartment().entrySet());
+        desiredDateGrid.setItems(snapshot.byDesiredDate().entrySet().stream()
+            .map(entry -> Map.entry(entry.getKey().format(DateTimeFormatter.ISO_LOCAL_DATE), entry.getValue()))
+            .toList());
+    }
+
+    private static Grid<Map.Entry<String, Long>> createCountGrid(String keyHeader) {
+        Grid<Map.Entry<String, Long>> grid = new Grid<>();
+        grid.setWidthFull();
+        grid.setHeight("360px");
+        grid.addThemeVariants(GridVariant.LUMO_COMPACT, GridVariant.LUMO_ROW_STRIPES);
+        grid.addColumn(Map.Entry::getKey)
+            .setHeader(keyHeader)
+            .setAutoWidth(true);
+        grid.addColumn(Map.Entry::getValue)
+            .setHeader("件数")
+            .setAutoWidth(true)
+            .setFlexGrow(0);
+        return grid;
+    }
+}
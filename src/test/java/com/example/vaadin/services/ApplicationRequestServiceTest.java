@@ -0,0 +1,297 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApplicationRequestServiceTest {
+
+    private ApplicationRequestService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void importedRowsWithPastTimestampsPageInIdOrder() throws Exception {
+        service = newService(4, 10);
+        for (int i = 0; i < 30; i++) {
+            service.submit(request("live-" + i));
+        }
+        StringBuilder csv = new StringBuilder(
+            "submittedAt,applicantId,applicantName,contactEmail,requestType,desiredDate\n");
+        for (int i = 0; i < 20; i++) {
+            csv.append(String.format("2020-01-%02dT09:00:00,old-%d,旧システム,old%d@example.com,備品購入,2020-02-01%n",
+                i + 1, i, i));
+        }
+        SubmissionImportResult result = service.importCsv(
+            new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(20, result.importedCount());
+
+        // 取り込んだ申請は受付日時が最も古いが、受付番号は最も新しい
+        List<Long> expected = new ArrayList<>();
+        for (long id = 50; id >= 1; id--) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids(service.findLatest(50)));
+        assertEquals(expected, pageThrough(service, 7, true));
+        assertEquals(expected, cursorThrough(service, SubmissionQuery.all(), 7, true));
+
+        List<Long> oldestFirst = new ArrayList<>(expected);
+        Collections.reverse(oldestFirst);
+        assertEquals(oldestFirst, pageThrough(service, 7, false));
+    }
+
+    @Test
+    void filteredPagesFollowIdOrderAcrossImports() throws Exception {
+        service = newService(4, 10);
+        service.submit(request("live-a"));
+        service.importCsv(new ByteArrayInputStream((
+            "submittedAt,applicantId,applicantName,contactEmail,requestType,desiredDate\n"
+                + "2019-05-01T10:00:00,old-a,旧システム,a@example.com,備品購入,2019-05-10\n"
+                + "2019-04-01T10:00:00,old-b,旧システム,b@example.com,備品購入,2019-04-10\n")
+            .getBytes(StandardCharsets.UTF_8)));
+        service.submit(request("live-b"));
+
+        SubmissionQuery byType = new SubmissionQuery(null, "備品購入", null, null, null);
+        List<Long> first = ids(service.query(byType, 0, 2, true));
+        List<Long> second = ids(service.query(byType, 2, 2, true));
+        assertEquals(List.of(4L, 3L), first);
+        assertEquals(List.of(2L, 1L), second);
+    }
+
+    @Test
+    void hasHistoryTurnsOnWithTheFirstStoredSubmission() throws Exception {
+        service = newService(1, 10);
+        assertFalse(service.hasHistory());
+        service.submit(request("first"));
+        assertTrue(service.hasHistory());
+    }
+
+    @Test
+    void descriptionsAreIndexedFromTheChangeFeedAndEvictedOnesDisappear() throws Exception {
+        service = newService(2, 1, 10);
+        for (int i = 0; i < 3; i++) {
+            SimpleApplicationRequest request = request("search-" + i);
+            request.setDescription("会議室のプロジェクターを交換してください " + i);
+            service.submit(request);
+        }
+        // 索引付けは変更フィードの後続処理で行うため、反映されるまで待つ
+        List<Long> found = List.of();
+        for (int attempt = 0; attempt < 200 && found.size() != 2; attempt++) {
+            Thread.sleep(10);
+            found = new ArrayList<>();
+            for (SubmissionSearchHit hit : service.searchDescriptions("プロジェクター", 10)) {
+                found.add(hit.submission().id());
+            }
+            Collections.sort(found);
+        }
+        assertEquals(List.of(2L, 3L), found);
+    }
+
+    @Test
+    void auditLogRecordsStoredSubmissionsFromTheChangeFeed() throws Exception {
+        Path directory = Files.createTempDirectory("audit-test");
+        SubmissionAuditLog auditLog = new SubmissionAuditLog(directory.toString(), 1024, 64, 10, 1 << 20, 2, false);
+        service = newService(1000, 1, 10, Optional.empty(), Optional.of(auditLog));
+        service.submit(request("audited"));
+        service.importCsv(new ByteArrayInputStream((
+            "submittedAt,applicantId,applicantName,contactEmail,requestType,desiredDate\n"
+                + "2019-05-01T10:00:00,imported,旧システム,a@example.com,備品購入,2019-05-10\n")
+            .getBytes(StandardCharsets.UTF_8)));
+        // 変更フィードに残っている申請を配信しきってから監査ログを閉じる
+        service.shutdown();
+        service = null;
+        auditLog.close();
+
+        List<String> lines = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                lines.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"event\":\"SUBMITTED\"") && lines.get(0).contains("\"id\":1,"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"event\":\"IMPORTED\"") && lines.get(1).contains("\"id\":2,"), lines.get(1));
+    }
+
+    @Test
+    void exportIncludesRowsMigratedToTheColdTier() throws Exception {
+        SubmissionColdStore coldStore = new SubmissionColdStore(
+            Files.createTempDirectory("cold-test").toString(), 4, 2);
+        try {
+            service = newService(5, 1, 5, Optional.of(coldStore), Optional.empty());
+            for (int i = 0; i < 14; i++) {
+                service.submit(request("export-" + i));
+            }
+            coldStore.flush();
+            List<Long> expected = new ArrayList<>();
+            for (long id = 1; id <= 14; id++) {
+                expected.add(id);
+            }
+            assertEquals(expected, exportedIds(service));
+        } finally {
+            coldStore.shutdown();
+        }
+    }
+
+    @Test
+    void cursorPagesSpanHotAndColdTiersWithoutDuplicates() throws Exception {
+        SubmissionColdStore coldStore = new SubmissionColdStore(
+            Files.createTempDirectory("cursor-test").toString(), 4, 2);
+        try {
+            service = newService(5, 1, 5, Optional.of(coldStore), Optional.empty());
+            for (int i = 0; i < 23; i++) {
+                SimpleApplicationRequest request = request("cursor-" + i);
+                request.setDepartment(i % 3 == 0 ? "総務部" : "経理部");
+                service.submit(request);
+            }
+            coldStore.flush();
+
+            List<Long> newestFirst = new ArrayList<>();
+            List<Long> general = new ArrayList<>();
+            for (long id = 23; id >= 1; id--) {
+                newestFirst.add(id);
+                if ((id - 1) % 3 == 0) {
+                    general.add(id);
+                }
+            }
+            assertEquals(newestFirst, cursorThrough(service, SubmissionQuery.all(), 4, true));
+            SubmissionQuery byDepartment = new SubmissionQuery(null, null, "総務部", null, null);
+            assertEquals(general, cursorThrough(service, byDepartment, 3, true));
+            Collections.reverse(general);
+            assertEquals(general, cursorThrough(service, byDepartment, 3, false));
+
+            // ページの合間に申請が追加され古い申請がコールド層へ押し出されても、重複も欠落もなく続きを返す
+            List<Long> oldestFirst = new ArrayList<>();
+            long afterId = 0;
+            int added = 0;
+            while (true) {
+                List<SubmissionLog> page = service.queryAfter(SubmissionQuery.all(), afterId, 4, false);
+                oldestFirst.addAll(ids(page));
+                if (page.size() < 4) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).id();
+                if (added < 6) {
+                    service.submit(request("cursor-added-" + added++));
+                }
+            }
+            List<Long> expected = new ArrayList<>();
+            for (long id = 1; id <= 23 + added; id++) {
+                expected.add(id);
+            }
+            assertEquals(expected, oldestFirst);
+        } finally {
+            coldStore.shutdown();
+        }
+    }
+
+    private static List<Long> exportedIds(ApplicationRequestService service) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportHistory(SubmissionExportFormat.NDJSON, out);
+        List<Long> ids = new ArrayList<>();
+        Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(out.toString(StandardCharsets.UTF_8));
+        while (id.find()) {
+            ids.add(Long.parseLong(id.group(1)));
+        }
+        return ids;
+    }
+
+    private static List<Long> pageThrough(ApplicationRequestService service, int pageSize, boolean newestFirst) {
+        List<Long> ids = new ArrayList<>();
+        for (int offset = 0; ; offset += pageSize) {
+            List<SubmissionLog> page = service.query(SubmissionQuery.all(), offset, pageSize, newestFirst);
+            ids.addAll(ids(page));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+        }
+    }
+
+    private static List<Long> cursorThrough(ApplicationRequestService service, SubmissionQuery query, int pageSize,
+                                            boolean newestFirst) {
+        List<Long> ids = new ArrayList<>();
+        long afterId = newestFirst ? Long.MAX_VALUE : 0;
+        while (true) {
+            List<SubmissionLog> page = service.queryAfter(query, afterId, pageSize, newestFirst);
+            ids.addAll(ids(page));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+            afterId = page.get(page.size() - 1).id();
+            assertTrue(afterId > 0);
+        }
+    }
+
+    private static List<Long> ids(List<SubmissionLog> submissions) {
+        List<Long> ids = new ArrayList<>(submissions.size());
+        for (SubmissionLog submission : submissions) {
+            ids.add(submission.id());
+        }
+        return ids;
+    }
+
+    private static SimpleApplicationRequest request(String applicantId) {
+        SimpleApplicationRequest request = new SimpleApplicationRequest();
+        request.setApplicantId(applicantId);
+        request.setApplicantName("申請者");
+        request.setContactEmail(applicantId + "@example.com");
+        request.setRequestType("備品購入");
+        request.setDesiredDate(LocalDate.now().plusDays(7));
+        return request;
+    }
+
+    /**
+     * 永続化を使わない、メモリ上の履歴だけのサービスを作る。
+     */
+    static ApplicationRequestService newService(int shardCount, int latestWindowSize) {
+        return newService(1000, shardCount, latestWindowSize);
+    }
+
+    static ApplicationRequestService newService(int retentionSize, int shardCount, int latestWindowSize) {
+        return newService(retentionSize, shardCount, latestWindowSize, Optional.empty(), Optional.empty());
+    }
+
+    static ApplicationRequestService newService(int retentionSize, int shardCount, int latestWindowSize,
+                                                Optional<SubmissionColdStore> coldStore,
+                                                Optional<SubmissionAuditLog> auditLog) {
+        SubmissionProperties properties = new SubmissionProperties(retentionSize,
+            new SubmissionProperties.Sharding(shardCount > 1, shardCount),
+            new SubmissionProperties.OffHeapDescriptions(false, 4096),
+            new SubmissionProperties.Latest(latestWindowSize),
+            new SubmissionProperties.Async(1000, 64),
+            new SubmissionProperties.Dedupe(600, 10000),
+            new SubmissionProperties.RateLimit(600, 100, 1000),
+            new SubmissionProperties.Capacity("", 1024, 365),
+            new SubmissionProperties.Import(100),
+            new SubmissionProperties.Feed(256),
+            new SubmissionProperties.Reports(1024, 2));
+        return new ApplicationRequestService(properties,
+            Optional.empty(), Optional.empty(), Optional.empty(), coldStore, auditLog,
+            new SubmissionBroadcaster(250), new SubmissionStatistics(365));
+    }
+}
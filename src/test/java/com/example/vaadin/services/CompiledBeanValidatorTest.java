@@ -0,0 +1,134 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+import com.example.vaadin.services.CompiledBeanValidator.Violation;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledBeanValidatorTest {
+
+    /** Hibernate Validator の {@code EmailValidator} が妥当と判定する値。 */
+    private static final List<String> VALID_EMAILS = List.of(
+        "",
+        "emmanuel@hibernate.org",
+        "emmanuel@hibernate",
+        "emma-n_uel@hibernate.org",
+        "emma+nuel@hibernate.org",
+        "emma=nuel@hibernate.org",
+        "*@example.net",
+        "fred&barny@example.com",
+        "---@example.com",
+        "\"Abc@def\"@example.com",
+        "\"Fred Bloggs\"@example.com",
+        "emmanuel@[123.12.2.11]",
+        "emmanuel@[IPv6:2001:db8::1]",
+        "ü@ü.de",
+        "山田@例え.jp",
+        "a".repeat(64) + "@example.com");
+
+    /** Hibernate Validator の {@code EmailValidator} が不正と判定する値。 */
+    private static final List<String> INVALID_EMAILS = List.of(
+        "emmanuel.hibernate.org",
+        "emma nuel@hibernate.org",
+        "emma(nuel@hibernate.org",
+        "emmanuel@",
+        "@hibernate.org",
+        "emma\nnuel@hibernate.org",
+        "emma@nuel@hibernate.org",
+        ".emmanuel@hibernate.org",
+        "emmanuel.@hibernate.org",
+        "emmanuel..bernard@hibernate.org",
+        "emmanuel@hibernate.org.",
+        "emmanuel@-hibernate.org",
+        "emmanuel@hibernate-.org",
+        "a".repeat(65) + "@example.com",
+        "a@" + "b".repeat(63) + "." + "c".repeat(63) + "." + "d".repeat(63) + "." + "e".repeat(63) + ".org");
+
+    private final CompiledBeanValidator<SimpleApplicationRequest> validator =
+        CompiledBeanValidator.of(SimpleApplicationRequest.class);
+
+    @Test
+    void emailSyntaxMatchesHibernateValidator() {
+        CompiledBeanValidator<EmailOnly> emailValidator = CompiledBeanValidator.of(EmailOnly.class);
+        for (String email : VALID_EMAILS) {
+            assertNull(emailValidator.firstViolation("email", email), "should be valid: " + email);
+        }
+        for (String email : INVALID_EMAILS) {
+            assertEquals("形式が不正です", emailValidator.firstViolation("email", email), "should be invalid: " + email);
+        }
+    }
+
+    @Test
+    void violationsAreReportedInDeclarationOrderWithTheirMessages() {
+        SimpleApplicationRequest request = new SimpleApplicationRequest();
+        request.setApplicantId("   ");
+        request.setApplicantName("申請者");
+        request.setContactEmail("not-an-email");
+        request.setDepartment("部".repeat(65));
+        request.setRequestType("備品購入");
+        request.setDesiredDate(LocalDate.of(2024, 4, 8));
+
+        assertEquals(List.of(
+            new Violation("applicantId", "申請者IDを入力してください"),
+            new Violation("contactEmail", "メールアドレスの形式が不正です"),
+            new Violation("department", "所属部署は64文字以内で入力してください")), validator.validate(request));
+
+        request.setApplicantId("applicant-1");
+        request.setContactEmail("applicant-1@example.com");
+        request.setDepartment(null);
+        assertTrue(validator.validate(request).isEmpty());
+    }
+
+    @Test
+    void sizeParametersAreInterpolatedAndEmailRegexpIsApplied() {
+        CompiledBeanValidator<Interpolated> interpolated = CompiledBeanValidator.of(Interpolated.class);
+        assertEquals("2〜4文字で入力してください", interpolated.firstViolation("code", "a"));
+        assertNull(interpolated.firstViolation("code", "abcd"));
+        assertEquals("社内のアドレスを入力してください", interpolated.firstViolation("email", "a@example.org"));
+        assertNull(interpolated.firstViolation("email", "a@example.com"));
+        assertNull(interpolated.firstViolation("email", ""));
+        assertNull(interpolated.firstViolation("unconstrained", "値"));
+    }
+
+    @Test
+    void unsupportedConstraintsAndMessageKeysFailAtConstruction() {
+        assertThrows(IllegalStateException.class, () -> CompiledBeanValidator.of(WithPattern.class));
+        assertThrows(IllegalStateException.class, () -> CompiledBeanValidator.of(WithMessageKey.class));
+    }
+
+    static class EmailOnly {
+        @Email(message = "形式が不正です")
+        String email;
+    }
+
+    static class Interpolated {
+        @Size(min = 2, max = 4, message = "{min}〜{max}文字で入力してください")
+        String code;
+
+        @Email(regexp = ".*@example\\.com", message = "社内のアドレスを入力してください")
+        String email;
+
+        String unconstrained;
+    }
+
+    static class WithPattern {
+        @Pattern(regexp = "[0-9]+", message = "数字で入力してください")
+        String code;
+    }
+
+    static class WithMessageKey {
+        @NotBlank
+        String name;
+    }
+}
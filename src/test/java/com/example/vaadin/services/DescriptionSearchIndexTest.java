@@ -0,0 +1,86 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DescriptionSearchIndexTest {
+
+    private final DescriptionSearchIndex index = new DescriptionSearchIndex();
+
+    @Test
+    void findsDocumentsRegardlessOfWidthCaseAndSpaces() {
+        index.add(submission(1, "ノートＰＣ の 購入"));
+        index.add(submission(2, "モニターの購入"));
+        index.add(submission(3, "出張の精算"));
+
+        assertEquals(List.of(1L), ids(index.search("ノートpc", 10)));
+        assertEquals(Set.of(1L, 2L), Set.copyOf(ids(index.search("の購入", 10))));
+        assertTrue(index.search("会議室", 10).isEmpty());
+        assertTrue(index.search("購", 10).isEmpty()); // 1 文字は検索しない
+    }
+
+    @Test
+    void outOfOrderAppendsAcrossManyBlocksMatchAScan() {
+        // 受付番号が前後して届いても、ブロックをまたいだ積集合が全件走査と一致する
+        List<Long> order = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            order.add(id);
+        }
+        Collections.shuffle(order, new Random(42));
+        Set<Long> expected = new TreeSet<>();
+        for (long id : order) {
+            String description = id % 3 == 0 ? "プリンター用トナーの購入" : id % 5 == 0 ? "トナーの補充" : "備品の購入";
+            index.add(submission(id, description));
+            if (id % 3 == 0) {
+                expected.add(id);
+            }
+        }
+
+        List<SubmissionSearchHit> hits = index.search("トナーの購入", 5000);
+        assertEquals(expected, new TreeSet<>(ids(hits)));
+        for (int i = 1; i < hits.size(); i++) {
+            // スコアが同じ場合は新しい順
+            assertTrue(hits.get(i - 1).submission().id() > hits.get(i).submission().id());
+        }
+        assertEquals(10, index.search("トナーの購入", 10).size());
+    }
+
+    @Test
+    void removedDocumentsAreNotFoundAfterCompaction() {
+        List<SubmissionLog> submissions = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            SubmissionLog submission = submission(id, "会議室の予約 " + id);
+            submissions.add(submission);
+            index.add(submission);
+        }
+        for (int i = 0; i < 200; i++) {
+            index.remove(submissions.get(i));
+        }
+        List<Long> found = ids(index.search("会議室", 1000));
+        assertEquals(100, found.size());
+        assertTrue(found.stream().allMatch(id -> id > 200));
+    }
+
+    private static SubmissionLog submission(long id, String description) {
+        return new SubmissionLog(id, id * 1000, "applicant-" + id, "申請者", "a@example.com",
+            "総務部", "備品購入", SubmissionLog.NO_DESIRED_DATE, description);
+    }
+
+    private static List<Long> ids(List<SubmissionSearchHit> hits) {
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (SubmissionSearchHit hit : hits) {
+            ids.add(hit.submission().id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateSubmissionDetectorTest {
+
+    @Test
+    void sameKeyOrSameContentIsRejectedUntilReleased() {
+        DuplicateSubmissionDetector detector = new DuplicateSubmissionDetector(600, 1000);
+        assertTrue(detector.tryAcquire("form-1", request("内容 A")));
+        // 同じ冪等キーは内容が違っても重複、同じ内容は冪等キーが違っても重複
+        assertFalse(detector.tryAcquire("form-1", request("内容 B")));
+        assertFalse(detector.tryAcquire("form-2", request("内容 A")));
+        assertFalse(detector.tryAcquire(null, request("内容 A")));
+        assertTrue(detector.tryAcquire("form-2", request("内容 B")));
+
+        // 保存に失敗して取り消した申請は再送できる
+        detector.release("form-1", request("内容 A"));
+        assertTrue(detector.tryAcquire("form-1", request("内容 A")));
+    }
+
+    @Test
+    void keysExpireAfterTheWindow() {
+        DuplicateSubmissionDetector detector = new DuplicateSubmissionDetector(0, 1000);
+        assertTrue(detector.tryAcquire("form-1", request("内容 A")));
+        assertTrue(detector.tryAcquire("form-1", request("内容 A")));
+    }
+
+    @Test
+    void oldestKeysAreDroppedBeyondTheCapacity() {
+        // 上限件数ごとにブルームフィルタの世代が切り替わっても、直近の申請は重複として検出し続ける
+        DuplicateSubmissionDetector detector = new DuplicateSubmissionDetector(600, 16);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(detector.tryAcquire(null, request("内容 " + i)), "submission " + i);
+            assertFalse(detector.tryAcquire(null, request("内容 " + i)), "duplicate " + i);
+        }
+        assertTrue(detector.tryAcquire(null, request("内容 0")));
+    }
+
+    @Test
+    void onlyOneOfConcurrentIdenticalSubmissionsIsAccepted() throws Exception {
+        DuplicateSubmissionDetector detector = new DuplicateSubmissionDetector(600, 1000);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String key = "form-" + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                if (detector.tryAcquire(key, request("同時に送信した内容"))) {
+                    accepted.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, accepted.get());
+    }
+
+    private static SimpleApplicationRequest request(String description) {
+        SimpleApplicationRequest request = new SimpleApplicationRequest();
+        request.setApplicantId("applicant-1");
+        request.setApplicantName("申請者");
+        request.setContactEmail("applicant-1@example.com");
+        request.setRequestType("備品購入");
+        request.setDesiredDate(LocalDate.of(2024, 4, 8));
+        request.setDescription(description);
+        return request;
+    }
+}
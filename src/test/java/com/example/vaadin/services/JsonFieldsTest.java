@@ -0,0 +1,22 @@
+package com.example.vaadin.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonFieldsTest {
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() {
+        StringBuilder line = new StringBuilder();
+        JsonFields.append(line, "description", "\"備品\"\\\n\t\u0001 ");
+        assertEquals(",\"description\":\"\\\"備品\\\"\\\\\\n\\t\\u0001\\u2028\"", line.toString());
+    }
+
+    @Test
+    void writesNullForMissingValues() {
+        StringBuilder line = new StringBuilder();
+        JsonFields.append(line, "department", null);
+        assertEquals(",\"department\":null", line.toString());
+    }
+}
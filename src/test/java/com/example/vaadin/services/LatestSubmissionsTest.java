@@ -0,0 +1,65 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatestSubmissionsTest {
+
+    /** 保持中の履歴（シャードのインデックスの代わり）。 */
+    private final ConcurrentSkipListMap<Long, SubmissionLog> retained = new ConcurrentSkipListMap<>();
+
+    private final LatestSubmissions latest = new LatestSubmissions(3, 2,
+        log -> retained.get(log.id()) == log,
+        beforeId -> {
+            Map.Entry<Long, SubmissionLog> entry = retained.lowerEntry(beforeId);
+            return entry == null ? null : entry.getValue();
+        });
+
+    @Test
+    void evictedEntryIsRefilledFromRetainedHistory() {
+        for (long id = 1; id <= 5; id++) {
+            latest.publish(retain(id), null);
+        }
+        assertEquals(List.of(5L, 4L, 3L), ids(latest.snapshot()));
+
+        // 別のシャードが押し出した履歴の分は、保持中の次に新しい履歴で埋める
+        SubmissionLog evicted = retained.remove(4L);
+        latest.publish(null, evicted);
+        assertEquals(List.of(5L, 3L, 2L), ids(latest.snapshot()));
+        assertEquals(List.of(5L, 3L), ids(latest.latest(2)));
+    }
+
+    @Test
+    void addedEntryEvictedBeforePublishingIsNotKept() {
+        for (long id = 1; id <= 3; id++) {
+            latest.publish(retain(id), null);
+        }
+        // 押し出しの反映が追加の反映より先に行われた場合
+        SubmissionLog added = retain(4);
+        latest.publish(null, retained.remove(4L));
+        latest.publish(added, null);
+        assertEquals(List.of(3L, 2L, 1L), ids(latest.snapshot()));
+    }
+
+    private SubmissionLog retain(long id) {
+        SubmissionLog log = new SubmissionLog(id, id * 1000, "applicant-" + id, "申請者", "a@example.com",
+            null, "備品購入", SubmissionLog.NO_DESIRED_DATE, "");
+        retained.put(id, log);
+        return log;
+    }
+
+    private static List<Long> ids(List<SubmissionLog> submissions) {
+        List<Long> ids = new ArrayList<>(submissions.size());
+        for (SubmissionLog submission : submissions) {
+            ids.add(submission.id());
+        }
+        return ids;
+    }
+}
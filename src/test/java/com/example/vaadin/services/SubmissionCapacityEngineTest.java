@@ -0,0 +1,127 @@
+package com.example.vaadin.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionCapacityEngineTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 4, 1);
+
+    private final MutableClock clock = new MutableClock(TODAY);
+
+    @Test
+    void concurrentReservationsNeverExceedTheLimit() throws Exception {
+        SubmissionCapacityEngine engine = new SubmissionCapacityEngine(Map.of("備品購入", 50), 16, 30, clock);
+        LocalDate date = TODAY.plusDays(3);
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (engine.tryReserve("備品購入", date)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(50, reserved.get());
+        assertEquals(Set.of(date), engine.fullyBookedDates("備品購入"));
+
+        engine.release("備品購入", date);
+        assertTrue(engine.tryReserve("備品購入", date));
+        assertFalse(engine.tryReserve("備品購入", date));
+    }
+
+    @Test
+    void datesOutsideTheBookingPeriodAreRejected() {
+        SubmissionCapacityEngine engine = new SubmissionCapacityEngine(Map.of("備品購入", 1), 16, 30, clock);
+        assertFalse(engine.tryReserve("備品購入", TODAY.minusDays(1)));
+        assertFalse(engine.tryReserve("備品購入", TODAY.plusDays(31)));
+        assertTrue(engine.tryReserve("備品購入", TODAY.plusDays(30)));
+        // 受付枠の無い申請区分は範囲を問わない
+        assertTrue(engine.tryReserve("出張申請", TODAY.plusYears(5)));
+    }
+
+    @Test
+    void slotsOfPastDatesAreReusedAsDaysGoBy() {
+        // 受け付ける日数ぶんしか載らない小さな件数表でも、日が進むたびに過去の日のスロットを再利用する
+        SubmissionCapacityEngine engine = new SubmissionCapacityEngine(Map.of("備品購入", 1), 1, 3, clock);
+        for (int day = 0; day < 1000; day++) {
+            LocalDate today = TODAY.plusDays(day);
+            clock.set(today);
+            for (int ahead = 0; ahead <= 3; ahead++) {
+                engine.record("備品購入", today.plusDays(ahead));
+            }
+            assertFalse(engine.tryReserve("備品購入", today.plusDays(3)), "day " + day);
+        }
+        clock.set(TODAY.plusDays(2000));
+        assertTrue(engine.tryReserve("備品購入", TODAY.plusDays(2001)));
+    }
+
+    @Test
+    void recordSkipsPastDates() {
+        SubmissionCapacityEngine engine = new SubmissionCapacityEngine(Map.of("備品購入", 1), 16, 30, clock);
+        for (int i = 1; i <= 100; i++) {
+            engine.record("備品購入", TODAY.minusDays(i));
+        }
+        assertTrue(engine.fullyBookedDates("備品購入").isEmpty());
+        assertTrue(engine.tryReserve("備品購入", TODAY));
+    }
+
+    /**
+     * テストから日付を進められる時計。
+     */
+    private static final class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        MutableClock(LocalDate date) {
+            set(date);
+        }
+
+        void set(LocalDate date) {
+            instant = date.atStartOfDay().toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
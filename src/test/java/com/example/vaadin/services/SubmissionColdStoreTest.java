@@ -0,0 +1,113 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubmissionColdStoreTest {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 4, 1);
+    private static final int BLOCK_SIZE = 10;
+    private static final int BLOCKS = 4;
+
+    private final List<SubmissionLog> all = new ArrayList<>();
+    private Path directory;
+    private SubmissionColdStore store;
+
+    @BeforeEach
+    void writeBlocks() throws IOException {
+        // ブロックごとに申請区分と希望日の範囲を分け、ヘッダで読み飛ばせるようにする
+        directory = Files.createTempDirectory("cold-store-test");
+        SubmissionColdStore writer = new SubmissionColdStore(directory.toString(), BLOCK_SIZE, 0);
+        try {
+            writer.restoreCompleted();
+            for (long id = 1; id <= BLOCK_SIZE * BLOCKS; id++) {
+                int block = (int) ((id - 1) / BLOCK_SIZE);
+                SubmissionLog log = new SubmissionLog(id, id * 1000, "applicant-" + (id % 7), "申請者", "a@example.com",
+                    id % 2 == 0 ? "総務部" : "経理部", "区分-" + block,
+                    (int) BASE.plusDays(block * 10L + id % 5).toEpochDay(), "内容 " + id);
+                writer.migrate(log);
+                all.add(log);
+            }
+        } finally {
+            writer.shutdown();
+        }
+        // 再起動後と同じく、ヘッダだけを読み込んだ状態から始める
+        store = new SubmissionColdStore(directory.toString(), BLOCK_SIZE, 0);
+        store.restoreCompleted();
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.shutdown();
+    }
+
+    @Test
+    void countsAndQueriesMatchAFullScan() {
+        List<SubmissionQuery> queries = List.of(
+            SubmissionQuery.all(),
+            new SubmissionQuery(null, "区分-1", null, null, null),
+            new SubmissionQuery(null, null, "総務部", null, null),
+            new SubmissionQuery(null, "区分-2", "経理部", null, null),
+            new SubmissionQuery("applicant-3", null, null, null, null),
+            new SubmissionQuery(null, null, null, BASE.plusDays(8), BASE.plusDays(22)),
+            new SubmissionQuery(null, "区分-9", null, null, null));
+        for (SubmissionQuery query : queries) {
+            List<SubmissionLog> matches = all.stream().filter(query::matches).toList();
+            assertEquals(matches.size(), store.count(query), query.toString());
+
+            List<Long> newest = ids(matches.stream()
+                .sorted(Comparator.comparingLong(SubmissionLog::id).reversed()).limit(5).toList());
+            assertEquals(newest, ids(store.query(query, 5, true, null)), query.toString());
+
+            List<Long> afterTwelve = ids(matches.stream().filter(log -> log.id() > 12).limit(5).toList());
+            assertEquals(afterTwelve, ids(store.queryAfter(query, 12, 5, false)), query.toString());
+        }
+    }
+
+    @Test
+    void blocksRuledOutByTheirHeaderAreNotRead() throws IOException {
+        // 最も古いブロックの本体を壊す。このブロックを展開する検索だけが失敗するはず
+        Path oldest;
+        try (Stream<Path> files = Files.list(directory)) {
+            oldest = files.filter(path -> path.getFileName().toString().endsWith(".blk")).sorted().findFirst()
+                .orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(oldest);
+        bytes[bytes.length - Integer.BYTES - 1] ^= 0x7f;
+        Files.write(oldest, bytes);
+
+        // 件数はヘッダで確定でき、他の申請区分・希望日・受付番号の範囲のブロックは読み飛ばす
+        assertEquals(BLOCK_SIZE, store.count(new SubmissionQuery(null, "区分-0", null, null, null)));
+        assertEquals(BLOCK_SIZE * BLOCKS, store.count(SubmissionQuery.all()));
+        assertEquals(BLOCK_SIZE, store.query(new SubmissionQuery(null, "区分-2", null, null, null), 100, true, null).size());
+        assertEquals(List.of(40L, 39L, 38L), ids(store.query(SubmissionQuery.all(), 3, true, null)));
+        assertEquals(List.of(11L, 12L), ids(store.queryAfter(SubmissionQuery.all(), BLOCK_SIZE, 2, false)));
+        assertEquals(0, store.count(new SubmissionQuery(null, null, null, BASE.plusDays(100), null)));
+
+        assertThrows(UncheckedIOException.class,
+            () -> store.count(new SubmissionQuery(null, "区分-0", "総務部", null, null)));
+    }
+
+    private static List<Long> ids(List<SubmissionLog> submissions) {
+        List<Long> ids = new ArrayList<>(submissions.size());
+        for (SubmissionLog log : submissions) {
+            ids.add(log.id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.vaadin.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionCsvReaderTest {
+
+    private static final String INPUT = "\uFEFFid,内容\r\n"
+        + "1,\"カンマ, を含む\"\r\n"
+        + "2,\"改行を\r\n含む\"\n"
+        + "3,\"引用符 \"\"A\"\" を含む\"\n"
+        + ",\"\"\n"
+        + "4,末尾に改行なし";
+
+    @Test
+    void quotedFieldsAndLineNumbersFollowRfc4180() throws IOException {
+        assertRecords(new SubmissionCsvReader(new StringReader(INPUT)));
+    }
+
+    @Test
+    void recordsSplitAcrossReadsAreParsedTheSame() throws IOException {
+        // 1 文字ずつしか返さない Reader で、バッファの境界が引用符や CRLF の途中に来る場合を再現する
+        Reader oneCharAtATime = new FilterReader(new StringReader(INPUT)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(1, length));
+            }
+        };
+        assertRecords(new SubmissionCsvReader(oneCharAtATime));
+    }
+
+    @Test
+    void unterminatedQuoteIsReportedWithItsStartingLine() throws IOException {
+        SubmissionCsvReader reader = new SubmissionCsvReader(new StringReader("id\n1,\"閉じていない\n2,内容\n"));
+        assertEquals(List.of("id"), reader.next());
+        IOException error = assertThrows(IOException.class, reader::next);
+        assertTrue(error.getMessage().endsWith("line 2"), error.getMessage());
+    }
+
+    private static void assertRecords(SubmissionCsvReader reader) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        List<Long> lineNumbers = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+            lineNumbers.add(reader.recordLineNumber());
+        }
+        assertEquals(List.of(
+            List.of("id", "内容"),
+            List.of("1", "カンマ, を含む"),
+            List.of("2", "改行を\r\n含む"),
+            List.of("3", "引用符 \"A\" を含む"),
+            List.of("", ""),
+            List.of("4", "末尾に改行なし")), records);
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L), lineNumbers);
+        assertNull(reader.next());
+    }
+}
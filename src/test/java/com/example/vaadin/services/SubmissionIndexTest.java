@@ -0,0 +1,131 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionIndexTest {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 4, 1);
+
+    @Test
+    void dateRangePagesAreMergedInIdOrder() {
+        SubmissionIndex index = new SubmissionIndex();
+        List<SubmissionLog> all = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            // 希望日を受付番号と無関係に散らし、部署で一部だけ一致させる
+            SubmissionLog log = submission(id, BASE.plusDays((id * 7) % 30), id % 3 == 0 ? "総務部" : "経理部");
+            index.add(log);
+            all.add(log);
+        }
+        SubmissionQuery query = new SubmissionQuery(null, null, null, BASE.plusDays(5), BASE.plusDays(14));
+        List<Long> expected = new ArrayList<>();
+        for (SubmissionLog log : all) {
+            if (query.matches(log)) {
+                expected.add(log.id());
+            }
+        }
+        assertEquals(expected, pages(index, query, 9, false));
+        Collections.reverse(expected);
+        assertEquals(expected, pages(index, query, 9, true));
+        assertEquals(expected.size(), index.count(query));
+
+        List<Long> afterCursor = ids(index.queryAfter(query, expected.get(10), 5, true));
+        assertEquals(expected.subList(11, 16), afterCursor);
+
+        SubmissionQuery narrowed = new SubmissionQuery(null, null, "総務部", BASE.plusDays(5), BASE.plusDays(14));
+        int matches = 0;
+        for (SubmissionLog log : all) {
+            if (narrowed.matches(log)) {
+                matches++;
+            }
+        }
+        assertEquals(matches, index.count(narrowed));
+    }
+
+    @Test
+    void outOfOrderAddsAndRemovalsKeepPostingsInIdOrder() {
+        // 受付番号が前後して届き、古い順に押し出される状況をまとめて再現し、素朴な実装と突き合わせる
+        SubmissionIndex index = new SubmissionIndex();
+        TreeMap<Long, SubmissionLog> retained = new TreeMap<>();
+        Random random = new Random(7);
+        List<Long> order = new ArrayList<>();
+        for (long id = 1; id <= 3000; id++) {
+            order.add(id);
+        }
+        for (int i = 0; i < order.size(); i += 20) {
+            Collections.shuffle(order.subList(i, Math.min(i + 20, order.size())), random);
+        }
+        SubmissionQuery byDepartment = new SubmissionQuery(null, null, "総務部", null, null);
+        for (long id : order) {
+            SubmissionLog log = submission(id, BASE, random.nextInt(4) == 0 ? "総務部" : "経理部");
+            index.add(log);
+            retained.put(id, log);
+            if (retained.size() > 500) {
+                SubmissionLog evicted = retained.pollFirstEntry().getValue();
+                index.remove(evicted);
+                assertFalse(index.contains(evicted));
+            }
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (SubmissionLog log : retained.values()) {
+            assertTrue(index.contains(log));
+            if (byDepartment.matches(log)) {
+                expected.add(log.id());
+            }
+        }
+        assertEquals(expected, pages(index, byDepartment, 17, false));
+        assertEquals(expected.size(), index.count(byDepartment));
+        List<Long> newestFirst = new ArrayList<>(expected);
+        Collections.reverse(newestFirst);
+        assertEquals(newestFirst, pages(index, byDepartment, 17, true));
+
+        long cursor = expected.get(expected.size() / 2);
+        int at = expected.indexOf(cursor);
+        assertEquals(expected.subList(at + 1, Math.min(at + 11, expected.size())),
+            ids(index.queryAfter(byDepartment, cursor, 10, false)));
+        assertEquals(newestFirst.subList(newestFirst.indexOf(cursor) + 1, newestFirst.indexOf(cursor) + 11),
+            ids(index.queryAfter(byDepartment, cursor, 10, true)));
+
+        long oldest = retained.firstKey();
+        long probe = oldest + 250;
+        assertEquals((long) retained.lowerKey(probe), index.newestBefore(probe).id());
+        assertNull(index.newestBefore(oldest));
+    }
+
+    private static List<Long> pages(SubmissionIndex index, SubmissionQuery query, int pageSize, boolean newestFirst) {
+        List<Long> ids = new ArrayList<>();
+        for (int offset = 0; ; offset += pageSize) {
+            List<SubmissionLog> page = index.query(query, offset, pageSize, newestFirst);
+            ids.addAll(ids(page));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+        }
+    }
+
+    private static List<Long> ids(List<SubmissionLog> submissions) {
+        List<Long> ids = new ArrayList<>(submissions.size());
+        for (SubmissionLog submission : submissions) {
+            ids.add(submission.id());
+        }
+        return ids;
+    }
+
+    private static SubmissionLog submission(long id, LocalDate desiredDate, String department) {
+        return new SubmissionLog(id, id * 1000, "applicant-" + id, "申請者", "a@example.com",
+            department, "備品購入", (int) desiredDate.toEpochDay(), "");
+    }
+}
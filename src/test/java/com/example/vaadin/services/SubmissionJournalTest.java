@@ -0,0 +1,99 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubmissionJournalTest {
+
+    private Path directory;
+    private SubmissionJournal journal;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal-test");
+    }
+
+    @AfterEach
+    void closeJournal() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void failedForceFailsWaitingAndLaterAppends() throws IOException {
+        journal = new SubmissionJournal(directory.toString(), 4096, 0, true, 10_000) {
+            @Override
+            void force(MappedByteBuffer buffer) {
+                throw new UncheckedIOException(new IOException("disk failure"));
+            }
+        };
+        assertThrows(UncheckedIOException.class, () -> journal.append(submission(1)));
+        assertThrows(UncheckedIOException.class, () -> journal.append(submission(2)));
+    }
+
+    @Test
+    void appendsAreReplayedInOrder() throws IOException {
+        journal = new SubmissionJournal(directory.toString(), 4096, 0, true, 10_000);
+        journal.appendAll(List.of(submission(1), submission(2), submission(3)));
+        journal.close();
+        journal = null;
+
+        List<Long> ids = new ArrayList<>();
+        SubmissionJournal reopened = new SubmissionJournal(directory.toString(), 4096, 0, true, 10_000);
+        try {
+            assertEquals(3, reopened.replay(log -> ids.add(log.id())));
+        } finally {
+            reopened.close();
+        }
+        assertEquals(List.of(1L, 2L, 3L), ids);
+    }
+
+    @Test
+    void tornTailRecordIsIgnoredOnReplay() throws IOException {
+        journal = new SubmissionJournal(directory.toString(), 4096, 0, true, 10_000);
+        journal.appendAll(List.of(submission(1), submission(2)));
+        journal.close();
+        journal = null;
+
+        // 2 件目の本体を 1 バイト壊し、書き込み途中で止まった状態にする
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int second = Integer.BYTES * 2 + buffer.getInt(0);
+        bytes[second + Integer.BYTES * 2] ^= 0x7f;
+        Files.write(segment, bytes);
+
+        List<Long> ids = new ArrayList<>();
+        SubmissionJournal reopened = new SubmissionJournal(directory.toString(), 4096, 0, true, 10_000);
+        try {
+            assertEquals(1, reopened.replay(log -> ids.add(log.id())));
+        } finally {
+            reopened.close();
+        }
+        assertEquals(List.of(1L), ids);
+    }
+
+    static SubmissionLog submission(long id) {
+        return new SubmissionLog(id, id * 1000, "applicant-" + id, "申請者", "a@example.com",
+            "総務部", "備品購入", SubmissionLog.NO_DESIRED_DATE, "内容 " + id);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.SubmissionRejectedException.Reason;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionRateLimiterTest {
+
+    @Test
+    void burstIsAcceptedThenRejectedUntilTheNextEmission() {
+        // 1 分に 1 件の補充なので、テスト中に補充されることはない
+        SubmissionRateLimiter limiter = new SubmissionRateLimiter(1, 3, 100);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("applicant-1");
+            limiter.release();
+        }
+        SubmissionRejectedException rejected =
+            assertThrows(SubmissionRejectedException.class, () -> limiter.acquire("applicant-1"));
+        assertEquals(Reason.RATE_LIMITED, rejected.getReason());
+        Duration retryAfter = rejected.getRetryAfter();
+        assertTrue(!retryAfter.isNegative() && retryAfter.compareTo(Duration.ofMinutes(1)) <= 0,
+            "retry after " + retryAfter);
+
+        // 他の申請者のバケットには影響しない
+        limiter.acquire("applicant-2");
+        limiter.release();
+    }
+
+    @Test
+    void rejectedApplicantIsAcceptedAfterWaitingTheRetryAfter() throws Exception {
+        SubmissionRateLimiter limiter = new SubmissionRateLimiter(600, 1, 100);
+        limiter.acquire("applicant-1");
+        limiter.release();
+        SubmissionRejectedException rejected =
+            assertThrows(SubmissionRejectedException.class, () -> limiter.acquire("applicant-1"));
+        Thread.sleep(rejected.getRetryAfter().toMillis() + 1);
+        limiter.acquire("applicant-1");
+        limiter.release();
+    }
+
+    @Test
+    void inFlightLimitIsSharedAcrossApplicants() {
+        SubmissionRateLimiter limiter = new SubmissionRateLimiter(60, 10, 2);
+        limiter.acquire("applicant-1");
+        limiter.acquire("applicant-2");
+        SubmissionRejectedException rejected =
+            assertThrows(SubmissionRejectedException.class, () -> limiter.acquire("applicant-3"));
+        assertEquals(Reason.OVERLOADED, rejected.getReason());
+
+        limiter.release();
+        limiter.acquire("applicant-3");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubmissionReportEngineTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2020, 1);
+    private static final YearMonth CURRENT = YearMonth.of(2020, 3);
+    private static final long SUBMITTED_AT = SubmissionReportEngine.startMillis(MONTH) + 1000;
+
+    private final SubmissionReportEngine engine = new SubmissionReportEngine(16, 2);
+    private final List<SubmissionLog> history = new CopyOnWriteArrayList<>();
+    private final AtomicInteger scans = new AtomicInteger();
+
+    @AfterEach
+    void close() {
+        engine.close();
+    }
+
+    @Test
+    void closedMonthIsNotCachedWhileAWriteIsInFlight() {
+        engine.beginWrite(SUBMITTED_AT);
+        assertEquals(0, report(() -> { }).totalCount());
+
+        history.add(submission(1));
+        assertEquals(1, report(() -> { }).totalCount());
+        engine.endWrite(SUBMITTED_AT);
+
+        assertEquals(1, report(() -> { }).totalCount());
+        assertEquals(1, report(() -> { }).totalCount());
+        assertEquals(3, scans.get()); // 保存を終えた後の集計だけがキャッシュされる
+    }
+
+    @Test
+    void writeEndingDuringAReportDiscardsItsResult() {
+        // 集計が履歴を読んだ後に保存が始まって終わった場合
+        SubmissionMonthlyReport stale = report(() -> {
+            engine.beginWrite(SUBMITTED_AT);
+            history.add(submission(1));
+            engine.endWrite(SUBMITTED_AT);
+        });
+        assertEquals(0, stale.totalCount());
+        assertEquals(1, report(() -> { }).totalCount());
+        assertEquals(1, report(() -> { }).totalCount());
+        assertEquals(2, scans.get());
+    }
+
+    private SubmissionMonthlyReport report(Runnable afterScan) {
+        return engine.report(MONTH, CURRENT, () -> {
+            scans.incrementAndGet();
+            List<SubmissionLog> scanned = List.copyOf(history);
+            afterScan.run();
+            return List.<Supplier<List<SubmissionLog>>>of(() -> scanned);
+        });
+    }
+
+    private static SubmissionLog submission(long id) {
+        return new SubmissionLog(id, SUBMITTED_AT, "applicant-" + id, "申請者", "a@example.com",
+            "総務部", "備品購入", SubmissionLog.NO_DESIRED_DATE, "");
+    }
+}
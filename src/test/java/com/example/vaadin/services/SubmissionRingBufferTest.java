@@ -0,0 +1,112 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionRingBufferTest {
+
+    @Test
+    void wrapsAroundAndEvictsOldestFirst() {
+        SubmissionRingBuffer ring = new SubmissionRingBuffer(4);
+        for (long id = 1; id <= 4; id++) {
+            assertNull(ring.append(submission(id)));
+        }
+        for (long id = 5; id <= 10; id++) {
+            assertEquals(id - 4, ring.append(submission(id)).id());
+        }
+        assertEquals(4, ring.size());
+        assertEquals(List.of(10L, 9L, 8L, 7L), ids(ring.latest(10)));
+        assertEquals(List.of(8L, 7L), ids(ring.latest(2, 2)));
+        assertEquals(List.of(7L, 8L, 9L, 10L), ids(ring.page(0, 10, false)));
+
+        List<Long> visited = new ArrayList<>();
+        ring.forEachOldestFirst(log -> visited.add(log.id()));
+        assertEquals(List.of(7L, 8L, 9L, 10L), visited);
+
+        // 押し出し済みの通番から読み始めても、保持している範囲だけを返す
+        List<SubmissionLog> out = new ArrayList<>();
+        long next = ring.readFrom(0, ring.endSequence(), 3, out);
+        assertEquals(List.of(7L, 8L, 9L), ids(out));
+        out.clear();
+        assertEquals(ring.endSequence(), ring.readFrom(next, ring.endSequence(), 3, out));
+        assertEquals(List.of(10L), ids(out));
+    }
+
+    @Test
+    void concurrentWritersLappingTheRingEvictEachEntryExactlyOnce() throws Exception {
+        // 容量より十分多い書き込みを並行して行い、何周も上書きさせる
+        int capacity = 8;
+        int writers = 4;
+        int perWriter = 2_000;
+        SubmissionRingBuffer ring = new SubmissionRingBuffer(capacity);
+        List<List<Long>> evictedByWriter = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            long firstId = (long) w * perWriter + 1;
+            List<Long> evicted = new ArrayList<>();
+            evictedByWriter.add(evicted);
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (long id = firstId; id < firstId + perWriter; id++) {
+                    SubmissionLog old = ring.append(submission(id));
+                    if (old != null) {
+                        evicted.add(old.id());
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        BitSet seen = new BitSet();
+        int total = 0;
+        for (List<Long> evicted : evictedByWriter) {
+            for (long id : evicted) {
+                assertFalse(seen.get((int) id), "evicted twice: " + id);
+                seen.set((int) id);
+                total++;
+            }
+        }
+        List<SubmissionLog> retained = ring.latest(capacity);
+        assertEquals(capacity, retained.size());
+        for (SubmissionLog log : retained) {
+            assertFalse(seen.get((int) log.id()), "retained after eviction: " + log.id());
+            seen.set((int) log.id());
+            total++;
+        }
+        assertEquals(writers * perWriter, total);
+        assertTrue(seen.nextClearBit(1) > writers * perWriter);
+    }
+
+    private static SubmissionLog submission(long id) {
+        return new SubmissionLog(id, id * 1000, "applicant-" + id, "申請者", "a@example.com",
+            "総務部", "備品購入", SubmissionLog.NO_DESIRED_DATE, "");
+    }
+
+    private static List<Long> ids(List<SubmissionLog> submissions) {
+        List<Long> ids = new ArrayList<>(submissions.size());
+        for (SubmissionLog log : submissions) {
+            ids.add(log.id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import com.example.vaadin.services.SubmissionSnapshotStore.SnapshotState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubmissionSnapshotStoreTest {
+
+    private Path directory;
+    private SubmissionJournal journal;
+    private SubmissionSnapshotStore store;
+
+    @BeforeEach
+    void createStore() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+        journal = new SubmissionJournal(Files.createTempDirectory("snapshot-journal-test").toString(),
+            4096, 0, true, 10_000);
+        store = new SubmissionSnapshotStore(directory.toString(), 0, journal);
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.shutdown();
+        journal.close();
+    }
+
+    @Test
+    void writtenSnapshotIsLoadedBack() throws IOException {
+        store.write(new SnapshotState(3, 11, List.of(submission(9), submission(10))));
+
+        SnapshotState loaded = store.loadLatest().orElseThrow();
+        assertEquals(3, loaded.journalSegment());
+        assertEquals(11, loaded.nextId());
+        assertEquals(List.of(9L, 10L), ids(loaded.submissions()));
+        assertEquals("内容 10", loaded.submissions().get(1).description());
+    }
+
+    @Test
+    void corruptedSnapshotFallsBackToThePreviousOne() throws IOException {
+        store.write(new SnapshotState(1, 2, List.of(submission(1))));
+        Path previous = onlySnapshot();
+        byte[] previousBytes = Files.readAllBytes(previous);
+        store.write(new SnapshotState(2, 3, List.of(submission(1), submission(2))));
+        Path latest = onlySnapshot();
+        // 新しいスナップショットの書き込みで消えた 1 つ前を戻し、新しい方の本体を 1 バイト壊す
+        Files.write(previous, previousBytes);
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[bytes.length - Integer.BYTES - 1] ^= 0x7f;
+        Files.write(latest, bytes);
+
+        SnapshotState loaded = store.loadLatest().orElseThrow();
+        assertEquals(1, loaded.journalSegment());
+        assertEquals(List.of(1L), ids(loaded.submissions()));
+    }
+
+    @Test
+    void truncatedSnapshotIsIgnored() throws IOException {
+        store.write(new SnapshotState(1, 2, List.of(submission(1))));
+        Path snapshot = onlySnapshot();
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 2));
+
+        assertTrue(store.loadLatest().isEmpty());
+    }
+
+    private Path onlySnapshot() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = files.toList();
+            assertEquals(1, snapshots.size());
+            return snapshots.get(0);
+        }
+    }
+
+    private static SubmissionLog submission(long id) {
+        return SubmissionJournalTest.submission(id);
+    }
+
+    private static List<Long> ids(List<SubmissionLog> submissions) {
+        List<Long> ids = new ArrayList<>(submissions.size());
+        for (SubmissionLog log : submissions) {
+            ids.add(log.id());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubmissionStatisticsTest {
+
+    private final SubmissionStatistics statistics = new SubmissionStatistics(30);
+
+    @AfterEach
+    void shutdown() {
+        statistics.shutdown();
+    }
+
+    @Test
+    void importedSubmissionsAreCountedSeparately() {
+        LocalDate today = LocalDate.now();
+        statistics.record(submission(1, today));
+        statistics.recordImported(submission(2, today));
+        statistics.recordImported(submission(3, today));
+        statistics.publishSnapshot();
+
+        SubmissionStatistics.Snapshot snapshot = statistics.snapshot();
+        assertEquals(1, snapshot.total());
+        assertEquals(2, snapshot.imported());
+        assertEquals(Map.of("備品購入", 1L), snapshot.byRequestType());
+        assertEquals(Map.of(today, 1L), snapshot.byDesiredDate());
+    }
+
+    @Test
+    void restoredSubmissionsAreCountedWithoutAffectingRates() {
+        statistics.restore(submission(1, LocalDate.now()));
+        statistics.restore(submission(2, LocalDate.now()));
+        statistics.publishSnapshot();
+
+        SubmissionStatistics.Snapshot snapshot = statistics.snapshot();
+        assertEquals(2, snapshot.total());
+        assertEquals(0.0, snapshot.perSecondLastMinute());
+    }
+
+    @Test
+    void desiredDatesOutsideTheWindowAreNotKept() {
+        LocalDate today = LocalDate.now();
+        statistics.record(submission(1, today.minusDays(31)));
+        statistics.record(submission(2, today.minusDays(30)));
+        statistics.record(submission(3, today.plusDays(30)));
+        statistics.record(submission(4, today.plusDays(31)));
+        statistics.publishSnapshot();
+
+        SubmissionStatistics.Snapshot snapshot = statistics.snapshot();
+        assertEquals(4, snapshot.total());
+        assertEquals(List.of(today.minusDays(30), today.plusDays(30)), List.copyOf(snapshot.byDesiredDate().keySet()));
+    }
+
+    private static SubmissionLog submission(long id, LocalDate desiredDate) {
+        return new SubmissionLog(id, System.currentTimeMillis(), "applicant-" + id, "申請者", "a@example.com",
+            "総務部", "備品購入", (int) desiredDate.toEpochDay(), "");
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.vaadin.services;
+
+import com.example.vaadin.model.SimpleApplicationRequest;
+import com.example.vaadin.services.ApplicationRequestService.SubmissionLog;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * メモリ上の履歴（{@link SubmissionRingBuffer} + {@link SubmissionIndex}）と {@link JdbcSubmissionStore} の
+ * 書き込み・読み出し性能を比較する簡易ベンチマーク。
+ * <p>
+ * ネットワークを使わないよう、一時ディレクトリに作ったファイルモードの H2 を使う。
+ * テスト用のソースに置いてアプリケーションの jar には含めない。IDE などからテストのクラスパスで {@code main} を実行する
+ * （テストクラスではないため {@code mvn test} では実行されない）。引数で件数を指定できる（既定 100,000 件）。
+ * 各計測は同じ処理を数回繰り返した後の値で、JIT の暖機を含まない。
+ * あわせて、メモリ上に保持した履歴 1 件あたりのヒープ使用量（GC 後の使用量の差分から求めた概算）を、
+ * 履歴そのもの・リングバッファ・二次インデックスに分けて表示する。
+ */
+final class SubmissionStoreBenchmark {
+
+    private static final int BATCH_SIZE = 256;
+    private static final int PAGE_SIZE = 50;
+    private static final int QUERY_ROUNDS = 2_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final String[] REQUEST_TYPES = {"備品購入", "出張申請", "システム権限", "その他"};
+    private static final String[] DEPARTMENTS = {"総務部", "経理部", "開発部", "営業部", "人事部"};
+
+    private SubmissionStoreBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long heapBefore = usedHeapAfterGc();
+        List<SubmissionLog> submissions = generate(total, new Random(42));
+        long heapAfterRows = usedHeapAfterGc();
+        System.out.printf("submissions=%,d batch=%d page=%d%n", total, BATCH_SIZE, PAGE_SIZE);
+        System.out.printf("retained heap: rows %,d | ring %,d | index %,d bytes/submission%n",
+            (heapAfterRows - heapBefore) / total, ringHeapPerSubmission(submissions),
+            indexHeapPerSubmission(submissions));
+
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runInMemory(submissions, false);
+            runJdbc(submissions, false);
+        }
+        runInMemory(submissions, true);
+        runJdbc(submissions, true);
+    }
+
+    private static void runInMemory(List<SubmissionLog> submissions, boolean report) {
+        SubmissionRingBuffer ring = new SubmissionRingBuffer(submissions.size());
+        SubmissionIndex index = new SubmissionIndex();
+        long started = System.nanoTime();
+        for (SubmissionLog submission : submissions) {
+            index.add(submission);
+            ring.append(submission);
+        }
+        long writeNanos = System.nanoTime() - started;
+
+        SubmissionQuery byApplicant = new SubmissionQuery("EMP-00042", null, null, null, null);
+        SubmissionQuery byTypeAndDate = new SubmissionQuery(null, "出張申請", null,
+            LocalDate.of(2024, 4, 1), LocalDate.of(2024, 6, 30));
+        long latestNanos = time(() -> ring.page(0, PAGE_SIZE, true));
+        long applicantNanos = time(() -> index.query(byApplicant, 0, PAGE_SIZE, true));
+        long rangeNanos = time(() -> index.query(byTypeAndDate, 0, PAGE_SIZE, true));
+        long countNanos = time(() -> index.count(byTypeAndDate));
+        if (report) {
+            print("in-memory", submissions.size(), writeNanos, latestNanos, applicantNanos, rangeNanos, countNanos);
+        }
+    }
+
+    private static void runJdbc(List<SubmissionLog> submissions, boolean report) throws IOException {
+        Path directory = Files.createTempDirectory("submission-benchmark");
+        try (JdbcSubmissionStore store = new JdbcSubmissionStore(
+            "jdbc:h2:file:" + directory.resolve("submissions").toAbsolutePath(), "sa", "", 4)) {
+            long started = System.nanoTime();
+            for (int from = 0; from < submissions.size(); from += BATCH_SIZE) {
+                store.appendAll(submissions.subList(from, Math.min(from + BATCH_SIZE, submissions.size())));
+            }
+            long writeNanos = System.nanoTime() - started;
+
+            SubmissionQuery byApplicant = new SubmissionQuery("EMP-00042", null, null, null, null);
+            SubmissionQuery byTypeAndDate = new SubmissionQuery(null, "出張申請", null,
+                LocalDate.of(2024, 4, 1), LocalDate.of(2024, 6, 30));
+            long latestNanos = time(() -> store.query(SubmissionQuery.all(), 0, PAGE_SIZE, true));
+            long applicantNanos = time(() -> store.query(byApplicant, 0, PAGE_SIZE, true));
+            long rangeNanos = time(() -> store.query(byTypeAndDate, 0, PAGE_SIZE, true));
+            long countNanos = time(() -> store.count(byTypeAndDate));
+            if (report) {
+                print("jdbc (H2 file)", submissions.size(), writeNanos, latestNanos, applicantNanos, rangeNanos, countNanos);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * リングバッファが履歴 1 件あたりに使うヒープ（履歴そのものは含まない）。
+     */
+    private static long ringHeapPerSubmission(List<SubmissionLog> submissions) {
+        long before = usedHeapAfterGc();
+        SubmissionRingBuffer ring = new SubmissionRingBuffer(submissions.size());
+        for (SubmissionLog submission : submissions) {
+            ring.append(submission);
+        }
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(ring);
+        return (after - before) / submissions.size();
+    }
+
+    /**
+     * 二次インデックス（全件・申請者ID・申請区分・所属部署・希望日のポスティング）が履歴 1 件あたりに使うヒープ
+     * （履歴そのものは含まない）。
+     */
+    private static long indexHeapPerSubmission(List<SubmissionLog> submissions) {
+        long before = usedHeapAfterGc();
+        SubmissionIndex index = new SubmissionIndex();
+        for (SubmissionLog submission : submissions) {
+            index.add(submission);
+        }
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(index);
+        return (after - before) / submissions.size();
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long time(Runnable query) {
+        long started = System.nanoTime();
+        for (int i = 0; i < QUERY_ROUNDS; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - started) / QUERY_ROUNDS;
+    }
+
+    private static void print(String name, int total, long writeNanos, long latestNanos, long applicantNanos,
+                              long rangeNanos, long countNanos) {
+        System.out.printf("%-16s write %,10.0f rows/s | latest %,8d ns | applicant %,8d ns | type+date %,8d ns | count %,8d ns%n",
+            name, total / (writeNanos / 1e9), latestNanos, applicantNanos, rangeNanos, countNanos);
+    }
+
+    private static List<SubmissionLog> generate(int total, Random random) {
+        List<SubmissionLog> submissions = new ArrayList<>(total);
+        LocalDateTime submittedAt = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < total; i++) {
+            SimpleApplicationRequest request = new SimpleApplicationRequest();
+            request.setApplicantId(String.format("EMP-%05d", random.nextInt(1_000)));
+            request.setApplicantName("申請者" + i);
+            request.setContactEmail("user" + i + "@example.com");
+            request.setDepartment(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+            request.setRequestType(REQUEST_TYPES[random.nextInt(REQUEST_TYPES.length)]);
+            request.setDesiredDate(LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365)));
+            request.setDescription("ベンチマーク用の申請内容 " + i);
+            submissions.add(new SubmissionLog(i + 1, submittedAt.plusSeconds(i), request));
+        }
+        return submissions;
+    }
+}